@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs connects on an executor, returning {@link CompletableFuture}s.
+ *
+ * <p>Cancelling the returned future with {@code mayInterruptIfRunning} set interrupts the thread
+ * running the connect: whether the connect is actually abandoned depends on the delegate drivers.
+ * A connection opened after the future was cancelled is closed. Cancelling a dependent stage
+ * derived from the returned future does not cancel the connect.</p>
+ */
+final class AsyncConnector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncConnector.class);
+
+    /**
+     * Performs the blocking connect.
+     */
+    @FunctionalInterface
+    interface Connector {
+        Connection connect() throws SQLException;
+    }
+
+    private AsyncConnector() {
+        throw new AssertionError("static utility class");
+    }
+
+    /**
+     * Starts the connect on the executor.
+     *
+     * @param connector the blocking connect to run
+     * @param executor the executor to run the connect on
+     * @return the future of the connection; failed with a {@link SQLException} if the connect
+     *          failed or the executor rejected it
+     */
+    static CompletableFuture<Connection> connect(Connector connector, Executor executor) {
+        ConnectFuture future = new ConnectFuture();
+        try {
+            executor.execute(() -> future.run(connector));
+        } catch (RejectedExecutionException ree) {
+            future.completeExceptionally(new SQLException("Asynchronous connect was rejected by the executor", ree));
+        }
+        return future;
+    }
+
+    private static final class ConnectFuture extends CompletableFuture<Connection> {
+
+        // the thread running the connect, guarded by this
+        private Thread runner;
+
+        private void run(Connector connector) {
+            synchronized (this) {
+                if (isDone()) {
+                    LOGGER.debug("Asynchronous connect was cancelled before it started");
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+
+            try {
+                Connection connection = connector.connect();
+                if (!complete(connection)) {
+                    LOGGER.debug("Asynchronous connect was cancelled: closing the late connection");
+                    JdbcUtils.closeQuietly(connection);
+                }
+            } catch (SQLException | RuntimeException e) {
+                completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                if (isCancelled()) {
+                    // clear the interrupt of cancel(), which is meant for this task only
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && mayInterruptIfRunning) {
+                synchronized (this) {
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                }
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import com.github.robin.jdbc.url.UrlTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The fully resolved form of a robin connection URL: the connection type,
+ * the parsed configuration and the URLs yielded by the URL template.
+ *
+ * <p>Instances are immutable and are shared between threads: see {@link ConnectPlanCache}.
+ * The URL list is the immutable list returned by the URL template, which might produce the
+ * URLs lazily: it is never copied, so that large lists are not materialized needlessly.
+ * If the template yields different URLs later, e.g. as the file the URLs are read from changes,
+ * the plan becomes {@linkplain #isStale() stale} and is replaced by a new one.</p>
+ *
+ * <p>The plan also holds the rotation state of the round-robin connection types: an atomic
+ * cursor, and for weighted round-robin the current values of the smooth weighted round-robin
+ * algorithm, which selects each URL as many times as its weight, spread as evenly as possible.
+ * The current values are an immutable array replaced atomically, so that no lock is held.</p>
+ */
+final class ConnectPlan {
+
+    private final ConnectionType connectionType;
+    private final Configuration configuration;
+    private final List<String> urls;
+    private final EndpointAttributes endpointAttributes;
+
+    // null if all URLs have the same weight
+    private final int[] weights;
+    private final int totalWeight;
+
+    // smooth weighted round-robin state: never modified, replaced by compare-and-set
+    private final AtomicReference<int[]> currentWeights;
+
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private volatile HashRing hashRing;
+
+    // read/write splitting: empty, unless the connection type is readwrite
+    private final List<String> primaryUrls;
+    private final List<String> replicaUrls;
+
+    // zone-aware routing: empty, unless the connection type is zoned
+    private final List<List<String>> tiers;
+
+    private final UrlTemplate urlTemplate;
+    private final long urlRevision;
+
+    private final PropertiesKey propertiesKey;
+
+    ConnectPlan(ConnectionType connectionType, Configuration configuration, EndpointAttributes endpointAttributes,
+                int[] weights, UrlTemplate urlTemplate, long urlRevision, PropertiesKey propertiesKey) {
+        this.propertiesKey = propertiesKey;
+        this.urlTemplate = urlTemplate;
+        this.urlRevision = urlRevision;
+        this.connectionType = connectionType;
+        this.configuration = configuration;
+        this.urls = Collections.unmodifiableList(endpointAttributes.getUrls());
+        this.endpointAttributes = endpointAttributes;
+        this.weights = weights;
+        if (weights == null) {
+            this.totalWeight = 0;
+            this.currentWeights = null;
+        } else {
+            this.totalWeight = Arrays.stream(weights).sum();
+            this.currentWeights = new AtomicReference<>(new int[weights.length]);
+        }
+
+        if (connectionType == ConnectionType.READ_WRITE) {
+            List<String> primaries = new ArrayList<>();
+            List<String> replicas = new ArrayList<>();
+            splitByRole(endpointAttributes, primaries, replicas);
+            this.primaryUrls = Collections.unmodifiableList(primaries);
+            this.replicaUrls = Collections.unmodifiableList(replicas);
+        } else {
+            this.primaryUrls = Collections.emptyList();
+            this.replicaUrls = Collections.emptyList();
+        }
+
+        if (connectionType == ConnectionType.ZONED) {
+            this.tiers = groupByZone(endpointAttributes, configuration.getZones());
+        } else {
+            this.tiers = Collections.emptyList();
+        }
+    }
+
+    /**
+     * Groups the URLs into tiers by their {@value EndpointAttributes#ZONE} attribute, in the order
+     * of the zones: the URLs of unlisted zones and without a zone form the last tier.
+     */
+    private static List<List<String>> groupByZone(EndpointAttributes endpointAttributes, List<String> zones) {
+        List<List<String>> tiers = new ArrayList<>(zones.size() + 1);
+        for (int i = 0; i <= zones.size(); i++) {
+            tiers.add(new ArrayList<>());
+        }
+
+        List<String> urls = endpointAttributes.getUrls();
+        for (int i = 0; i < urls.size(); i++) {
+            int tier = zones.indexOf(endpointAttributes.getAttribute(i, EndpointAttributes.ZONE));
+            if (tier < 0) {
+                tier = zones.size();
+            }
+            tiers.get(tier).add(urls.get(i));
+        }
+
+        tiers.removeIf(List::isEmpty);
+        return Collections.unmodifiableList(tiers);
+    }
+
+    /**
+     * Splits the URLs into primaries, having the {@value EndpointAttributes#ROLE} attribute
+     * {@value EndpointAttributes#PRIMARY_ROLE}, and replicas: all other URLs. If no URL is
+     * marked as primary, the first URL is the primary.
+     */
+    private static void splitByRole(EndpointAttributes endpointAttributes,
+                                    List<String> primaries, List<String> replicas) {
+        List<String> urls = endpointAttributes.getUrls();
+        for (int i = 0; i < urls.size(); i++) {
+            String role = endpointAttributes.getAttribute(i, EndpointAttributes.ROLE);
+            if (EndpointAttributes.PRIMARY_ROLE.equals(role)) {
+                primaries.add(urls.get(i));
+            } else {
+                replicas.add(urls.get(i));
+            }
+        }
+
+        if (primaries.isEmpty()) {
+            primaries.add(replicas.remove(0));
+        }
+    }
+
+    ConnectionType getConnectionType() {
+        return connectionType;
+    }
+
+    Configuration getConfiguration() {
+        return configuration;
+    }
+
+    List<String> getUrls() {
+        return urls;
+    }
+
+    boolean isTrackingConnections() {
+        return configuration.isTrackConnections() || connectionType.requiresConnectionTracking();
+    }
+
+    EndpointAttributes getEndpointAttributes() {
+        return endpointAttributes;
+    }
+
+    List<String> getPrimaryUrls() {
+        return primaryUrls;
+    }
+
+    List<String> getReplicaUrls() {
+        return replicaUrls;
+    }
+
+    List<List<String>> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * Returns whether the URL template yields different URLs by now than the URLs of the plan.
+     *
+     * @return {@code true} if the plan should be recreated
+     */
+    boolean isStale() {
+        return urlTemplate.getRevision() != urlRevision;
+    }
+
+    /**
+     * Returns the consistent-hash ring of the URLs, created on first use.
+     *
+     * @return the hash ring
+     */
+    HashRing getHashRing() {
+        HashRing ring = hashRing;
+        if (ring == null) {
+            synchronized (this) {
+                ring = hashRing;
+                if (ring == null) {
+                    ring = new HashRing(urls);
+                    hashRing = ring;
+                }
+            }
+        }
+        return ring;
+    }
+
+    /**
+     * Returns the key the plan is cached with: its properties are those the plan connects with,
+     * so that the state kept per endpoint and properties can be looked up without copying them.
+     *
+     * @return the key of the plan in the {@link ConnectPlanCache}
+     */
+    PropertiesKey getPropertiesKey() {
+        return propertiesKey;
+    }
+
+    /**
+     * Advances the cursor of the plan.
+     *
+     * @return the index of the URL to attempt first in round-robin order
+     */
+    int nextRoundRobinIndex() {
+        return Math.floorMod(cursor.getAndIncrement(), urls.size());
+    }
+
+    /**
+     * Advances the cursor of the plan.
+     *
+     * @return the index of the URL to attempt first in weighted round-robin order
+     */
+    int nextWeightedIndex() {
+        if (weights == null) {
+            return nextRoundRobinIndex();
+        }
+
+        // smooth weighted round-robin: the weight of each URL is added to its current value, and
+        // the URL with the highest current value is selected and has the total weight subtracted
+        while (true) {
+            int[] current = currentWeights.get();
+            int[] next = new int[current.length];
+            int selected = 0;
+            for (int i = 0; i < weights.length; i++) {
+                next[i] = current[i] + weights[i];
+                if (next[i] > next[selected]) {
+                    selected = i;
+                }
+            }
+            next[selected] -= totalWeight;
+
+            if (currentWeights.compareAndSet(current, next)) {
+                return selected;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectPlan{"
+                + "connectionType=" + connectionType
+                + ", configuration=" + configuration
+                + ", urlCount=" + urls.size()
+                + '}';
+    }
+}
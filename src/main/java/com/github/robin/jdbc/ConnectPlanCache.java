@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+import java.util.function.BiConsumer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of {@link ConnectPlan}s, keyed by the robin URL and the properties
+ * passed to the connect call: both the configuration and the URL template evaluation
+ * depend on the properties, hence a plan can only be reused for the very same properties.
+ *
+ * <p>Lookups are lock-free; when the cache grows beyond its maximum size, the entries
+ * are evicted in insertion order. A plan put for a key already cached replaces the previous
+ * one, e.g. when it became stale. The {@link RemovalListener} is notified of both evicted
+ * and replaced plans, so that the background tasks registered for them can be stopped.</p>
+ */
+final class ConnectPlanCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectPlanCache.class);
+
+    static final String MAXIMUM_SIZE_SYSTEM_PROPERTY = "com.github.robin.jdbc.connectPlanCacheSize";
+
+    static final int DEFAULT_MAXIMUM_SIZE = 128;
+
+    private final int maximumSize;
+
+    private final ConcurrentHashMap<PropertiesKey, ConnectPlan> plans = new ConcurrentHashMap<>();
+    private final Queue<PropertiesKey> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private volatile RemovalListener removalListener = (key, plan) -> { };
+
+    /**
+     * Notified when a plan is removed from the cache, either evicted or replaced.
+     */
+    @FunctionalInterface
+    interface RemovalListener {
+        void onRemoval(PropertiesKey key, ConnectPlan plan);
+    }
+
+    ConnectPlanCache(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative, but was: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    static ConnectPlanCache fromSystemProperties() {
+        int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        String configuredSize = System.getProperty(MAXIMUM_SIZE_SYSTEM_PROPERTY);
+        if (configuredSize != null) {
+            try {
+                maximumSize = Math.max(0, Integer.parseInt(configuredSize.trim()));
+            } catch (NumberFormatException nfe) {
+                LOGGER.warn("Ignoring invalid value for system property {}: '{}'",
+                        MAXIMUM_SIZE_SYSTEM_PROPERTY, configuredSize);
+            }
+        }
+
+        LOGGER.debug("Connect plan cache maximum size: {}", maximumSize);
+
+        return new ConnectPlanCache(maximumSize);
+    }
+
+    void setRemovalListener(RemovalListener listener) {
+        this.removalListener = listener;
+    }
+
+    static PropertiesKey keyFor(String factoryConfiguration, Properties properties) {
+        return new PropertiesKey(factoryConfiguration, properties);
+    }
+
+    ConnectPlan get(PropertiesKey key) {
+        if (maximumSize == 0) {
+            return null;
+        }
+
+        ConnectPlan plan = plans.get(key);
+        if (plan != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+
+        return plan;
+    }
+
+    void put(PropertiesKey key, ConnectPlan plan) {
+        if (maximumSize == 0) {
+            return;
+        }
+
+        ConnectPlan previous = plans.put(key, plan);
+        if (previous != null) {
+            if (previous != plan) {
+                removalListener.onRemoval(key, previous);
+            }
+            return;
+        }
+
+        insertionOrder.add(key);
+
+        while (plans.size() > maximumSize) {
+            PropertiesKey eldest = insertionOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+
+            ConnectPlan evicted = plans.remove(eldest);
+            if (evicted != null) {
+                evictionCount.increment();
+                removalListener.onRemoval(eldest, evicted);
+            }
+        }
+    }
+
+    void forEach(BiConsumer<PropertiesKey, ConnectPlan> action) {
+        plans.forEach(action);
+    }
+
+    void clear() {
+        plans.clear();
+        insertionOrder.clear();
+    }
+
+    int size() {
+        return plans.size();
+    }
+
+    int getMaximumSize() {
+        return maximumSize;
+    }
+
+    long getHitCount() {
+        return hitCount.sum();
+    }
+
+    long getMissCount() {
+        return missCount.sum();
+    }
+
+    long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectPlanCache{"
+                + "size=" + plans.size()
+                + ", maximumSize=" + maximumSize
+                + ", hitCount=" + getHitCount()
+                + ", missCount=" + getMissCount()
+                + ", evictionCount=" + getEvictionCount()
+                + '}';
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+/**
+ * Event passed to the callbacks of a {@link ConnectionListener}. Instances are reused: each thread
+ * has a single instance, which is populated before each callback on the thread. Only the
+ * properties relevant to the callback are set; the others are {@code null}, {@code 0} or
+ * {@code false}.
+ */
+public final class ConnectionEvent {
+
+    private String connectionType;
+    private int urlCount;
+    private String url;
+    private boolean success;
+    private Exception failure;
+    private long durationNanos;
+
+    ConnectionEvent() {
+        // instantiated by ConnectionListeners only
+    }
+
+    ConnectionEvent populate(String newConnectionType, int newUrlCount, String newUrl,
+                             boolean newSuccess, Exception newFailure, long newDurationNanos) {
+        this.connectionType = newConnectionType;
+        this.urlCount = newUrlCount;
+        this.url = newUrl;
+        this.success = newSuccess;
+        this.failure = newFailure;
+        this.durationNanos = newDurationNanos;
+        return this;
+    }
+
+    /**
+     * Returns the name of the connection type of the robin URL.
+     *
+     * @return the connection type, e.g. {@code failover}; {@code null} when the connect starts, for
+     *         connects failing to resolve the robin URL and for closed connections
+     */
+    public String getConnectionType() {
+        return connectionType;
+    }
+
+    /**
+     * Returns the number of URLs the robin URL yielded.
+     *
+     * @return the number of URLs; {@code 0} when the connect starts, for connects failing to resolve
+     *         the robin URL, for connection attempts and closed connections
+     */
+    public int getUrlCount() {
+        return urlCount;
+    }
+
+    /**
+     * Returns the delegate URL.
+     *
+     * @return the URL of the connection attempt or the closed connection; {@code null} otherwise
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Returns the exception the connect or the attempt failed with.
+     *
+     * @return the exception, or {@code null} if there is no failure
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the duration of the connect call or the attempt, or the time the closed connection was open for.
+     *
+     * @return the duration in nanoseconds; {@code 0} when the connect starts
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionEvent{"
+                + "connectionType='" + connectionType + '\''
+                + ", urlCount=" + urlCount
+                + ", url='" + url + '\''
+                + ", success=" + success
+                + ", failure=" + failure
+                + ", durationNanos=" + durationNanos
+                + '}';
+    }
+}
@@ -19,25 +19,40 @@ package com.github.robin.jdbc;
 
 import com.github.robin.jdbc.config.*;
 import com.github.robin.jdbc.url.DefaultUrlTemplateParser;
+import com.github.robin.jdbc.url.UrlTemplate;
 import com.github.robin.jdbc.url.UrlTemplateParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.*;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 
 final class ConnectionFactory {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionFactory.class);
 
-    static final String LOAD_BALANCE = "loadbalance";
-    static final String FAILOVER = "failover";
     static final String TEMPLATE_PREFIX = "template:";
 
-    private static final ConnectionFactory INSTANCE = new ConnectionFactory(); // thread-safe: no state is held
+    // SQLState class of invalid authorization specification, e.g. a wrong password
+    private static final String INVALID_AUTHORIZATION_CLASS = "28";
+
+    private static final ConnectionFactory INSTANCE = new ConnectionFactory(); // thread-safe: only caches are held
 
 
     static ConnectionFactory getInstance() {
@@ -46,26 +61,171 @@ final class ConnectionFactory {
 
     private final ConfigurationFactory configurationFactory;
     private final UrlTemplateParser urlTemplateParser;
+    private final ConnectPlanCache connectPlanCache;
+    private final HedgedConnector hedgedConnector;
+    private final EndpointRegistry endpointRegistry = EndpointRegistry.getInstance();
+    private final ConnectionPools connectionPools = ConnectionPools.getInstance();
+    private final HealthProber healthProber = HealthProber.getInstance();
+    private final DelegateDrivers delegateDrivers = DelegateDrivers.getInstance();
+    private final StandbyConnections standbyConnections = StandbyConnections.getInstance();
+    private final RobinStatistics statistics = RobinStatistics.getInstance();
+    private final RobinEvents events = RobinEvents.getInstance();
 
     ConnectionFactory() {
-        this(DefaultConfigurationFactory.getInstance(), DefaultUrlTemplateParser.getInstance());
+        this(DefaultConfigurationFactory.getInstance(), DefaultUrlTemplateParser.getInstance(),
+                ConnectPlanCache.fromSystemProperties());
     }
 
     // Visible for testing
-    ConnectionFactory(ConfigurationFactory configurationFactory, UrlTemplateParser urlTemplateParser) {
+    ConnectionFactory(ConfigurationFactory configurationFactory, UrlTemplateParser urlTemplateParser,
+                      ConnectPlanCache connectPlanCache) {
         this.configurationFactory = configurationFactory;
         this.urlTemplateParser = urlTemplateParser;
+        this.connectPlanCache = connectPlanCache;
+        this.hedgedConnector = new HedgedConnector(RobinExecutors.getConnectExecutor());
+        connectPlanCache.setRemovalListener(this::onConnectPlanRemoved);
+    }
+
+    ConnectPlanCache getConnectPlanCache() {
+        return connectPlanCache;
     }
 
     Connection newConnection(String factoryConfiguration, Properties properties)
             throws SQLException, ConnectionURLSyntaxException {
 
+        return connect(() -> getConnectPlan(factoryConfiguration, properties), properties);
+    }
+
+    /**
+     * Resolves the plan of a connect call.
+     */
+    @FunctionalInterface
+    interface ConnectPlanResolver {
+        ConnectPlan resolve() throws SQLException, ConnectionURLSyntaxException;
+    }
+
+    /**
+     * Connects with the plan resolved. The connect events and the listener callbacks cover
+     * resolving the plan too, so that a connect failing on an invalid robin URL is reported.
+     *
+     * @param connectPlanResolver resolves the plan, e.g. looks it up in the cache
+     * @param properties the properties to connect with
+     * @return the connection
+     * @throws SQLException if the plan cannot be resolved, or no connection can be opened
+     * @throws ConnectionURLSyntaxException if the robin URL is invalid
+     */
+    Connection connect(ConnectPlanResolver connectPlanResolver, Properties properties)
+            throws SQLException, ConnectionURLSyntaxException {
+
+        Object event = events.beginConnect();
+        long startNanos = 0L;
+        if (ConnectionListeners.ENABLED) {
+            startNanos = System.nanoTime();
+            ConnectionListeners.fireConnectStarted();
+        }
+
+        ConnectPlan connectPlan = null;
+        Connection connection = null;
+        try {
+            connectPlan = connectPlanResolver.resolve();
+            connection = connectToPlan(connectPlan, properties);
+            if (ConnectionListeners.ENABLED) {
+                ConnectionListeners.fireConnectSucceeded(connectPlan, System.nanoTime() - startNanos);
+            }
+            return connection;
+        } catch (SQLException | ConnectionURLSyntaxException | RuntimeException e) {
+            if (ConnectionListeners.ENABLED) {
+                ConnectionListeners.fireConnectFailed(connectPlan, e, System.nanoTime() - startNanos);
+            }
+            throw e;
+        } finally {
+            events.endConnect(event, connectPlan, connection != null);
+        }
+    }
+
+    ConnectPlan getConnectPlan(String factoryConfiguration, Properties properties)
+            throws SQLException, ConnectionURLSyntaxException {
+
         Objects.requireNonNull(factoryConfiguration);
 
+        PropertiesKey key = ConnectPlanCache.keyFor(factoryConfiguration, properties);
+
+        ConnectPlan connectPlan = connectPlanCache.get(key);
+        if (connectPlan == null || connectPlan.isStale()) {
+            if (connectPlan != null) {
+                LOGGER.info("URLs changed: recreating {}", connectPlan);
+            }
+            connectPlan = newConnectPlan(factoryConfiguration, properties, key);
+
+            if (isHealthProbed(connectPlan)) {
+                healthProber.register(connectPlan.getUrls(), properties,
+                        connectPlan.getConfiguration().getHealthProbeIntervalMillis());
+            }
+            if (isStandbyEnabled(connectPlan)) {
+                standbyConnections.register(key, connectPlan, properties);
+            }
+            // cached only once registered: if evicted right away, its endpoints are unregistered, not leaked
+            connectPlanCache.put(key, connectPlan);
+
+            LOGGER.debug("Created {}", connectPlan);
+        } else {
+            LOGGER.trace("Using cached {}", connectPlan);
+        }
+
+        return connectPlan;
+    }
+
+    /**
+     * Stops the background tasks of an evicted or replaced plan: the standby connections of the
+     * plan, and probing its endpoints, unless a plan still cached connects to them with the same
+     * properties.
+     */
+    private void onConnectPlanRemoved(PropertiesKey key, ConnectPlan removedPlan) {
+        if (isStandbyEnabled(removedPlan)) {
+            standbyConnections.unregister(key, removedPlan);
+        }
+        if (isHealthProbed(removedPlan)) {
+            stopProbing(key, removedPlan);
+        }
+    }
+
+    private void stopProbing(PropertiesKey key, ConnectPlan removedPlan) {
+        Set<String> unusedUrls = new HashSet<>(removedPlan.getUrls());
+        connectPlanCache.forEach((otherKey, otherPlan) -> {
+            if (isHealthProbed(otherPlan) && otherKey.hasSameProperties(key)) {
+                for (String url : otherPlan.getUrls()) {
+                    unusedUrls.remove(url);
+                }
+            }
+        });
+
+        if (!unusedUrls.isEmpty()) {
+            List<PropertiesKey> unusedEndpoints = new ArrayList<>(unusedUrls.size());
+            for (String url : unusedUrls) {
+                unusedEndpoints.add(key.withUrl(url));
+            }
+            healthProber.unregister(unusedEndpoints);
+        }
+    }
+
+    private static boolean isHealthProbed(ConnectPlan connectPlan) {
+        return connectPlan.getConfiguration().getHealthProbeIntervalMillis() != Configuration.HEALTH_PROBING_DISABLED;
+    }
+
+    /**
+     * Standby connections are kept for the next failover candidate: only the failover connection
+     * type has a fixed one, the others spread the connections over the URLs anyway.
+     */
+    private static boolean isStandbyEnabled(ConnectPlan connectPlan) {
+        return connectPlan.getConnectionType() == ConnectionType.FAILOVER
+                && connectPlan.getConfiguration().getStandbyConnections() != Configuration.STANDBY_DISABLED;
+    }
+
+    private ConnectPlan newConnectPlan(String factoryConfiguration, Properties properties, PropertiesKey key)
+            throws SQLException, ConnectionURLSyntaxException {
 
         try {
             LOGGER.trace("factoryConfiguration={}", factoryConfiguration);
-            LOGGER.trace("properties={}", properties);
 
             String[] connectionTypeAndTheRest = factoryConfiguration.split(":", 2);
 
@@ -75,7 +235,7 @@ final class ConnectionFactory {
             }
 
 
-            String connectionType = connectionTypeAndTheRest[0].toLowerCase(Locale.ENGLISH);
+            ConnectionType connectionType = ConnectionType.forName(connectionTypeAndTheRest[0]);
 
             String rest = connectionTypeAndTheRest[1];
 
@@ -95,7 +255,9 @@ final class ConnectionFactory {
             String urlTemplate = rest.substring(beginOfURLTemplate + TEMPLATE_PREFIX.length());
             LOGGER.debug("URL Template extracted from connection string: {}", urlTemplate);
 
-            return newConnection(connectionType, configurationSection, urlTemplate, properties);
+            Configuration configuration = parseConfiguration(configurationSection, properties);
+
+            return newConnectPlan(connectionType, configuration, urlTemplate, properties, key);
 
         } catch (MisconfigurationException mce) {
             throw new SQLException("Configuration error: " + mce.getMessage(), mce);
@@ -104,63 +266,140 @@ final class ConnectionFactory {
         }
     }
 
-    // Visible for testing
-    private Connection newConnection(String connectionTypeName,
-                                     String configurationSection,
-                                     String delegateUrlPattern,
-                                     Properties properties)
-            throws SQLException, MisconfigurationException, URLTemplateException, ConnectionURLSyntaxException {
+    private Configuration parseConfiguration(String configurationSection, Properties properties)
+            throws MisconfigurationException {
+
+        Object event = events.beginConfigurationParse();
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            Configuration configuration = configurationFactory.newConfiguration(configurationSection, properties);
+            success = true;
+            return configuration;
+        } finally {
+            statistics.recordConfigurationParse(System.nanoTime() - startNanos);
+            events.endConfigurationParse(event, success);
+        }
+    }
 
+    private ConnectPlan newConnectPlan(ConnectionType connectionType, Configuration configuration,
+                                       String urlTemplate, Properties properties, PropertiesKey key)
+            throws URLTemplateException, MisconfigurationException {
 
-        if (connectionTypeName == null || connectionTypeName.trim().equals("")) {
-            throw new ConnectionURLSyntaxException("connection type must be specified");
+        Object event = events.beginTemplateEvaluation();
+        long startNanos = System.nanoTime();
+        UrlTemplate compiledTemplate;
+        long revision;
+        List<String> urls = null;
+        try {
+            compiledTemplate = urlTemplateParser.compile(urlTemplate);
+            // read before the URLs: if they change meanwhile, the plan is recreated on next use
+            revision = compiledTemplate.getRevision();
+            urls = compiledTemplate.getUrls(properties,
+                    configuration.getMaxUrlCount(), configuration.getMaxTemplateOutputLength());
+        } finally {
+            statistics.recordTemplateEvaluation(System.nanoTime() - startNanos);
+            events.endTemplateEvaluation(event, urls);
         }
 
-        Configuration configuration = configurationFactory.newConfiguration(configurationSection, properties);
+        EndpointAttributes endpointAttributes = EndpointAttributes.parse(urls, compiledTemplate.mayYieldAttributes());
 
+        return new ConnectPlan(connectionType, configuration, endpointAttributes,
+                endpointAttributes.getWeights(configuration.getWeights()), compiledTemplate, revision, key);
+    }
 
-        List<String> urls = urlTemplateParser.getUrls(delegateUrlPattern, properties);
+    private Connection connectToPlan(ConnectPlan connectPlan, Properties properties) throws SQLException {
+        LOGGER.trace("properties={}", properties);
 
-        switch (connectionTypeName.toLowerCase(Locale.ENGLISH)) {
-            case LOAD_BALANCE:
-                urls = new LinkedList<>(urls);
-                Collections.shuffle(urls);
-                LOGGER.debug("Connection type is '{}', shuffled URL list: {}", connectionTypeName, urls);
+        ConnectionType connectionType = connectPlan.getConnectionType();
 
-                break;
+        Connection connection = connect(() -> connectionType.orderUrls(connectPlan, properties),
+                properties, connectPlan);
+        if (connectionType.isReadWriteSplitting()) {
+            return new ReadWriteConnection(connection, () -> connectToReplica(connectPlan, properties),
+                    connectPlan.getConfiguration().getCircuitBreakerCoolDownMillis());
+        }
 
-            case FAILOVER:
-                LOGGER.debug("Connection type is '{}', using user-defined URL order: {}", connectionTypeName, urls);
-                // no-op, we use the original URL order
-                break;
+        return connection;
+    }
 
-            default:
-                throw ConnectionURLSyntaxException.forMessage("connection type must be "
-                        + "'%s' or '%s', but was: '%s'", LOAD_BALANCE, FAILOVER, connectionTypeName);
+    /**
+     * Connects to one of the replicas of a read/write splitting plan, in random order.
+     *
+     * @return the replica connection, or {@code null} if the plan has no replicas
+     */
+    private Connection connectToReplica(ConnectPlan connectPlan, Properties properties) throws SQLException {
+        if (connectPlan.getReplicaUrls().isEmpty()) {
+            return null;
         }
 
-        return connect(urls, properties, configuration);
+        return connect(() -> {
+            List<String> urls = new ArrayList<>(connectPlan.getReplicaUrls());
+            Collections.shuffle(urls, ThreadLocalRandom.current());
+            LOGGER.debug("Shuffled replica URL list: {}", urls);
+            return urls;
+        }, properties, connectPlan);
+    }
 
+    /**
+     * Connects to the URLs supplied, and if reconnection is enabled, returns a
+     * {@link ReconnectingConnection} supplying the URLs again to reconnect.
+     */
+    private Connection connect(Supplier<List<String>> urlSupplier, Properties properties,
+                               ConnectPlan connectPlan) throws SQLException {
+
+        Connection connection = connect(urlSupplier.get(), properties, connectPlan);
+        if (connectPlan.getConfiguration().isReconnect()) {
+            try {
+                return new ReconnectingConnection(connection,
+                        () -> connect(urlSupplier.get(), properties, connectPlan));
+            } catch (SQLException | RuntimeException e) {
+                // the wrapper reads the session state of the connection, which might fail
+                closeAfterFailure(connection, e);
+                throw e;
+            }
+        }
+
+        return connection;
+    }
+
+    private static void closeAfterFailure(Connection connection, Exception failure) {
+        try {
+            connection.close();
+        } catch (SQLException | RuntimeException closeException) {
+            failure.addSuppressed(closeException);
+        }
     }
 
     private Connection connect(List<String> allUrls,
                                Properties properties,
-                               Configuration configuration) throws SQLException {
+                               ConnectPlan connectPlan) throws SQLException {
+
+        final Configuration configuration = connectPlan.getConfiguration();
 
         final int attemptCount = getAttemptCount(configuration, allUrls.size());
         LOGGER.debug("Will attempt {} URLs out of {}", attemptCount, allUrls.size());
 
-        final List<String> urlsToTry = allUrls.subList(0, attemptCount);
-
-        List<SQLException> caughtExceptions = new LinkedList<>();
-        for (String url : urlsToTry) {
-            try {
-                LOGGER.info("Connecting to URL: {}", url);
-                return DriverManager.getConnection(url, properties);
-
-            } catch (SQLException sqlException) {
-                LOGGER.warn("Exception connecting to URL: " + url, sqlException);
-                caughtExceptions.add(sqlException);
+        final List<String> urlsToTry = endpointRegistry
+                .orderByAvailability(allUrls, connectPlan.getPropertiesKey(), configuration, healthProber.getSnapshot())
+                .subList(0, attemptCount);
+
+        List<SQLException> caughtExceptions = new ArrayList<>();
+        ConnectProgress progress = new ConnectProgress(configuration);
+        if (configuration.isHedgingEnabled() && urlsToTry.size() > 1 || configuration.isTimeoutEnabled()) {
+            Connection connection = hedgedConnector.connect(
+                    (url, props) -> attemptConnection(url, props, connectPlan, progress), urlsToTry, properties,
+                    configuration, caughtExceptions);
+            if (connection != null) {
+                return connection;
+            }
+        } else {
+            for (String url : urlsToTry) {
+                try {
+                    return attemptConnection(url, properties, connectPlan, progress);
+                } catch (SQLException sqlException) {
+                    caughtExceptions.add(sqlException);
+                }
             }
         }
 
@@ -182,6 +421,200 @@ final class ConnectionFactory {
         throw sqlException;
     }
 
+    /**
+     * Attempts to connect to a URL, reusing a pooled connection if possible.
+     *
+     * @param progress the state of the connect the attempt is part of
+     */
+    private Connection attemptConnection(String url, Properties properties, ConnectPlan connectPlan,
+                                         ConnectProgress progress) throws SQLException {
+        final Configuration configuration = connectPlan.getConfiguration();
+
+        IdleConnectionPool pool = null;
+        if (configuration.isPooled()) {
+            pool = connectionPools.get(url, properties);
+
+            Connection pooledConnection = pool.borrow(configuration);
+            if (pooledConnection != null) {
+                LOGGER.debug("Reusing pooled connection to URL: {}", url);
+                return track(pooledConnection, url, connectPlan);
+            }
+        }
+
+        // a standby connection is only taken when failing over
+        boolean standbyAllowed = progress.attemptFailed && isStandbyEnabled(connectPlan);
+        Connection connection;
+        try {
+            connection = openConnection(url, properties, configuration, progress, standbyAllowed);
+        } catch (SQLException sqlException) {
+            progress.attemptFailed = true;
+            throw sqlException;
+        }
+        if (pool != null) {
+            connection = pool.wrap(connection, configuration);
+        }
+
+        return track(connection, url, connectPlan);
+    }
+
+    private Connection openConnection(String url, Properties properties, Configuration configuration,
+                                      ConnectProgress progress, boolean standbyAllowed) throws SQLException {
+        EndpointState endpointState = endpointRegistry.get(url);
+        if (!configuration.isAdmissionControlEnabled()) {
+            return openConnection(endpointState, properties, configuration, progress, standbyAllowed);
+        }
+
+        EndpointAdmission admission = endpointState.getAdmission();
+        admit(admission, url, configuration);
+        try {
+            return openConnection(endpointState, properties, configuration, progress, standbyAllowed);
+        } finally {
+            admission.release();
+        }
+    }
+
+    /**
+     * Waits for the admission of a connect to the URL.
+     *
+     * @throws SQLException if the URL is saturated, so that the next URL is attempted
+     */
+    private static void admit(EndpointAdmission admission, String url, Configuration configuration)
+            throws SQLException {
+        try {
+            if (!admission.admit(configuration)) {
+                LOGGER.debug("Connect limits of URL reached: {}", url);
+                throw new SQLTransientConnectionException(String.format(
+                        "Connect limits of URL %s reached: connect was not admitted", url), "08004");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the admission of a connect to " + url, "08001", ie);
+        }
+    }
+
+    /**
+     * Opens a connection to the endpoint, or takes a standby connection to it if allowed: either
+     * way, the attempt is accounted for the endpoint, in the metrics and in the events.
+     */
+    private Connection openConnection(EndpointState endpointState, Properties properties, Configuration configuration,
+                                      ConnectProgress progress, boolean standbyAllowed) throws SQLException {
+        String url = endpointState.getUrl();
+
+        CompletableFuture<Boolean> trial = null;
+        if (endpointState.isSuspect(configuration.getTrialFailureThreshold())) {
+            trial = endpointRegistry.tryStartTrial(endpointState);
+            if (trial == null) {
+                awaitTrial(endpointState, progress.getRemainingNanos(configuration));
+            } else {
+                LOGGER.debug("Trial connection attempt to recovering URL: {}", url);
+            }
+        }
+
+        EndpointMetrics metrics = endpointState.getMetrics();
+        metrics.attemptStarted();
+        Object event = events.beginConnectAttempt();
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        SQLException failure = null;
+        try {
+            Connection connection = connectOrTakeStandby(url, properties, configuration, standbyAllowed);
+            endpointState.recordSuccess(System.nanoTime() - startNanos);
+            success = true;
+            return connection;
+
+        } catch (SQLException sqlException) {
+            failure = sqlException;
+            if (!isCausedByProperties(sqlException)) {
+                endpointState.recordFailure(System.nanoTime());
+            }
+
+            // the exception is attached to the aggregated one as suppressed: no stack trace here
+            LOGGER.warn("Exception connecting to URL: {}: {}", url, sqlException.toString());
+            LOGGER.debug("Exception connecting to URL: " + url, sqlException);
+            throw sqlException;
+        } finally {
+            long connectNanos = System.nanoTime() - startNanos;
+            metrics.attemptFinished(success, connectNanos);
+            events.endConnectAttempt(event, url, success, failure);
+            if (ConnectionListeners.ENABLED) {
+                ConnectionListeners.fireAttemptFinished(url, success, failure, connectNanos);
+            }
+            if (trial != null) {
+                endpointRegistry.endTrial(endpointState, trial, success);
+            }
+        }
+    }
+
+    /**
+     * Tells if the connect failed because of the properties, e.g. invalid credentials, rather than
+     * the endpoint: as the state of the endpoint is shared by all properties, such failures are not
+     * held against it, so that the circuit breaker does not open for the other users of the endpoint.
+     */
+    private static boolean isCausedByProperties(SQLException sqlException) {
+        String sqlState = sqlException.getSQLState();
+        return sqlState != null && sqlState.startsWith(INVALID_AUTHORIZATION_CLASS);
+    }
+
+    private Connection connectOrTakeStandby(String url, Properties properties, Configuration configuration,
+                                            boolean standbyAllowed) throws SQLException {
+        if (standbyAllowed) {
+            Connection connection = standbyConnections.take(url, properties, configuration);
+            if (connection != null) {
+                LOGGER.info("Using standby connection to URL: {}", url);
+                return connection;
+            }
+        }
+
+        LOGGER.info("Connecting to URL: {}", url);
+        return delegateDrivers.connect(url, properties);
+    }
+
+    /**
+     * Waits for the outcome of the trial connection attempt in flight to a suspect endpoint:
+     * reached only if all endpoints attempted earlier failed. The wait is bounded by the timeouts
+     * of the connect; without timeouts, the endpoint is skipped instead of waiting.
+     *
+     * @param remainingNanos the time left until the deadline of the connect, or {@link ConnectProgress#NO_DEADLINE}
+     * @throws SQLException if the trial failed, or did not complete in time, or the wait was interrupted
+     */
+    private static void awaitTrial(EndpointState endpointState, long remainingNanos) throws SQLException {
+        CompletableFuture<Boolean> trial = endpointState.getTrial();
+        if (trial == null) {
+            return;
+        }
+
+        if (remainingNanos == ConnectProgress.NO_DEADLINE) {
+            throw new SQLTransientConnectionException(String.format(
+                    "Trial connection attempt to recovering URL %s in flight: skipping it", endpointState.getUrl()),
+                    "08004");
+        }
+
+        LOGGER.debug("Waiting for the trial connection attempt to recovering URL: {}", endpointState.getUrl());
+        try {
+            if (!trial.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS)) {
+                throw new SQLException(String.format(
+                        "Trial connection attempt to recovering URL %s failed", endpointState.getUrl()), "08001");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the trial connection attempt to "
+                    + endpointState.getUrl(), "08001", ie);
+        } catch (ExecutionException ee) {
+            throw new SQLException("Trial connection attempt failed", "08001", ee.getCause());
+        } catch (TimeoutException te) {
+            throw new SQLTimeoutException(String.format(
+                    "Timed out waiting for the trial connection attempt to recovering URL %s",
+                    endpointState.getUrl()), "08001", te);
+        }
+    }
+
+    private Connection track(Connection connection, String url, ConnectPlan connectPlan) {
+        if (connectPlan.isTrackingConnections()) {
+            return new TrackedConnection(connection, endpointRegistry.get(url));
+        }
+        return connection;
+    }
+
     private int getAttemptCount(Configuration configuration, int urlCount) {
         final int attemptCount;
 
@@ -203,4 +636,44 @@ final class ConnectionFactory {
         return attemptCount;
     }
 
+
+    /**
+     * The state shared by the attempts of a single connect.
+     */
+    private static final class ConnectProgress {
+
+        static final long NO_DEADLINE = Long.MAX_VALUE;
+
+        private final long startNanos = System.nanoTime();
+        private final long connectTimeoutNanos;
+
+        // set once an attempt to a URL failed
+        private volatile boolean attemptFailed;
+
+        private ConnectProgress(Configuration configuration) {
+            if (configuration.getConnectTimeoutMillis() == Configuration.NO_TIMEOUT) {
+                this.connectTimeoutNanos = NO_DEADLINE;
+            } else {
+                this.connectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getConnectTimeoutMillis());
+            }
+        }
+
+        /**
+         * Returns the time left for an attempt starting now: until the end of the connect timeout,
+         * or of the attempt timeout, whichever comes first.
+         *
+         * @return the remaining time in nanoseconds, or {@link #NO_DEADLINE} if there are no timeouts
+         */
+        long getRemainingNanos(Configuration configuration) {
+            long remainingNanos = NO_DEADLINE;
+            if (connectTimeoutNanos != NO_DEADLINE) {
+                remainingNanos = connectTimeoutNanos - (System.nanoTime() - startNanos);
+            }
+            if (configuration.getAttemptTimeoutMillis() != Configuration.NO_TIMEOUT) {
+                remainingNanos = Math.min(remainingNanos,
+                        TimeUnit.MILLISECONDS.toNanos(configuration.getAttemptTimeoutMillis()));
+            }
+            return remainingNanos;
+        }
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+/**
+ * Listener of the connects of the driver, discovered with {@link java.util.ServiceLoader}: list the
+ * implementations in {@code META-INF/services/com.github.robin.jdbc.ConnectionListener}.
+ * The listeners are loaded once, when the driver is first used.
+ *
+ * <p>The callbacks run synchronously on the thread connecting, hence they must be quick and must
+ * not block. Exceptions thrown by a callback are logged and ignored. The {@link ConnectionEvent}
+ * passed is reused for the next callback on the same thread: it must not be retained.</p>
+ */
+public interface ConnectionListener {
+
+    /**
+     * Called when a connect call of the driver or a data source starts, before the robin URL is
+     * resolved: the connection type and the URLs are not known yet.
+     *
+     * @param event the event, with no properties set
+     */
+    default void connectStarted(ConnectionEvent event) {
+        // no-op
+    }
+
+    /**
+     * Called when a connection attempt to a delegate URL finishes; possibly on a background thread,
+     * if the attempts are hedged or time out.
+     *
+     * @param event the URL, the outcome and the duration of the attempt
+     */
+    default void attemptFinished(ConnectionEvent event) {
+        // no-op
+    }
+
+    /**
+     * Called when a connect call returns a connection.
+     *
+     * @param event the connection type, the number of URLs and the duration of the connect call
+     */
+    default void connectSucceeded(ConnectionEvent event) {
+        // no-op
+    }
+
+    /**
+     * Called when a connect call fails, including when the robin URL cannot be resolved.
+     *
+     * @param event the connection type and the number of URLs, unless the robin URL could not be
+     *              resolved, the failure and the duration of the connect call
+     */
+    default void connectFailed(ConnectionEvent event) {
+        // no-op
+    }
+
+    /**
+     * Called when a connection is closed or aborted, if the connections are wrapped to track the open
+     * connections: see the {@code trackConnections} setting.
+     *
+     * @param event the URL of the connection and the time it was open for
+     */
+    default void connectionClosed(ConnectionEvent event) {
+        // no-op
+    }
+}
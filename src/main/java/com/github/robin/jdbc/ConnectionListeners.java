@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Dispatches the callbacks of the {@link ConnectionListener}s discovered by the {@link ServiceLoader}.
+ *
+ * <p>Callers check {@link #ENABLED} before calling the {@code fire} methods: as it is a constant,
+ * the JIT compiler removes the dispatch entirely if no listener is registered.</p>
+ */
+final class ConnectionListeners {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionListeners.class);
+
+    private static final ConnectionListener[] LISTENERS = load();
+
+    static final boolean ENABLED = LISTENERS.length > 0;
+
+    private static final ThreadLocal<ConnectionEvent> EVENTS = ThreadLocal.withInitial(ConnectionEvent::new);
+
+    private ConnectionListeners() {
+        throw new AssertionError("static utility class");
+    }
+
+    private static ConnectionListener[] load() {
+        List<ConnectionListener> listeners = new ArrayList<>();
+
+        Iterator<ConnectionListener> iterator = ServiceLoader.load(ConnectionListener.class).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                ConnectionListener listener = iterator.next();
+                listeners.add(listener);
+                LOGGER.info("Registered connection listener: {}", listener.getClass().getName());
+            } catch (ServiceConfigurationError sce) {
+                LOGGER.error("Could not load connection listener", sce);
+            }
+        }
+
+        return listeners.toArray(new ConnectionListener[0]);
+    }
+
+    static void fireConnectStarted() {
+        ConnectionEvent event = EVENTS.get();
+        for (ConnectionListener listener : LISTENERS) {
+            try {
+                listener.connectStarted(event.populate(null, 0, null, false, null, 0L));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Connection listener failed: {}", listener, e);
+            }
+        }
+    }
+
+    static void fireAttemptFinished(String url, boolean success, Exception failure, long durationNanos) {
+        ConnectionEvent event = EVENTS.get();
+        for (ConnectionListener listener : LISTENERS) {
+            try {
+                listener.attemptFinished(event.populate(null, 0, url, success, failure, durationNanos));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Connection listener failed: {}", listener, e);
+            }
+        }
+    }
+
+    static void fireConnectSucceeded(ConnectPlan connectPlan, long durationNanos) {
+        ConnectionEvent event = EVENTS.get();
+        for (ConnectionListener listener : LISTENERS) {
+            try {
+                listener.connectSucceeded(event.populate(connectPlan.getConnectionType().name,
+                        connectPlan.getUrls().size(), null, true, null, durationNanos));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Connection listener failed: {}", listener, e);
+            }
+        }
+    }
+
+    // the plan is null if it could not be resolved
+    static void fireConnectFailed(ConnectPlan connectPlan, Exception failure, long durationNanos) {
+        String connectionType = null;
+        int urlCount = 0;
+        if (connectPlan != null) {
+            connectionType = connectPlan.getConnectionType().name;
+            urlCount = connectPlan.getUrls().size();
+        }
+
+        ConnectionEvent event = EVENTS.get();
+        for (ConnectionListener listener : LISTENERS) {
+            try {
+                listener.connectFailed(event.populate(connectionType, urlCount, null, false, failure, durationNanos));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Connection listener failed: {}", listener, e);
+            }
+        }
+    }
+
+    static void fireConnectionClosed(String url, long openNanos) {
+        ConnectionEvent event = EVENTS.get();
+        for (ConnectionListener listener : LISTENERS) {
+            try {
+                listener.connectionClosed(event.populate(null, 0, url, true, null, openNanos));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Connection listener failed: {}", listener, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process-wide registry of the {@link IdleConnectionPool}s: one per delegate URL and
+ * connection properties, as connections opened with different properties (e.g. different
+ * users) cannot be shared.
+ *
+ * <p>Once the first pool is created, the expired idle connections of all pools are evicted every
+ * {@value #EVICTION_INTERVAL_MILLIS} milliseconds in the background, so that they are closed even
+ * if no connection is borrowed from their pool any more.</p>
+ */
+final class ConnectionPools {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPools.class);
+
+    static final long EVICTION_INTERVAL_MILLIS = 30000L;
+
+    private static final ConnectionPools INSTANCE = new ConnectionPools();
+
+    private final ConcurrentMap<PropertiesKey, IdleConnectionPool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
+    static ConnectionPools getInstance() {
+        return INSTANCE;
+    }
+
+    IdleConnectionPool get(String url, Properties properties) {
+        IdleConnectionPool pool = pools.computeIfAbsent(
+                new PropertiesKey(url, properties), key -> new IdleConnectionPool(url));
+
+        if (!evictionScheduled.get() && evictionScheduled.compareAndSet(false, true)) {
+            // closing connections might block: the scheduler only hands the eviction over
+            RobinExecutors.getScheduler().scheduleWithFixedDelay(
+                    () -> RobinExecutors.getConnectExecutor().execute(this::evictExpired),
+                    EVICTION_INTERVAL_MILLIS, EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return pool;
+    }
+
+    /**
+     * Closes the expired idle connections of all pools.
+     */
+    void evictExpired() {
+        try {
+            pools.values().forEach(IdleConnectionPool::evictExpired);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Eviction of the expired idle connections failed", e);
+        }
+    }
+
+    /**
+     * Closes the idle connections of all pools.
+     */
+    void clear() {
+        pools.values().forEach(IdleConnectionPool::clear);
+    }
+}
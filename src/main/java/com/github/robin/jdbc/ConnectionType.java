@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.ConnectionURLSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The connection types supported by the driver: each type defines the order
+ * in which the URLs of a {@link ConnectPlan} are attempted.
+ */
+enum ConnectionType {
+
+    LOAD_BALANCE("loadbalance") {
+        @Override
+        List<String> orderUrls(ConnectPlan plan, Properties properties) {
+            List<String> urls = new ArrayList<>(plan.getUrls());
+            Collections.shuffle(urls, ThreadLocalRandom.current());
+            LOGGER.debug("Connection type is '{}', shuffled URL list: {}", this.name, urls);
+
+            return urls;
+        }
+    },
+
+    FAILOVER("failover") {
+        @Override
+        List<String> orderUrls(ConnectPlan plan, Properties properties) {
+            List<String> urls = plan.getUrls();
+            LOGGER.debug("Connection type is '{}', using user-defined URL order: {}", this.name, urls);
+
+            // no-op, we use the original URL order
+            return urls;
+        }
+    },
+
+    FASTEST("fastest") {
+        @Override
+        List<String> orderUrls(ConnectPlan plan, Properties properties) {
+            List<String> urls = EndpointRegistry.getInstance().orderByScore(plan.getUrls());
+            LOGGER.debug("Connection type is '{}', URL list ordered by connect time: {}", this.name, urls);
+
+            return urls;
+        }
+    },
+
+    ROUND_ROBIN("roundrobin") {
+        @Override
+        List<String> orderUrls(ConnectPlan plan, Properties properties) {
+            List<String> urls = new RotatedList<>(plan.getUrls(), plan.nextRoundRobinIndex());
+            LOGGER.debug("Connection type is '{}', starting with URL: {}", this.name, urls.get(0));
+
+            return urls;
+        }
+    },
+
+    WEIGHTED("weighted") {
+        @Override
+        List<String> orderUrls(ConnectPlan plan, Properties properties) {
+            List<String> urls = new RotatedList<>(plan.getUrls(), plan.nextWeightedIndex());
+            LOGGER.debug("Connection type is '{}', starting with URL: {}", this.name, urls.get(0));
+
+            return urls;
+        }
+    },
+
+    /**
+     * Power of two choices: of two randomly selected URLs, the one with fewer open connections
+     * is attempted first.
+     */
+    LEAST_CONNECTIONS("leastconn") {
+        @Override
+        List<String> orderUrls(ConnectPlan plan, Properties properties) {
+            List<String> urls = plan.getUrls();
+            final int size = urls.size();
+            if (size < 2) {
+                return urls;
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(size);
+            int second = random.nextInt(size - 1);
+            if (second >= first) {
+                second++;
+            }
+
+            EndpointRegistry endpointRegistry = EndpointRegistry.getInstance();
+            int selected = first;
+            if (endpointRegistry.getOpenConnections(urls.get(second))
+                    < endpointRegistry.getOpenConnections(urls.get(first))) {
+                selected = second;
+            }
+
+            List<String> orderedUrls = new RotatedList<>(urls, selected);
+            LOGGER.debug("Connection type is '{}', starting with URL: {}", this.name, orderedUrls.get(0));
+
+            return orderedUrls;
+        }
+
+        @Override
+        boolean requiresConnectionTracking() {
+            return true;
+        }
+    },
+
+    /**
+     * The value of the {@value #ROUTING_KEY_PROPERTY} connection property is mapped to a URL with
+     * a consistent-hash ring: the same key is always routed to the same URL, failing over to the
+     * next URL of the ring.
+     */
+    AFFINITY("affinity") {
+        @Override
+        List<String> orderUrls(ConnectPlan plan, Properties properties) {
+            String routingKey = null;
+            if (properties != null) {
+                routingKey = properties.getProperty(ROUTING_KEY_PROPERTY);
+            }
+
+            if (routingKey == null) {
+                LOGGER.debug("Connection type is '{}', but no {} property is specified: "
+                        + "using user-defined URL order", this.name, ROUTING_KEY_PROPERTY);
+                return plan.getUrls();
+            }
+
+            List<String> urls = plan.getHashRing().getUrls(routingKey);
+            LOGGER.debug("Connection type is '{}', URL list for routing key '{}': {}", this.name, routingKey, urls);
+
+            return urls;
+        }
+    },
+
+    /**
+     * Read/write splitting: connects to the primary URLs in the user-defined order, and returns a
+     * {@link ReadWriteConnection} switching to a randomly selected replica while read-only.
+     */
+    READ_WRITE("readwrite") {
+        @Override
+        List<String> orderUrls(ConnectPlan plan, Properties properties) {
+            List<String> urls = plan.getPrimaryUrls();
+            LOGGER.debug("Connection type is '{}', primary URL list: {}", this.name, urls);
+
+            return urls;
+        }
+
+        @Override
+        boolean isReadWriteSplitting() {
+            return true;
+        }
+    },
+
+    /**
+     * Zone-aware routing: the URLs are shuffled within their tier, and the tiers are attempted in
+     * the order of the preferred zones, so that the next zone is only attempted once the URLs of
+     * the preferred zone are exhausted or unavailable.
+     */
+    ZONED("zoned") {
+        @Override
+        List<String> orderUrls(ConnectPlan plan, Properties properties) {
+            List<String> urls = new ArrayList<>(plan.getUrls().size());
+            for (List<String> tier : plan.getTiers()) {
+                int tierStart = urls.size();
+                urls.addAll(tier);
+                Collections.shuffle(urls.subList(tierStart, urls.size()), ThreadLocalRandom.current());
+            }
+            LOGGER.debug("Connection type is '{}', URL list shuffled within {} tiers: {}",
+                    this.name, plan.getTiers().size(), urls);
+
+            return urls;
+        }
+    };
+
+    /**
+     * Connection property holding the routing key of the affinity connection type. The property
+     * only selects among the URLs: URL templates must not depend on it, as connect plans are
+     * shared between routing keys.
+     */
+    static final String ROUTING_KEY_PROPERTY = "routingKey";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionType.class);
+
+    //CHECKSTYLE.OFF: VisibilityModifier
+    protected final String name;
+    //CHECKSTYLE.ON: VisibilityModifier
+
+    ConnectionType(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the URLs of the plan in the order they should be attempted.
+     *
+     * @param plan the plan to connect with
+     * @param properties the properties passed to the connect call
+     * @return the list of URLs in attempt order; never modified by the caller
+     */
+    abstract List<String> orderUrls(ConnectPlan plan, Properties properties);
+
+    boolean requiresConnectionTracking() {
+        return false;
+    }
+
+    boolean isReadWriteSplitting() {
+        return false;
+    }
+
+    static ConnectionType forName(String connectionTypeName) throws ConnectionURLSyntaxException {
+
+        if (connectionTypeName == null || connectionTypeName.trim().equals("")) {
+            throw new ConnectionURLSyntaxException("connection type must be specified");
+        }
+
+        String normalizedName = connectionTypeName.toLowerCase(Locale.ENGLISH);
+        for (ConnectionType connectionType : values()) {
+            if (connectionType.name.equals(normalizedName)) {
+                return connectionType;
+            }
+        }
+
+        throw ConnectionURLSyntaxException.forMessage("connection type must be one of "
+                + "'%s', but was: '%s'", getNames("', '"), connectionTypeName);
+    }
+
+    static String getNames(String separator) {
+        StringJoiner names = new StringJoiner(separator);
+        for (ConnectionType connectionType : values()) {
+            names.add(connectionType.name);
+        }
+        return names.toString();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Opens connections to the delegate URLs with the {@link Driver} resolved once per
+ * {@code jdbc:<subprotocol>:} prefix, instead of having {@link DriverManager} walk all registered
+ * drivers on each attempt.
+ *
+ * <p>The driver is resolved with {@link DriverManager#getDriver(String)}, hence with the same
+ * class-loader visibility rules. If the resolution fails, or the cached driver does not accept
+ * a URL, the connection is opened via {@link DriverManager} as before. Caching can be disabled by
+ * setting the system property {@value #CACHE_DRIVERS_SYSTEM_PROPERTY} to {@code false}, e.g. if
+ * drivers are deregistered and registered again at runtime.</p>
+ */
+final class DelegateDrivers {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DelegateDrivers.class);
+
+    static final String CACHE_DRIVERS_SYSTEM_PROPERTY = "com.github.robin.jdbc.cacheDelegateDrivers";
+
+    private static final DelegateDrivers INSTANCE = new DelegateDrivers(
+            Boolean.parseBoolean(System.getProperty(CACHE_DRIVERS_SYSTEM_PROPERTY, Boolean.TRUE.toString())));
+
+    private static final char PREFIX_SEPARATOR = ':';
+    private static final int PREFIX_SEPARATOR_COUNT = 2;
+
+    private final boolean cacheDrivers;
+    private final ConcurrentMap<String, Driver> drivers = new ConcurrentHashMap<>();
+
+    DelegateDrivers(boolean cacheDrivers) {
+        this.cacheDrivers = cacheDrivers;
+    }
+
+    static DelegateDrivers getInstance() {
+        return INSTANCE;
+    }
+
+    Connection connect(String url, Properties properties) throws SQLException {
+        if (cacheDrivers) {
+            Driver driver = getDriver(url);
+            if (driver != null) {
+                Connection connection = driver.connect(url, properties);
+                if (connection != null) {
+                    return connection;
+                }
+                LOGGER.debug("Cached driver {} does not accept URL: {}", driver, url);
+            }
+        }
+
+        return DriverManager.getConnection(url, properties);
+    }
+
+    /**
+     * Returns the driver for the URL.
+     *
+     * @return the cached driver, or {@code null} if the driver cannot be resolved
+     */
+    private Driver getDriver(String url) {
+        String prefix = getPrefix(url);
+        if (prefix == null) {
+            return null;
+        }
+
+        Driver driver = drivers.get(prefix);
+        if (driver == null) {
+            driver = resolveDriver(url);
+            if (driver != null) {
+                Driver previous = drivers.putIfAbsent(prefix, driver);
+                if (previous != null) {
+                    driver = previous;
+                }
+            }
+        }
+        return driver;
+    }
+
+    private static Driver resolveDriver(String url) {
+        try {
+            Driver driver = DriverManager.getDriver(url);
+            if (driver instanceof com.github.robin.jdbc.Driver) {
+                // nested robin URLs: the robin driver is looked up via DriverManager each time
+                return null;
+            }
+
+            LOGGER.debug("Resolved driver {} for URL: {}", driver.getClass().getName(), url);
+            return driver;
+
+        } catch (SQLException sqlException) {
+            LOGGER.debug("Could not resolve driver for URL: {}: {}", url, sqlException.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the {@code jdbc:<subprotocol>:} prefix of the URL, or {@code null} if there is none.
+     */
+    static String getPrefix(String url) {
+        int separatorIndex = -1;
+        for (int i = 0; i < PREFIX_SEPARATOR_COUNT; i++) {
+            separatorIndex = url.indexOf(PREFIX_SEPARATOR, separatorIndex + 1);
+            if (separatorIndex < 0) {
+                return null;
+            }
+        }
+        return url.substring(0, separatorIndex + 1);
+    }
+
+    int getCachedDriverCount() {
+        return drivers.size();
+    }
+
+    void clear() {
+        drivers.clear();
+    }
+}
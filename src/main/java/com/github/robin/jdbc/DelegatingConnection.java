@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Base class of the {@link Connection} wrappers returned by the driver: all calls are forwarded
+ * to the connection returned by {@link #getDelegate()}.
+ *
+ * <p>Metadata and other objects created by the delegate are returned as is: their
+ * {@code getConnection()} method returns the delegate connection, not the wrapper. So are the
+ * statements, unless a subclass wraps them by overriding
+ * {@link #createStatement(Class, StatementFactory)}.</p>
+ */
+//CHECKSTYLE.OFF: DesignForExtension
+abstract class DelegatingConnection implements Connection {
+
+    /**
+     * Returns the connection the calls are forwarded to.
+     *
+     * @return the delegate connection
+     * @throws SQLException if the delegate connection is not available
+     */
+    protected abstract Connection getDelegate() throws SQLException;
+
+    /**
+     * Creates a statement on a connection.
+     *
+     * @param <T> the type of the statement
+     */
+    @FunctionalInterface
+    protected interface StatementFactory<T extends Statement> {
+        T create(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Creates a statement on the delegate connection: all statement-creating methods call this
+     * method, so that subclasses can wrap the statements.
+     *
+     * @param type the statement interface
+     * @param factory creates the statement on the delegate connection
+     * @param <T> the type of the statement
+     * @return the statement
+     * @throws SQLException if the statement cannot be created
+     */
+    protected <T extends Statement> T createStatement(Class<T> type, StatementFactory<T> factory)
+            throws SQLException {
+        return factory.create(getDelegate());
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return createStatement(Statement.class, Connection::createStatement);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return createStatement(Statement.class, c -> c.createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+            throws SQLException {
+        return createStatement(Statement.class,
+                c -> c.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return createStatement(PreparedStatement.class, c -> c.prepareStatement(sql));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        return createStatement(PreparedStatement.class,
+                c -> c.prepareStatement(sql, resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+                                              int resultSetHoldability) throws SQLException {
+        return createStatement(PreparedStatement.class,
+                c -> c.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return createStatement(PreparedStatement.class, c -> c.prepareStatement(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return createStatement(PreparedStatement.class, c -> c.prepareStatement(sql, columnIndexes));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return createStatement(PreparedStatement.class, c -> c.prepareStatement(sql, columnNames));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return createStatement(CallableStatement.class, c -> c.prepareCall(sql));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        return createStatement(CallableStatement.class, c -> c.prepareCall(sql, resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+                                         int resultSetHoldability) throws SQLException {
+        return createStatement(CallableStatement.class,
+                c -> c.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        return getDelegate().nativeSQL(sql);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        getDelegate().setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return getDelegate().getAutoCommit();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        getDelegate().commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        getDelegate().rollback();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        getDelegate().close();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return getDelegate().isClosed();
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return getDelegate().getMetaData();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        getDelegate().setReadOnly(readOnly);
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        return getDelegate().isReadOnly();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        getDelegate().setCatalog(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        return getDelegate().getCatalog();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        getDelegate().setTransactionIsolation(level);
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        return getDelegate().getTransactionIsolation();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return getDelegate().getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        getDelegate().clearWarnings();
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return getDelegate().getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        getDelegate().setTypeMap(map);
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        getDelegate().setHoldability(holdability);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        return getDelegate().getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        return getDelegate().setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        return getDelegate().setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        getDelegate().rollback(savepoint);
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        getDelegate().releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        return getDelegate().createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        return getDelegate().createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        return getDelegate().createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        return getDelegate().createSQLXML();
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        return getDelegate().isValid(timeout);
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        getClientInfoDelegate().setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        getClientInfoDelegate().setClientInfo(properties);
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        return getDelegate().getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        return getDelegate().getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return getDelegate().createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return getDelegate().createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        getDelegate().setSchema(schema);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        return getDelegate().getSchema();
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        getDelegate().abort(executor);
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        getDelegate().setNetworkTimeout(executor, milliseconds);
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        return getDelegate().getNetworkTimeout();
+    }
+
+    private Connection getClientInfoDelegate() throws SQLClientInfoException {
+        try {
+            return getDelegate();
+        } catch (SQLClientInfoException sqlClientInfoException) {
+            throw sqlClientInfoException;
+        } catch (SQLException sqlException) {
+            throw new SQLClientInfoException(sqlException.getMessage(), sqlException.getSQLState(),
+                    sqlException.getErrorCode(), null, sqlException);
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return getDelegate().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || getDelegate().isWrapperFor(iface);
+    }
+}
+//CHECKSTYLE.ON: DesignForExtension
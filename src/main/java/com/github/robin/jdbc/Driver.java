@@ -45,7 +45,7 @@ public final class Driver implements java.sql.Driver {
         }
     }
 
-    private static final String JDBC_URL_PREFIX = "jdbc:robin:";
+    static final String JDBC_URL_PREFIX = "jdbc:robin:";
 
     private final ConnectionFactory connectionFactory;
 
@@ -74,13 +74,17 @@ public final class Driver implements java.sql.Driver {
         try {
             return connectionFactory.newConnection(factoryConfiguration, info);
         } catch (ConnectionURLSyntaxException ex) {
-            throw new SQLException(String.format("Invalid URL syntax: %s. "
-                    + "Expected format: %s<%s|%s>:[configuration]:%s<URL template>",
-                    ex.getMessage(), JDBC_URL_PREFIX,
-                    ConnectionFactory.FAILOVER, ConnectionFactory.LOAD_BALANCE, ConnectionFactory.TEMPLATE_PREFIX), ex);
+            throw toSQLException(ex);
         }
     }
 
+    static SQLException toSQLException(ConnectionURLSyntaxException ex) {
+        return new SQLException(String.format("Invalid URL syntax: %s. "
+                + "Expected format: %s<%s>:[configuration]:%s<URL template>",
+                ex.getMessage(), JDBC_URL_PREFIX, ConnectionType.getNames("|"),
+                ConnectionFactory.TEMPLATE_PREFIX), ex);
+    }
+
     public boolean acceptsURL(String url) throws SQLException {
         return url != null && url.startsWith(JDBC_URL_PREFIX);
     }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control of the connects to an endpoint: a cap on the connects in flight, and a token
+ * bucket limiting the rate of the connects, with a capacity of one second worth of tokens.
+ *
+ * <p>Like the circuit breaker, the state is shared by all robin URLs referencing the endpoint,
+ * while the limits are taken from the configuration of the robin URL asking. Connects not
+ * admitted immediately might wait in a bounded queue, for a bounded time.</p>
+ */
+final class EndpointAdmission {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicInteger connectsInFlight = new AtomicInteger();
+    private final AtomicInteger queuedConnects = new AtomicInteger();
+
+    // token bucket, guarded by this; starts full
+    private double tokens = Double.NaN;
+    private long refilledNanos;
+
+    int getConnectsInFlight() {
+        return connectsInFlight.get();
+    }
+
+    /**
+     * Admits a connect, waiting in the queue if the limits are reached and the queue is not full.
+     * An admitted connect must be {@linkplain #release() released} once it is completed.
+     *
+     * @param configuration the configuration of the robin URL connecting
+     * @return {@code true} if the connect is admitted
+     * @throws InterruptedException if interrupted while waiting in the queue
+     */
+    boolean admit(Configuration configuration) throws InterruptedException {
+        if (tryAdmit(configuration, System.nanoTime())) {
+            return true;
+        }
+
+        if (queuedConnects.incrementAndGet() > configuration.getMaxQueuedConnects()) {
+            queuedConnects.decrementAndGet();
+            return false;
+        }
+
+        try {
+            long deadlineNanos = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(configuration.getAdmissionTimeoutMillis());
+            long pollNanos = getTokenIntervalNanos(configuration);
+            synchronized (this) {
+                long nowNanos = System.nanoTime();
+                while (!tryAdmit(configuration, nowNanos)) {
+                    long remainingNanos = deadlineNanos - nowNanos;
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, Math.min(remainingNanos, pollNanos));
+                    nowNanos = System.nanoTime();
+                }
+                return true;
+            }
+        } finally {
+            queuedConnects.decrementAndGet();
+        }
+    }
+
+    /**
+     * Releases a connect slot, waking up the queued connects.
+     */
+    void release() {
+        connectsInFlight.decrementAndGet();
+        if (queuedConnects.get() > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    private boolean tryAdmit(Configuration configuration, long nowNanos) {
+        int maxConcurrentConnects = configuration.getMaxConcurrentConnects();
+        if (maxConcurrentConnects != Configuration.NO_LIMIT) {
+            int current;
+            do {
+                current = connectsInFlight.get();
+                if (current >= maxConcurrentConnects) {
+                    return false;
+                }
+            } while (!connectsInFlight.compareAndSet(current, current + 1));
+        } else {
+            connectsInFlight.incrementAndGet();
+        }
+
+        if (!tryTakeToken(configuration.getMaxConnectsPerSecond(), nowNanos)) {
+            connectsInFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized boolean tryTakeToken(int maxConnectsPerSecond, long nowNanos) {
+        if (maxConnectsPerSecond == Configuration.NO_LIMIT) {
+            return true;
+        }
+
+        if (Double.isNaN(tokens)) {
+            tokens = maxConnectsPerSecond;
+        } else {
+            double refill = (double) (nowNanos - refilledNanos) * maxConnectsPerSecond / NANOS_PER_SECOND;
+            tokens = Math.min(maxConnectsPerSecond, tokens + refill);
+        }
+        refilledNanos = nowNanos;
+
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    private static long getTokenIntervalNanos(Configuration configuration) {
+        int maxConnectsPerSecond = configuration.getMaxConnectsPerSecond();
+        if (maxConnectsPerSecond == Configuration.NO_LIMIT) {
+            return Long.MAX_VALUE;
+        }
+        return NANOS_PER_SECOND / maxConnectsPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointAdmission{"
+                + "connectsInFlight=" + connectsInFlight
+                + ", queuedConnects=" + queuedConnects
+                + '}';
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import com.github.robin.jdbc.config.MisconfigurationException;
+import com.github.robin.jdbc.config.URLTemplateException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The URLs yielded by a URL template, along with their attributes.
+ *
+ * <p>A URL can be prefixed with a block of comma-separated key-value pairs in square brackets,
+ * e.g. {@code [weight=3] jdbc:h2:mem:db}: the block is removed from the URL before it is
+ * connected to. If none of the URLs has attributes, the URL list is used as is.</p>
+ */
+final class EndpointAttributes {
+
+    static final String WEIGHT = "weight";
+
+    static final String ROLE = "role";
+
+    static final String PRIMARY_ROLE = "primary";
+
+    static final String ZONE = "zone";
+
+    private static final char BLOCK_START = '[';
+    private static final char BLOCK_END = ']';
+    private static final String ATTRIBUTE_SEPARATOR = ",";
+    private static final String KEY_VALUE_SEPARATOR = "=";
+
+    private final List<String> urls;
+
+    // attributes of the URL with the same index; null if none of the URLs has attributes
+    private final List<Map<String, String>> attributes;
+
+    private EndpointAttributes(List<String> urls, List<Map<String, String>> attributes) {
+        this.urls = urls;
+        this.attributes = attributes;
+    }
+
+    static EndpointAttributes parse(List<String> templateUrls) throws URLTemplateException {
+        return parse(templateUrls, true);
+    }
+
+    /**
+     * Parses the attribute blocks of the URLs.
+     *
+     * @param templateUrls the URLs yielded by the template
+     * @param mayHaveAttributes whether the template might yield attribute blocks: if not, the URLs
+     *          are not inspected, so that lazily generated URL lists are not materialized
+     * @return the URLs and their attributes
+     * @throws URLTemplateException if an attribute block is invalid
+     */
+    static EndpointAttributes parse(List<String> templateUrls, boolean mayHaveAttributes)
+            throws URLTemplateException {
+        if (!mayHaveAttributes) {
+            return new EndpointAttributes(templateUrls, null);
+        }
+
+        List<String> urls = null;
+        List<Map<String, String>> attributes = null;
+
+        final int size = templateUrls.size();
+        for (int i = 0; i < size; i++) {
+            String url = templateUrls.get(i);
+
+            if (!url.isEmpty() && url.charAt(0) == BLOCK_START) {
+                if (attributes == null) {
+                    urls = new ArrayList<>(templateUrls.subList(0, i));
+                    attributes = new ArrayList<>(Collections.nCopies(i, Collections.emptyMap()));
+                }
+
+                int blockEnd = url.indexOf(BLOCK_END);
+                if (blockEnd < 0) {
+                    throw URLTemplateException.forMessage("Attribute block is not closed: %s", url);
+                }
+
+                String strippedUrl = url.substring(blockEnd + 1).trim();
+                if (strippedUrl.isEmpty()) {
+                    throw URLTemplateException.forMessage("No URL after attribute block: %s", url);
+                }
+
+                attributes.add(parseBlock(url.substring(1, blockEnd), url));
+                urls.add(strippedUrl);
+            } else if (attributes != null) {
+                attributes.add(Collections.emptyMap());
+                urls.add(url);
+            }
+        }
+
+        if (attributes == null) {
+            return new EndpointAttributes(templateUrls, null);
+        }
+
+        return new EndpointAttributes(Collections.unmodifiableList(urls), Collections.unmodifiableList(attributes));
+    }
+
+    private static Map<String, String> parseBlock(String block, String url) throws URLTemplateException {
+        Map<String, String> attributes = new HashMap<>();
+        for (String attribute : block.split(ATTRIBUTE_SEPARATOR)) {
+            if (attribute.trim().isEmpty()) {
+                continue;
+            }
+
+            String[] keyAndValue = attribute.split(KEY_VALUE_SEPARATOR, 2);
+            if (keyAndValue.length != 2) {
+                throw URLTemplateException.forMessage(
+                        "Attribute '%s' is not a key-value pair separated by '%s': %s",
+                        attribute.trim(), KEY_VALUE_SEPARATOR, url);
+            }
+
+            attributes.put(keyAndValue[0].trim(), keyAndValue[1].trim());
+        }
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    List<String> getUrls() {
+        return urls;
+    }
+
+    boolean hasAttributes() {
+        return attributes != null;
+    }
+
+    /**
+     * Returns an attribute of a URL.
+     *
+     * @param index the index of the URL
+     * @param key the key of the attribute
+     * @return the value of the attribute, or {@code null} if the URL has no such attribute
+     */
+    String getAttribute(int index, String key) {
+        if (attributes == null) {
+            return null;
+        }
+        return attributes.get(index).get(key);
+    }
+
+    /**
+     * Returns the weights of the URLs: the {@value #WEIGHT} attribute of the URL if present,
+     * otherwise the configured weight with the same index, otherwise {@code 1}.
+     *
+     * @param configuredWeights the weights specified in the configuration
+     * @return the weights of the URLs, or {@code null} if all URLs have the same weight
+     * @throws MisconfigurationException if more weights are configured than URLs
+     * @throws URLTemplateException if a weight attribute is invalid
+     */
+    int[] getWeights(List<Integer> configuredWeights) throws MisconfigurationException, URLTemplateException {
+        final int size = urls.size();
+        if (configuredWeights.size() > size) {
+            throw MisconfigurationException.forMessage("%s weights are configured, but the URL template "
+                    + "yielded %s URLs only", configuredWeights.size(), size);
+        }
+        if (configuredWeights.isEmpty() && attributes == null) {
+            return null;
+        }
+
+        int[] weights = new int[size];
+        boolean uniform = true;
+        for (int i = 0; i < size; i++) {
+            String weightAttribute = getAttribute(i, WEIGHT);
+            if (weightAttribute != null) {
+                weights[i] = parseWeight(weightAttribute, urls.get(i));
+            } else if (i < configuredWeights.size()) {
+                weights[i] = configuredWeights.get(i);
+            } else {
+                weights[i] = 1;
+            }
+            uniform &= weights[i] == weights[0];
+        }
+
+        if (uniform) {
+            return null;
+        }
+        return weights;
+    }
+
+    private static int parseWeight(String weight, String url) throws URLTemplateException {
+        int value;
+        try {
+            value = Integer.parseInt(weight);
+        } catch (NumberFormatException nfe) {
+            value = 0;
+        }
+
+        if (value < 1 || value > Configuration.MAX_WEIGHT) {
+            throw URLTemplateException.forMessage("Attribute %s must be an integer between 1 and %s, "
+                    + "but was '%s': %s", WEIGHT, Configuration.MAX_WEIGHT, weight, url);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the connection attempts to an endpoint, exposed via {@link RobinStatisticsMXBean}.
+ * Updates are lock-free, so that recording does not contend between concurrent connects.
+ */
+final class EndpointMetrics {
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder attemptsInFlight = new LongAdder();
+
+    // successful attempts only: failures often take a timeout, distorting the distribution;
+    // allocated on the first success, as endpoints are tracked even if never connected to
+    private final AtomicReference<LatencyHistogram> connectTime = new AtomicReference<>();
+
+    void attemptStarted() {
+        attempts.increment();
+        attemptsInFlight.increment();
+    }
+
+    void attemptFinished(boolean success, long connectNanos) {
+        attemptsInFlight.decrement();
+        if (success) {
+            successes.increment();
+            getOrCreateConnectTime().record(connectNanos);
+        } else {
+            failures.increment();
+        }
+    }
+
+    long getAttempts() {
+        return attempts.sum();
+    }
+
+    long getSuccesses() {
+        return successes.sum();
+    }
+
+    long getFailures() {
+        return failures.sum();
+    }
+
+    long getAttemptsInFlight() {
+        return attemptsInFlight.sum();
+    }
+
+    private LatencyHistogram getOrCreateConnectTime() {
+        LatencyHistogram histogram = connectTime.get();
+        if (histogram == null) {
+            connectTime.compareAndSet(null, new LatencyHistogram());
+            histogram = connectTime.get();
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the percentile of the connect time of the successful attempts.
+     *
+     * @param quantile the quantile, between {@code 0.0} and {@code 1.0}
+     * @return the percentile in microseconds, or {@code 0} if no attempt succeeded
+     * @see LatencyHistogram#getPercentileMicros(double)
+     */
+    long getConnectTimePercentileMicros(double quantile) {
+        LatencyHistogram histogram = connectTime.get();
+        if (histogram == null) {
+            return 0L;
+        }
+        return histogram.getPercentileMicros(quantile);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide registry of the {@link EndpointState} of each delegate URL.
+ */
+final class EndpointRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EndpointRegistry.class);
+
+    private static final EndpointRegistry INSTANCE = new EndpointRegistry();
+
+    // probability of attempting a random endpoint first, so that slow endpoints are re-measured
+    static final double EXPLORATION_PROBABILITY = 0.05;
+
+    private final ConcurrentMap<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+
+    // number of trial connection attempts in flight, so that they are only looked up if any
+    private final AtomicInteger trialsInFlight = new AtomicInteger();
+
+    static EndpointRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    EndpointState get(String url) {
+        EndpointState endpointState = endpoints.get(url);
+        if (endpointState == null) {
+            endpointState = endpoints.computeIfAbsent(url, EndpointState::new);
+        }
+        return endpointState;
+    }
+
+    Collection<EndpointState> getEndpoints() {
+        return endpoints.values();
+    }
+
+    int getOpenConnections(String url) {
+        EndpointState endpointState = endpoints.get(url);
+        if (endpointState == null) {
+            return 0;
+        }
+        return endpointState.getOpenConnections();
+    }
+
+    void recordSuccess(String url, long connectNanos) {
+        get(url).recordSuccess(connectNanos);
+    }
+
+    void recordFailure(String url) {
+        get(url).recordFailure(System.nanoTime());
+    }
+
+    /**
+     * Starts a trial connection attempt to the endpoint: see {@link EndpointState#tryStartTrial()}.
+     *
+     * @param endpointState the suspect endpoint
+     * @return the outcome of the trial, or {@code null} if another trial is in flight
+     */
+    CompletableFuture<Boolean> tryStartTrial(EndpointState endpointState) {
+        CompletableFuture<Boolean> trial = endpointState.tryStartTrial();
+        if (trial != null) {
+            trialsInFlight.incrementAndGet();
+        }
+        return trial;
+    }
+
+    void endTrial(EndpointState endpointState, CompletableFuture<Boolean> trial, boolean success) {
+        trialsInFlight.decrementAndGet();
+        endpointState.endTrial(trial, success);
+    }
+
+    /**
+     * Moves the URLs with an open circuit breaker or a trial connection attempt in flight, and
+     * those found unhealthy by the last background probe, to the end of the list, keeping the
+     * order otherwise. Endpoints known to be dead or being tried are hence only attempted if all
+     * others fail.
+     *
+     * @param urls the URLs in attempt order
+     * @param propertiesKey the key of the properties to connect with: the health of the endpoints
+     *                      is looked up for them, with the URL of the endpoint
+     * @param configuration the configuration of the robin URL
+     * @param healthSnapshot the latest endpoint health snapshot
+     * @return the reordered list, or the very same list if all endpoints are available
+     */
+    List<String> orderByAvailability(List<String> urls, PropertiesKey propertiesKey, Configuration configuration,
+                                     HealthSnapshot healthSnapshot) {
+        final boolean checkEndpoints = configuration.isCircuitBreakerEnabled() || trialsInFlight.get() > 0;
+        if (!checkEndpoints && healthSnapshot.isEmpty()) {
+            return urls;
+        }
+
+        int failureThreshold = configuration.getCircuitBreakerFailureThreshold();
+        long coolDownNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getCircuitBreakerCoolDownMillis());
+        long nowNanos = System.nanoTime();
+
+        List<String> available = null;
+        List<String> unavailable = null;
+        for (int i = 0; i < urls.size(); i++) {
+            String url = urls.get(i);
+
+            boolean isAvailable = healthSnapshot.isEmpty()
+                    || !healthSnapshot.isUnhealthy(propertiesKey.withUrl(url));
+            if (isAvailable && checkEndpoints) {
+                EndpointState endpointState = endpoints.get(url);
+                isAvailable = endpointState == null
+                        || !endpointState.isTrialInFlight()
+                        && endpointState.getCircuitState(failureThreshold, coolDownNanos, nowNanos)
+                        != EndpointState.CircuitState.OPEN;
+            }
+
+            if (!isAvailable) {
+                if (unavailable == null) {
+                    unavailable = new ArrayList<>();
+                    available = new ArrayList<>(urls.subList(0, i));
+                }
+                unavailable.add(url);
+            } else if (available != null) {
+                available.add(url);
+            }
+        }
+
+        if (unavailable == null) {
+            return urls;
+        }
+
+        LOGGER.debug("Endpoints known to be unavailable: attempting them last: {}", unavailable);
+
+        available.addAll(unavailable);
+        return available;
+    }
+
+    /**
+     * Orders the URLs by the {@linkplain EndpointState#getScore() score} of their endpoint, best
+     * first. URLs of equal score keep their order. With a probability of
+     * {@value #EXPLORATION_PROBABILITY}, a random URL is moved to the front, so that endpoints
+     * are re-measured even once they are slower than the others.
+     *
+     * @param urls the URLs to order
+     * @return a new list of the URLs in attempt order
+     */
+    List<String> orderByScore(List<String> urls) {
+        final int size = urls.size();
+
+        final String[] urlArray = urls.toArray(new String[size]);
+        final double[] scores = new double[size];
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            EndpointState endpointState = endpoints.get(urlArray[i]);
+            if (endpointState != null) {
+                scores[i] = endpointState.getScore();
+            }
+            order[i] = i;
+        }
+
+        Arrays.sort(order, Comparator.comparingDouble(index -> scores[index]));
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (size > 1 && random.nextDouble() < EXPLORATION_PROBABILITY) {
+            int explored = 1 + random.nextInt(size - 1);
+            Integer exploredIndex = order[explored];
+            System.arraycopy(order, 0, order, 1, explored);
+            order[0] = exploredIndex;
+        }
+
+        List<String> orderedUrls = new ArrayList<>(size);
+        for (Integer index : order) {
+            orderedUrls.add(urlArray[index]);
+        }
+        return orderedUrls;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Process-wide state of a delegate URL ("endpoint"), shared by all robin URLs referencing it.
+ *
+ * <p>Backs the circuit breaker of the endpoint. The state only records the outcome of the
+ * connection attempts: the breaker is evaluated against the failure threshold and cool-down time
+ * of the robin URL asking, so robin URLs with different settings can share the endpoint.
+ * The state is kept per URL, shared by all connection properties: it tracks the reachability of
+ * the endpoint, hence failures caused by the properties, such as invalid credentials, are not
+ * recorded. Once the number of consecutive failed attempts reaches the threshold, the breaker is
+ * <em>open</em> until the cool-down time elapses since the last failure. Then it is
+ * <em>half-open</em>: the endpoint is attempted normally, and the next attempt either closes the
+ * breaker (success) or opens it again (failure).</p>
+ *
+ * <p>An endpoint whose last attempt failed is <em>suspect</em>: while it recovers, only a single
+ * <em>trial</em> connection attempt is allowed at a time, so that the callers do not overwhelm
+ * it, and the others wait for the outcome of the trial or attempt other endpoints. This applies
+ * to the half-open state of the breaker too.</p>
+ *
+ * <p>Also tracks the exponentially weighted moving average (EWMA) of the connect time and of the
+ * failure rate of the endpoint, combined into a {@linkplain #getScore() score}, and the number of
+ * open connections returned as {@link TrackedConnection}, and holds the {@link EndpointAdmission}
+ * and the {@link EndpointMetrics} of the endpoint.</p>
+ */
+final class EndpointState {
+
+    enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // weight of the latest sample in the moving averages
+    static final double EWMA_ALPHA = 0.2;
+
+    // a failure rate of 100% weighs as much as ten times the average connect time
+    private static final double FAILURE_PENALTY = 10.0;
+
+    private static final double UNMEASURED = -1.0;
+
+    private final String url;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile long lastFailureNanos;
+
+    // outcome of the trial connection attempt in flight: true on success; null if there is none
+    private final AtomicReference<CompletableFuture<Boolean>> trial = new AtomicReference<>();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private final EndpointAdmission admission = new EndpointAdmission();
+
+    private final EndpointMetrics metrics = new EndpointMetrics();
+
+    // doubles stored as raw long bits, so that they can be updated atomically
+    private final AtomicLong connectNanosAverage = new AtomicLong(Double.doubleToRawLongBits(UNMEASURED));
+    private final AtomicLong failureRateAverage = new AtomicLong(Double.doubleToRawLongBits(0.0));
+
+    EndpointState(String url) {
+        this.url = url;
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * Evaluates the circuit breaker of the endpoint.
+     *
+     * @param failureThreshold the number of consecutive failures opening the breaker
+     * @param coolDownNanos the time the breaker stays open after the last failure
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return the state of the breaker
+     */
+    CircuitState getCircuitState(int failureThreshold, long coolDownNanos, long nowNanos) {
+        if (failureThreshold <= 0 || consecutiveFailures.get() < failureThreshold) {
+            return CircuitState.CLOSED;
+        }
+
+        if (nowNanos - lastFailureNanos < coolDownNanos) {
+            return CircuitState.OPEN;
+        }
+
+        return CircuitState.HALF_OPEN;
+    }
+
+    EndpointAdmission getAdmission() {
+        return admission;
+    }
+
+    EndpointMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Tells if the endpoint failed often enough to be attempted by one connect at a time only.
+     *
+     * @param trialFailureThreshold the number of consecutive failures making an endpoint suspect;
+     *                              {@link Configuration#SINGLE_FLIGHT_DISABLED} if none does
+     * @return {@code true} if connects to the endpoint should be single-flight trials
+     */
+    boolean isSuspect(int trialFailureThreshold) {
+        return trialFailureThreshold != Configuration.SINGLE_FLIGHT_DISABLED
+                && consecutiveFailures.get() >= trialFailureThreshold;
+    }
+
+    boolean isTrialInFlight() {
+        return trial.get() != null;
+    }
+
+    /**
+     * Returns the outcome of the trial connection attempt in flight.
+     *
+     * @return the future outcome, completed with {@code true} on success; {@code null} if there
+     *          is no trial in flight
+     */
+    CompletableFuture<Boolean> getTrial() {
+        return trial.get();
+    }
+
+    /**
+     * Starts a trial connection attempt, unless one is in flight already.
+     *
+     * @return the outcome of the trial, to be completed by {@link #endTrial(CompletableFuture, boolean)};
+     *          {@code null} if another trial is in flight
+     */
+    CompletableFuture<Boolean> tryStartTrial() {
+        CompletableFuture<Boolean> newTrial = new CompletableFuture<>();
+        if (trial.compareAndSet(null, newTrial)) {
+            return newTrial;
+        }
+        return null;
+    }
+
+    void endTrial(CompletableFuture<Boolean> endedTrial, boolean success) {
+        trial.compareAndSet(endedTrial, null);
+        endedTrial.complete(success);
+    }
+
+    void recordSuccess(long connectNanos) {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        updateAverage(connectNanosAverage, connectNanos);
+        updateAverage(failureRateAverage, 0.0);
+    }
+
+    void recordFailure(long nowNanos) {
+        lastFailureNanos = nowNanos;
+        consecutiveFailures.incrementAndGet();
+        updateAverage(failureRateAverage, 1.0);
+    }
+
+    /**
+     * Returns the moving average of the time it took to connect successfully.
+     *
+     * @return the average in nanoseconds, or a negative value if no connection was established yet
+     */
+    double getConnectNanosAverage() {
+        return Double.longBitsToDouble(connectNanosAverage.get());
+    }
+
+    /**
+     * Returns the moving average of the failure rate.
+     *
+     * @return the average between {@code 0.0} and {@code 1.0}
+     */
+    double getFailureRateAverage() {
+        return Double.longBitsToDouble(failureRateAverage.get());
+    }
+
+    /**
+     * Returns the score of the endpoint: the average connect time, penalized by the failure rate.
+     * Lower is better. Endpoints never attempted score {@code 0.0}, so that they are measured first;
+     * endpoints never connected to successfully, but failing, score worst.
+     *
+     * @return the score of the endpoint
+     */
+    double getScore() {
+        double connectNanos = getConnectNanosAverage();
+        if (connectNanos < 0) {
+            if (getFailureRateAverage() > 0.0) {
+                return Double.MAX_VALUE;
+            }
+            return 0.0;
+        }
+        return connectNanos * (1.0 + FAILURE_PENALTY * getFailureRateAverage());
+    }
+
+    void connectionOpened() {
+        openConnections.incrementAndGet();
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    private static void updateAverage(AtomicLong average, double sample) {
+        long currentBits;
+        long newBits;
+        do {
+            currentBits = average.get();
+            double current = Double.longBitsToDouble(currentBits);
+
+            double updated;
+            if (current < 0) {
+                updated = sample;
+            } else {
+                updated = current + EWMA_ALPHA * (sample - current);
+            }
+            newBits = Double.doubleToRawLongBits(updated);
+        } while (!average.compareAndSet(currentBits, newBits));
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointState{"
+                + "url='" + url + '\''
+                + ", consecutiveFailures=" + consecutiveFailures
+                + ", connectNanosAverage=" + getConnectNanosAverage()
+                + ", failureRateAverage=" + getFailureRateAverage()
+                + ", openConnections=" + openConnections
+                + ", trialInFlight=" + isTrialInFlight()
+                + '}';
+    }
+}
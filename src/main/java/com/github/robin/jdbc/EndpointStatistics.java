@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+/**
+ * Snapshot of the connection attempt statistics of a delegate URL, since the driver was loaded.
+ * The connect time percentiles cover the successful attempts only.
+ */
+public final class EndpointStatistics {
+
+    private static final double P50 = 0.5;
+    private static final double P99 = 0.99;
+    private static final double P999 = 0.999;
+
+    private final String url;
+    private final long attempts;
+    private final long successes;
+    private final long failures;
+    private final long attemptsInFlight;
+    private final long connectTimeP50Micros;
+    private final long connectTimeP99Micros;
+    private final long connectTimeP999Micros;
+
+    EndpointStatistics(String url, EndpointMetrics metrics) {
+        this.url = url;
+        this.attempts = metrics.getAttempts();
+        this.successes = metrics.getSuccesses();
+        this.failures = metrics.getFailures();
+        this.attemptsInFlight = metrics.getAttemptsInFlight();
+
+        this.connectTimeP50Micros = metrics.getConnectTimePercentileMicros(P50);
+        this.connectTimeP99Micros = metrics.getConnectTimePercentileMicros(P99);
+        this.connectTimeP999Micros = metrics.getConnectTimePercentileMicros(P999);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public long getAttempts() {
+        return attempts;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getAttemptsInFlight() {
+        return attemptsInFlight;
+    }
+
+    public long getConnectTimeP50Micros() {
+        return connectTimeP50Micros;
+    }
+
+    public long getConnectTimeP99Micros() {
+        return connectTimeP99Micros;
+    }
+
+    public long getConnectTimeP999Micros() {
+        return connectTimeP999Micros;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointStatistics{"
+                + "url='" + url + '\''
+                + ", attempts=" + attempts
+                + ", successes=" + successes
+                + ", failures=" + failures
+                + ", attemptsInFlight=" + attemptsInFlight
+                + ", connectTimeP50Micros=" + connectTimeP50Micros
+                + ", connectTimeP99Micros=" + connectTimeP99Micros
+                + ", connectTimeP999Micros=" + connectTimeP999Micros
+                + '}';
+    }
+}
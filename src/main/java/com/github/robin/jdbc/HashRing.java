@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent-hash ring of URLs: each URL is placed on the ring at a number of pseudo-random
+ * points ("virtual nodes") derived from the URL itself, and a key is mapped to the first URL
+ * found clockwise from the hash of the key. Adding or removing a URL hence only moves the keys
+ * of the ring segments that URL owns.
+ *
+ * <p>The hash is 64-bit FNV-1a followed by the MurmurHash3 finalizer: it is stable across JVMs,
+ * so all clients map a key to the same URL.</p>
+ */
+final class HashRing {
+
+    static final int MAX_VIRTUAL_NODES_PER_URL = 128;
+
+    // bounds the memory used by the ring of large URL lists
+    static final int MAX_RING_SIZE = 65536;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long FMIX_CONSTANT_1 = 0xff51afd7ed558ccdL;
+    private static final long FMIX_CONSTANT_2 = 0xc4ceb9fe1a85ec53L;
+    private static final int FMIX_SHIFT = 33;
+
+    private static final int BYTE_MASK = 0xff;
+
+    private final List<String> urls;
+
+    // sorted hashes of the virtual nodes, and the index of the URL owning each
+    private final long[] points;
+    private final int[] owners;
+
+    HashRing(List<String> urls) {
+        this.urls = urls;
+
+        final int urlCount = urls.size();
+        final int virtualNodesPerUrl = Math.max(1, Math.min(MAX_VIRTUAL_NODES_PER_URL, MAX_RING_SIZE / urlCount));
+
+        long[] nodes = new long[urlCount * virtualNodesPerUrl];
+        int[] nodeOwners = new int[nodes.length];
+        Long[] order = new Long[nodes.length];
+        for (int urlIndex = 0; urlIndex < urlCount; urlIndex++) {
+            String url = urls.get(urlIndex);
+            for (int i = 0; i < virtualNodesPerUrl; i++) {
+                int node = urlIndex * virtualNodesPerUrl + i;
+                nodes[node] = hash(url + '#' + i);
+                nodeOwners[node] = urlIndex;
+                order[node] = (long) node;
+            }
+        }
+
+        // sort by hash; ties broken by node index, so that the ring does not depend on sort stability
+        Arrays.sort(order, (a, b) -> {
+            int comparison = Long.compare(nodes[a.intValue()], nodes[b.intValue()]);
+            if (comparison != 0) {
+                return comparison;
+            }
+            return Long.compare(a, b);
+        });
+
+        this.points = new long[nodes.length];
+        this.owners = new int[nodes.length];
+        for (int i = 0; i < order.length; i++) {
+            int node = order[i].intValue();
+            points[i] = nodes[node];
+            owners[i] = nodeOwners[node];
+        }
+    }
+
+    /**
+     * Returns the URLs in the order of the ring, starting with the URL the key maps to.
+     * Each URL is listed once: the rest of the list is the failover order for the key.
+     *
+     * @param key the key to map
+     * @return the URLs in attempt order for the key
+     */
+    List<String> getUrls(String key) {
+        final int urlCount = urls.size();
+        List<String> orderedUrls = new ArrayList<>(urlCount);
+        boolean[] added = new boolean[urlCount];
+
+        int position = Arrays.binarySearch(points, hash(key));
+        if (position < 0) {
+            position = -position - 1;
+        }
+
+        for (int i = 0; i < points.length && orderedUrls.size() < urlCount; i++) {
+            int owner = owners[(position + i) % points.length];
+            if (!added[owner]) {
+                added[owner] = true;
+                orderedUrls.add(urls.get(owner));
+            }
+        }
+        return orderedUrls;
+    }
+
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & BYTE_MASK;
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> FMIX_SHIFT;
+        hash *= FMIX_CONSTANT_1;
+        hash ^= hash >>> FMIX_SHIFT;
+        hash *= FMIX_CONSTANT_2;
+        hash ^= hash >>> FMIX_SHIFT;
+        return hash;
+    }
+}
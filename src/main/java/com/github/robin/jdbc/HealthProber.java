@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Periodically probes the registered endpoints in the background, by connecting and validating
+ * the connection, and publishes the results as an immutable {@link HealthSnapshot}.
+ *
+ * <p>Request threads only read the snapshot: they never pay for discovering a dead endpoint.
+ * The scheduler thread only hands the probes over to the probe executor, and an endpoint is
+ * never probed again while its previous probe is still running.</p>
+ *
+ * <p>Endpoints are probed and published keyed by their URL and the connection properties.
+ * Once no cached connect plan uses an endpoint any more, it is {@linkplain #unregister(Collection)
+ * unregistered}: its probe is cancelled and its result is removed from the snapshot.</p>
+ */
+final class HealthProber {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HealthProber.class);
+
+    static final int MAX_TARGETS = 1024;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private static final HealthProber INSTANCE = new HealthProber(
+            RobinExecutors.getScheduler(), RobinExecutors.getProbeExecutor());
+
+    private final ScheduledExecutorService scheduler;
+    private final Executor probeExecutor;
+
+    private final ConcurrentMap<PropertiesKey, Target> targets = new ConcurrentHashMap<>();
+    private final AtomicReference<HealthSnapshot> snapshot = new AtomicReference<>(HealthSnapshot.EMPTY);
+
+    HealthProber(ScheduledExecutorService scheduler, Executor probeExecutor) {
+        this.scheduler = scheduler;
+        this.probeExecutor = probeExecutor;
+    }
+
+    static HealthProber getInstance() {
+        return INSTANCE;
+    }
+
+    HealthSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    int getTargetCount() {
+        return targets.size();
+    }
+
+    /**
+     * Starts probing the URLs with the given properties periodically, unless they are probed already.
+     *
+     * @param urls the URLs to probe
+     * @param properties the properties to connect with
+     * @param intervalMillis the delay between the end of a probe and the start of the next one
+     */
+    void register(List<String> urls, Properties properties, long intervalMillis) {
+        for (String url : urls) {
+            if (targets.size() >= MAX_TARGETS) {
+                LOGGER.warn("Maximum number of {} probed endpoints reached: not probing {}", MAX_TARGETS, url);
+                return;
+            }
+
+            targets.computeIfAbsent(new PropertiesKey(url, properties), key -> {
+                Target target = new Target(key, copyOf(properties));
+                target.scheduledProbe = scheduler.scheduleWithFixedDelay(
+                        target::schedule, 0, intervalMillis, TimeUnit.MILLISECONDS);
+                LOGGER.debug("Probing {} every {} ms", url, intervalMillis);
+                return target;
+            });
+        }
+    }
+
+    /**
+     * Stops probing the given endpoints and removes their results from the snapshot.
+     *
+     * @param keys the URLs and properties of the endpoints, as they were registered
+     */
+    void unregister(Collection<PropertiesKey> keys) {
+        List<PropertiesKey> removedKeys = new ArrayList<>(keys.size());
+        for (PropertiesKey key : keys) {
+            Target target = targets.remove(key);
+            if (target != null) {
+                target.scheduledProbe.cancel(false);
+                removedKeys.add(key);
+                LOGGER.debug("Stopped probing {}", key.getUrl());
+            }
+        }
+
+        if (!removedKeys.isEmpty()) {
+            HealthSnapshot current;
+            do {
+                current = snapshot.get();
+            } while (!snapshot.compareAndSet(current, current.without(removedKeys)));
+        }
+    }
+
+    private static Properties copyOf(Properties properties) {
+        Properties copy = new Properties();
+        if (properties != null) {
+            copy.putAll(properties);
+        }
+        return copy;
+    }
+
+    private void publish(Target target, HealthSnapshot.EndpointHealth endpointHealth) {
+        HealthSnapshot current;
+        do {
+            current = snapshot.get();
+            if (targets.get(target.key) != target) {
+                // unregistered while the probe was running: the result must not be published
+                return;
+            }
+        } while (!snapshot.compareAndSet(current, current.with(target.key, endpointHealth)));
+    }
+
+    private final class Target {
+
+        private final PropertiesKey key;
+        private final String url;
+        private final Properties properties;
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+
+        private volatile ScheduledFuture<?> scheduledProbe;
+
+        private Target(PropertiesKey key, Properties properties) {
+            this.key = key;
+            this.url = key.getUrl();
+            this.properties = properties;
+        }
+
+        void schedule() {
+            if (!inFlight.compareAndSet(false, true)) {
+                // the previous probe is still running
+                return;
+            }
+
+            try {
+                probeExecutor.execute(this::probe);
+            } catch (RejectedExecutionException ree) {
+                inFlight.set(false);
+                LOGGER.debug("Probe of {} was rejected", url, ree);
+            }
+        }
+
+        /**
+         * Probes the endpoint. Only changes of the health are logged, not each probe: the probes
+         * run far too often for that.
+         */
+        private void probe() {
+            try {
+                HealthSnapshot.EndpointHealth previous = snapshot.get().get(key);
+                boolean wasHealthy = previous == null || previous.isHealthy();
+
+                long startNanos = System.nanoTime();
+                boolean healthy = isHealthy(wasHealthy);
+                long endNanos = System.nanoTime();
+
+                publish(this, new HealthSnapshot.EndpointHealth(healthy, endNanos - startNanos, endNanos));
+                if (previous == null || healthy != wasHealthy) {
+                    LOGGER.debug("Probed {}: healthy={}", url, healthy);
+                }
+            } finally {
+                inFlight.set(false);
+            }
+        }
+
+        private boolean isHealthy(boolean logFailure) {
+            try (Connection connection = DelegateDrivers.getInstance().connect(url, properties)) {
+                return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException | RuntimeException e) {
+                if (logFailure) {
+                    LOGGER.debug("Probe of {} failed: {}", url, e.toString());
+                }
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the endpoint health published by the {@link HealthProber}.
+ * Endpoints not probed are not part of the snapshot.
+ *
+ * <p>Endpoints are keyed by the URL and the connection properties, just like the probes:
+ * the same URL connected to with different properties, e.g. credentials, might not be healthy
+ * for all of them.</p>
+ */
+final class HealthSnapshot {
+
+    static final HealthSnapshot EMPTY = new HealthSnapshot(Collections.emptyMap());
+
+    private final Map<PropertiesKey, EndpointHealth> endpoints;
+
+    private HealthSnapshot(Map<PropertiesKey, EndpointHealth> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    boolean isEmpty() {
+        return endpoints.isEmpty();
+    }
+
+    /**
+     * Returns the last probe result of an endpoint.
+     *
+     * @param key the URL and the connection properties of the endpoint
+     * @return the probe result, or {@code null} if the endpoint was not probed yet
+     */
+    EndpointHealth get(PropertiesKey key) {
+        return endpoints.get(key);
+    }
+
+    boolean isUnhealthy(PropertiesKey key) {
+        EndpointHealth endpointHealth = endpoints.get(key);
+        return endpointHealth != null && !endpointHealth.isHealthy();
+    }
+
+    Map<PropertiesKey, EndpointHealth> getEndpoints() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    HealthSnapshot with(PropertiesKey key, EndpointHealth endpointHealth) {
+        Map<PropertiesKey, EndpointHealth> newEndpoints = new HashMap<>(endpoints);
+        newEndpoints.put(key, endpointHealth);
+        return new HealthSnapshot(newEndpoints);
+    }
+
+    HealthSnapshot without(Collection<PropertiesKey> keys) {
+        Map<PropertiesKey, EndpointHealth> newEndpoints = new HashMap<>(endpoints);
+        newEndpoints.keySet().removeAll(keys);
+        return new HealthSnapshot(newEndpoints);
+    }
+
+    @Override
+    public String toString() {
+        return "HealthSnapshot" + endpoints;
+    }
+
+    /**
+     * The result of the last probe of an endpoint.
+     */
+    static final class EndpointHealth {
+
+        private final boolean healthy;
+        private final long latencyNanos;
+        private final long probedAtNanos;
+
+        EndpointHealth(boolean healthy, long latencyNanos, long probedAtNanos) {
+            this.healthy = healthy;
+            this.latencyNanos = latencyNanos;
+            this.probedAtNanos = probedAtNanos;
+        }
+
+        boolean isHealthy() {
+            return healthy;
+        }
+
+        /**
+         * Returns the time the probe took: connecting and validating the connection.
+         *
+         * @return the latency in nanoseconds
+         */
+        long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        long getProbedAtNanos() {
+            return probedAtNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "EndpointHealth{"
+                    + "healthy=" + healthy
+                    + ", latencyNanos=" + latencyNanos
+                    + '}';
+        }
+    }
+}
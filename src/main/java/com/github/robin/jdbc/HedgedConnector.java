@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connects with attempts running in the background, so that they can be abandoned.
+ *
+ * <p>With hedging enabled, the attempts are staggered and run in parallel ("happy eyeballs" for JDBC
+ * endpoints): the URLs are attempted in order, but if an attempt does not complete within the hedge
+ * delay, the next URL is attempted in parallel, up to the maximum parallelism. Otherwise, the URLs
+ * are attempted one after the other.</p>
+ *
+ * <p>An attempt running longer than the attempt timeout is abandoned and the next URL is attempted;
+ * once the connect timeout elapses, all attempts are abandoned. The first successful attempt wins:
+ * connections opened by abandoned attempts or by other attempts completing later are closed.</p>
+ */
+final class HedgedConnector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HedgedConnector.class);
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static final int RUNNING = 0;
+    private static final int COMPLETED = 1;
+    private static final int ABANDONED = 2;
+
+    private final Executor executor;
+
+    HedgedConnector(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Connects to one of the URLs.
+     *
+     * @return the connection, or {@code null} if all attempts failed: the failures are added to
+     *          {@code caughtExceptions}
+     * @throws SQLTimeoutException if the connect timeout elapsed
+     */
+    Connection connect(UrlConnector urlConnector, List<String> urls, Properties properties,
+                       Configuration configuration, List<SQLException> caughtExceptions) throws SQLException {
+
+        Attempts attempts = new Attempts(urlConnector, urls, properties, configuration);
+        try {
+            attempts.startNext();
+
+            while (!attempts.inFlight.isEmpty()) {
+                long nowNanos = System.nanoTime();
+                if (nowNanos - attempts.deadlineNanos >= 0) {
+                    attempts.abandon();
+                    throw newConnectTimeoutException(configuration, caughtExceptions);
+                }
+
+                attempts.abandonTimedOut(nowNanos, caughtExceptions);
+                if (attempts.inFlight.isEmpty()) {
+                    break;
+                }
+
+                Future<Connection> completed = attempts.poll(nowNanos);
+                if (completed != null) {
+                    Connection connection = attempts.getResult(completed, caughtExceptions);
+                    if (connection != null) {
+                        return connection;
+                    }
+                } else if (attempts.isHedgeDue(System.nanoTime())) {
+                    LOGGER.debug("No connection within {} ms: hedging with the next URL",
+                            configuration.getHedgeDelayMillis());
+                    attempts.startNext();
+                }
+            }
+
+            return null;
+
+        } catch (InterruptedException ie) {
+            attempts.abandon();
+
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while connecting", ie);
+        }
+    }
+
+    private static SQLTimeoutException newConnectTimeoutException(Configuration configuration,
+                                                                  List<SQLException> caughtExceptions) {
+        String message = String.format("Connect timeout of %s ms elapsed", configuration.getConnectTimeoutMillis());
+        LOGGER.error(message);
+
+        SQLTimeoutException timeoutException = new SQLTimeoutException(message);
+        for (SQLException caughtException : caughtExceptions) {
+            timeoutException.addSuppressed(caughtException);
+        }
+        return timeoutException;
+    }
+
+    private final class Attempts {
+
+        private final UrlConnector urlConnector;
+        private final List<String> urls;
+        private final Properties properties;
+
+        private final int maxParallelAttempts;
+        private final long hedgeDelayNanos;
+        private final long attemptTimeoutNanos;
+        private final long deadlineNanos;
+
+        private final CompletionService<Connection> completionService;
+        private final AtomicBoolean winnerClaimed = new AtomicBoolean();
+
+        private final List<Attempt> inFlight = new ArrayList<>();
+        private int next;
+        private long lastStartNanos;
+
+        private Attempts(UrlConnector urlConnector, List<String> urls, Properties properties,
+                         Configuration configuration) {
+            this.urlConnector = urlConnector;
+            this.urls = urls;
+            this.properties = properties;
+            this.completionService = new ExecutorCompletionService<>(executor);
+
+            if (configuration.isHedgingEnabled()) {
+                this.maxParallelAttempts = configuration.getMaxParallelAttempts();
+                this.hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getHedgeDelayMillis());
+            } else {
+                this.maxParallelAttempts = 1;
+                this.hedgeDelayNanos = NO_DEADLINE;
+            }
+
+            this.attemptTimeoutNanos = toTimeoutNanos(configuration.getAttemptTimeoutMillis());
+
+            long connectTimeoutNanos = toTimeoutNanos(configuration.getConnectTimeoutMillis());
+            if (connectTimeoutNanos == NO_DEADLINE) {
+                this.deadlineNanos = System.nanoTime() + NO_DEADLINE / 2;
+            } else {
+                this.deadlineNanos = System.nanoTime() + connectTimeoutNanos;
+            }
+        }
+
+        private long toTimeoutNanos(int timeoutMillis) {
+            if (timeoutMillis == Configuration.NO_TIMEOUT) {
+                return NO_DEADLINE;
+            }
+            return TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        boolean canStartNext() {
+            return next < urls.size() && inFlight.size() < maxParallelAttempts;
+        }
+
+        boolean isHedgeDue(long nowNanos) {
+            return canStartNext() && nowNanos - lastStartNanos >= hedgeDelayNanos;
+        }
+
+        void startNext() {
+            Attempt attempt = new Attempt(urls.get(next++));
+            attempt.future = completionService.submit(attempt);
+            inFlight.add(attempt);
+            lastStartNanos = attempt.startNanos;
+        }
+
+        /**
+         * Waits for the next attempt to complete, at most until the next hedge, attempt timeout
+         * or the connect deadline is due.
+         */
+        Future<Connection> poll(long nowNanos) throws InterruptedException {
+            long waitUntilNanos = deadlineNanos;
+            if (canStartNext() && hedgeDelayNanos != NO_DEADLINE) {
+                waitUntilNanos = earlier(waitUntilNanos, lastStartNanos + hedgeDelayNanos);
+            }
+            if (attemptTimeoutNanos != NO_DEADLINE) {
+                for (Attempt attempt : inFlight) {
+                    waitUntilNanos = earlier(waitUntilNanos, attempt.startNanos + attemptTimeoutNanos);
+                }
+            }
+
+            return completionService.poll(Math.max(0, waitUntilNanos - nowNanos), TimeUnit.NANOSECONDS);
+        }
+
+        private long earlier(long nanos, long otherNanos) {
+            if (otherNanos - nanos < 0) {
+                return otherNanos;
+            }
+            return nanos;
+        }
+
+        void abandonTimedOut(long nowNanos, List<SQLException> caughtExceptions) {
+            if (attemptTimeoutNanos == NO_DEADLINE) {
+                return;
+            }
+
+            for (int i = inFlight.size() - 1; i >= 0; i--) {
+                Attempt attempt = inFlight.get(i);
+                if (nowNanos - attempt.startNanos >= attemptTimeoutNanos && attempt.abandon()) {
+                    inFlight.remove(i);
+
+                    String message = String.format("Connection attempt to %s timed out after %s ms",
+                            attempt.url, TimeUnit.NANOSECONDS.toMillis(attemptTimeoutNanos));
+                    LOGGER.warn(message);
+                    caughtExceptions.add(new SQLTimeoutException(message));
+                }
+            }
+
+            while (canStartNext() && isReplacementDue()) {
+                startNext();
+            }
+        }
+
+        private boolean isReplacementDue() {
+            // an abandoned attempt is replaced right away, unless other attempts are still running
+            return inFlight.isEmpty() || hedgeDelayNanos != NO_DEADLINE;
+        }
+
+        /**
+         * Ensures no connection is leaked once the caller gave up waiting: attempts completing
+         * from now on close their connection, while a connection already claimed by an attempt
+         * is collected and closed in the background.
+         */
+        void abandon() {
+            winnerClaimed.set(true);
+
+            for (Attempt attempt : inFlight) {
+                if (!attempt.abandon()) {
+                    Future<Connection> future = attempt.future;
+                    executor.execute(() -> closeResult(future));
+                }
+            }
+            inFlight.clear();
+        }
+
+        private void closeResult(Future<Connection> future) {
+            try {
+                Connection connection = future.get();
+                if (connection != null) {
+                    JdbcUtils.closeQuietly(connection);
+                }
+            } catch (ExecutionException ee) {
+                LOGGER.trace("Abandoned connection attempt failed", ee);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Connection getResult(Future<Connection> completed, List<SQLException> caughtExceptions)
+                throws InterruptedException {
+            if (!removeInFlight(completed)) {
+                // an abandoned attempt: it closes its connection itself
+                return null;
+            }
+
+            try {
+                return completed.get();
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof SQLException) {
+                    caughtExceptions.add((SQLException) cause);
+                } else {
+                    caughtExceptions.add(new SQLException("Connection attempt failed", cause));
+                }
+
+                // do not wait for the hedge delay: a failed attempt is replaced right away
+                if (canStartNext()) {
+                    startNext();
+                }
+
+                return null;
+            }
+        }
+
+        private boolean removeInFlight(Future<Connection> future) {
+            for (int i = 0; i < inFlight.size(); i++) {
+                if (inFlight.get(i).future == future) {
+                    inFlight.remove(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private final class Attempt implements Callable<Connection> {
+
+            private final String url;
+            private final long startNanos = System.nanoTime();
+            private final AtomicInteger state = new AtomicInteger(RUNNING);
+            private Future<Connection> future;
+
+            private Attempt(String url) {
+                this.url = url;
+            }
+
+            /**
+             * Abandons the attempt, unless it has completed already.
+             *
+             * @return {@code true} if the attempt was abandoned
+             */
+            boolean abandon() {
+                if (state.compareAndSet(RUNNING, ABANDONED)) {
+                    future.cancel(true);
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public Connection call() throws SQLException {
+                Connection connection;
+                try {
+                    connection = urlConnector.connect(url, properties);
+                } finally {
+                    state.compareAndSet(RUNNING, COMPLETED);
+                }
+
+                if (state.get() == ABANDONED) {
+                    LOGGER.debug("Closing connection to {}: the attempt was abandoned", url);
+                    JdbcUtils.closeQuietly(connection);
+                    return null;
+                }
+
+                if (winnerClaimed.compareAndSet(false, true)) {
+                    return connection;
+                }
+
+                LOGGER.debug("Closing connection to {}: another attempt completed earlier", url);
+                JdbcUtils.closeQuietly(connection);
+                return null;
+            }
+        }
+    }
+}
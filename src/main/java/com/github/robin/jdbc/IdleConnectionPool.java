@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of the idle physical connections to a delegate URL, opened with the same properties.
+ *
+ * <p>Connections are borrowed in LIFO order, so that the most recently used ones are reused and
+ * the rest can expire. Borrowed connections are returned wrapped in a
+ * {@link PoolReturningConnection}, which gives them back to the pool when closed. The limits are
+ * taken from the configuration of the robin URL borrowing or returning the connection; the
+ * {@link ConnectionPools} also evict the expired idle connections periodically, by the
+ * configuration they were returned with.</p>
+ */
+final class IdleConnectionPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdleConnectionPool.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final String url;
+
+    private final Deque<IdleConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    IdleConnectionPool(String url) {
+        this.url = url;
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * Borrows an idle connection, discarding the expired and, if validation is enabled,
+     * the invalid ones.
+     *
+     * @param configuration the configuration of the robin URL borrowing the connection
+     * @return the connection wrapped in a {@link PoolReturningConnection},
+     *          or {@code null} if there is no usable idle connection
+     */
+    Connection borrow(Configuration configuration) {
+        IdleConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+
+            if (isExpired(idleConnection.createdNanos, configuration)) {
+                LOGGER.debug("Closing idle connection to {}: maximum lifetime reached", url);
+                JdbcUtils.closeQuietly(idleConnection.connection);
+            } else if (configuration.isValidateOnBorrow() && !isValid(idleConnection.connection)) {
+                LOGGER.debug("Closing idle connection to {}: validation failed", url);
+                JdbcUtils.closeQuietly(idleConnection.connection);
+            } else {
+                return new PoolReturningConnection(this, idleConnection.connection,
+                        idleConnection.createdNanos, configuration);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Wraps a newly opened physical connection, so that it is returned to this pool when closed.
+     *
+     * @param connection the physical connection
+     * @param configuration the configuration of the robin URL the connection was opened for
+     * @return the wrapped connection
+     */
+    Connection wrap(Connection connection, Configuration configuration) {
+        return new PoolReturningConnection(this, connection, System.nanoTime(), configuration);
+    }
+
+    /**
+     * Gives a connection back to the pool; closes it if the pool is full or the connection expired.
+     */
+    void giveBack(Connection connection, long createdNanos, Configuration configuration) {
+        if (isExpired(createdNanos, configuration)) {
+            LOGGER.debug("Closing returned connection to {}: maximum lifetime reached", url);
+            JdbcUtils.closeQuietly(connection);
+            return;
+        }
+
+        if (idleCount.incrementAndGet() > configuration.getMaxIdleConnections()) {
+            idleCount.decrementAndGet();
+            LOGGER.debug("Closing returned connection to {}: maximum idle count reached", url);
+            JdbcUtils.closeQuietly(connection);
+            return;
+        }
+
+        idleConnections.offerFirst(new IdleConnection(connection, createdNanos, configuration));
+    }
+
+    /**
+     * Closes the idle connections which reached their maximum lifetime.
+     */
+    void evictExpired() {
+        for (IdleConnection idleConnection : idleConnections) {
+            if (isExpired(idleConnection.createdNanos, idleConnection.configuration)
+                    && idleConnections.removeFirstOccurrence(idleConnection)) {
+                idleCount.decrementAndGet();
+                LOGGER.debug("Closing idle connection to {}: maximum lifetime reached", url);
+                JdbcUtils.closeQuietly(idleConnection.connection);
+            }
+        }
+    }
+
+    /**
+     * Closes all idle connections.
+     */
+    void clear() {
+        IdleConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            JdbcUtils.closeQuietly(idleConnection.connection);
+        }
+    }
+
+    static boolean isExpired(long createdNanos, Configuration configuration) {
+        int maxLifetimeMillis = configuration.getMaxLifetimeMillis();
+        return maxLifetimeMillis != Configuration.UNLIMITED_LIFETIME
+                && System.nanoTime() - createdNanos >= TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis);
+    }
+
+    static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException sqlException) {
+            LOGGER.debug("Exception validating connection", sqlException);
+            return false;
+        }
+    }
+
+    private static final class IdleConnection {
+        private final Connection connection;
+        private final long createdNanos;
+
+        // the configuration the connection was given back with
+        private final Configuration configuration;
+
+        private IdleConnection(Connection connection, long createdNanos, Configuration configuration) {
+            this.connection = connection;
+            this.createdNanos = createdNanos;
+            this.configuration = configuration;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IdleConnectionPool{"
+                + "url='" + url + '\''
+                + ", idleCount=" + idleCount
+                + '}';
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * JDBC helpers shared by the connectors, the pools and the connection wrappers.
+ */
+final class JdbcUtils {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcUtils.class);
+
+    private JdbcUtils() {
+        throw new AssertionError("static utility class");
+    }
+
+    /**
+     * Closes the connection, logging the exception thrown, if any: for connections discarded,
+     * whose failure to close cannot be acted upon.
+     *
+     * @param connection the connection to close
+     */
+    static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.debug("Exception closing connection", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies, with a fixed set of logarithmic buckets in microseconds.
+ *
+ * <p>Each power of two is divided into {@value #SUB_BUCKETS} linear sub-buckets, hence the
+ * reported percentiles, the upper bounds of the buckets, exceed the actual values by at most
+ * 12.5%. Recording increments a single {@link LongAdder}, which does not contend under
+ * concurrent updates; reading the histogram sums all buckets. The adder of a bucket is only
+ * allocated when the first latency falls into it: the latencies of an endpoint usually
+ * concentrate in a few buckets.</p>
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // latencies of 2^38 microseconds (about three days) and longer fall into the last bucket
+    private static final int MAX_MAGNITUDE = 38;
+
+    static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // null elements until a latency falls into the bucket
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+
+    void record(long nanos) {
+        int index = bucketIndex(TimeUnit.NANOSECONDS.toMicros(nanos));
+        LongAdder bucket = buckets.get(index);
+        if (bucket == null) {
+            buckets.compareAndSet(index, null, new LongAdder());
+            bucket = buckets.get(index);
+        }
+        bucket.increment();
+    }
+
+    private long getBucketCount(int index) {
+        LongAdder bucket = buckets.get(index);
+        if (bucket == null) {
+            return 0L;
+        }
+        return bucket.sum();
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0L);
+        }
+
+        int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+        if (magnitude >= MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int subBucket = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest latency falling into the bucket.
+     *
+     * @param index the index of the bucket
+     * @return the upper bound in microseconds, inclusive
+     */
+    static long bucketUpperBound(int index) {
+        int next = index + 1;
+        if (next < SUB_BUCKETS) {
+            return index;
+        }
+
+        long lowerBoundOfNext = (long) (SUB_BUCKETS + next % SUB_BUCKETS) << (next / SUB_BUCKETS - 1);
+        return lowerBoundOfNext - 1;
+    }
+
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += getBucketCount(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the percentile of the recorded latencies.
+     *
+     * @param quantile the quantile, between {@code 0.0} and {@code 1.0}, e.g. {@code 0.99} for the 99th percentile
+     * @return the upper bound of the bucket of the percentile in microseconds, or {@code 0} if nothing was recorded
+     */
+    long getPercentileMicros(double quantile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = getBucketCount(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(BUCKET_COUNT - 1);
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection wrapper giving the physical connection back to its {@link IdleConnectionPool}
+ * on {@link #close()}.
+ *
+ * <p>Before the connection is returned, the statements created through the wrapper are closed,
+ * an open transaction is rolled back, and the auto-commit, read-only, transaction isolation,
+ * catalog and schema settings are reset to the values the connection had when it was opened.
+ * A connection failing to reset, or whose client info was changed, is closed instead.</p>
+ *
+ * <p>The statements, and the result sets they return, are wrapped too: their
+ * {@code getConnection()} and {@code getStatement()} methods return the wrappers, so that the
+ * physical connection is never exposed. Once closed, the wrapper and its statements cannot be
+ * used any more.</p>
+ */
+final class PoolReturningConnection extends DelegatingConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PoolReturningConnection.class);
+
+    private final IdleConnectionPool pool;
+    private final Connection delegate;
+    private final long createdNanos;
+    private final Configuration configuration;
+
+    private final boolean initialAutoCommit;
+    private final boolean initialReadOnly;
+    private final int initialTransactionIsolation;
+    private final String initialCatalog;
+    private final String initialSchema;
+
+    private volatile boolean clientInfoChanged;
+
+    // statements created through the wrapper and not closed yet
+    private final Set<Statement> openStatements = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    PoolReturningConnection(IdleConnectionPool pool, Connection delegate, long createdNanos,
+                            Configuration configuration) {
+        this.pool = pool;
+        this.delegate = delegate;
+        this.createdNanos = createdNanos;
+        this.configuration = configuration;
+
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int transactionIsolation = Connection.TRANSACTION_NONE;
+        String catalog = null;
+        String schema = null;
+        try {
+            autoCommit = delegate.getAutoCommit();
+            readOnly = delegate.isReadOnly();
+            transactionIsolation = delegate.getTransactionIsolation();
+            catalog = delegate.getCatalog();
+            schema = delegate.getSchema();
+        } catch (SQLException | AbstractMethodError e) {
+            LOGGER.debug("Could not read the initial state of the connection", e);
+        }
+        this.initialAutoCommit = autoCommit;
+        this.initialReadOnly = readOnly;
+        this.initialTransactionIsolation = transactionIsolation;
+        this.initialCatalog = catalog;
+        this.initialSchema = schema;
+    }
+
+    @Override
+    protected Connection getDelegate() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Connection is closed", "08003");
+        }
+        return delegate;
+    }
+
+    @Override
+    protected <T extends Statement> T createStatement(Class<T> type, StatementFactory<T> factory)
+            throws SQLException {
+        T statement = factory.create(getDelegate());
+        openStatements.add(statement);
+        return type.cast(newProxy(type, new StatementHandler(statement)));
+    }
+
+    private static Object newProxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(PoolReturningConnection.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        clientInfoChanged = true;
+        super.setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        clientInfoChanged = true;
+        super.setClientInfo(properties);
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed.get() || delegate.isClosed();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            closeStatements();
+            if (delegate.isClosed()) {
+                return;
+            }
+            reset();
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.debug("Closing connection to {}: could not reset it", pool.getUrl(), e);
+            JdbcUtils.closeQuietly(delegate);
+            return;
+        }
+
+        pool.giveBack(delegate, createdNanos, configuration);
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        closed.set(true);
+        delegate.abort(executor);
+    }
+
+    private void closeStatements() {
+        for (Statement statement : openStatements) {
+            try {
+                statement.close();
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.debug("Could not close statement of connection to {}", pool.getUrl(), e);
+            }
+        }
+        openStatements.clear();
+    }
+
+    private void reset() throws SQLException {
+        if (clientInfoChanged) {
+            throw new SQLException("Client info was changed: it cannot be reset");
+        }
+        if (!delegate.getAutoCommit()) {
+            delegate.rollback();
+        }
+        if (delegate.getAutoCommit() != initialAutoCommit) {
+            delegate.setAutoCommit(initialAutoCommit);
+        }
+        if (delegate.isReadOnly() != initialReadOnly) {
+            delegate.setReadOnly(initialReadOnly);
+        }
+        if (initialTransactionIsolation != Connection.TRANSACTION_NONE
+                && delegate.getTransactionIsolation() != initialTransactionIsolation) {
+            delegate.setTransactionIsolation(initialTransactionIsolation);
+        }
+        if (!Objects.equals(delegate.getCatalog(), initialCatalog)) {
+            delegate.setCatalog(initialCatalog);
+        }
+        if (!Objects.equals(delegate.getSchema(), initialSchema)) {
+            delegate.setSchema(initialSchema);
+        }
+        delegate.clearWarnings();
+    }
+
+    private void checkNotClosed(String methodName) throws SQLException {
+        if (closed.get() && !"close".equals(methodName) && !"isClosed".equals(methodName)) {
+            throw new SQLException("Connection is closed", "08003");
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ite) {
+            throw ite.getCause();
+        }
+    }
+
+    /**
+     * Returns the wrapper from {@code getConnection()}, wraps the result sets, and forgets the
+     * statement when it is closed.
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+
+        private StatementHandler(Statement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            checkNotClosed(methodName);
+            if ("getConnection".equals(methodName) && method.getParameterCount() == 0) {
+                return PoolReturningConnection.this;
+            }
+
+            Object result = PoolReturningConnection.invoke(statement, method, args);
+            if (result instanceof ResultSet) {
+                return newProxy(ResultSet.class, new ResultSetHandler((ResultSet) result, proxy));
+            }
+            if ("close".equals(methodName) && method.getParameterCount() == 0) {
+                openStatements.remove(statement);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the statement wrapper from {@code getStatement()}.
+     */
+    private final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet resultSet;
+        private final Object statementProxy;
+
+        private ResultSetHandler(ResultSet resultSet, Object statementProxy) {
+            this.resultSet = resultSet;
+            this.statementProxy = statementProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            checkNotClosed(methodName);
+            if ("getStatement".equals(methodName) && method.getParameterCount() == 0) {
+                return statementProxy;
+            }
+            return PoolReturningConnection.invoke(resultSet, method, args);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PoolReturningConnection{" + pool.getUrl() + '}';
+    }
+}
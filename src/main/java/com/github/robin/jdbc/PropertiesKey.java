@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Hash key of a URL and a snapshot of the connection properties. The
+ * {@value ConnectionType#ROUTING_KEY_PROPERTY} property is not part of the key: it only routes
+ * between URLs, so connect plans and pooled connections are shared between routing keys.
+ */
+final class PropertiesKey {
+
+    private final String url;
+    private final Map<Object, Object> properties;
+    private final int propertiesHashCode;
+    private final int hashCode;
+
+    PropertiesKey(String url, Properties properties) {
+        this.url = url;
+        if (properties == null || properties.isEmpty()) {
+            this.properties = Collections.emptyMap();
+        } else {
+            this.properties = new HashMap<>(properties);
+            this.properties.remove(ConnectionType.ROUTING_KEY_PROPERTY);
+        }
+        this.propertiesHashCode = this.properties.hashCode();
+        this.hashCode = Objects.hash(url, propertiesHashCode);
+    }
+
+    private PropertiesKey(String url, PropertiesKey propertiesKey) {
+        this.url = url;
+        this.properties = propertiesKey.properties;
+        this.propertiesHashCode = propertiesKey.propertiesHashCode;
+        this.hashCode = Objects.hash(url, propertiesHashCode);
+    }
+
+    /**
+     * Returns the key of another URL with the same properties. The properties are shared, not
+     * copied, hence this is cheap enough to be called for each URL of a connect attempt.
+     *
+     * @param otherUrl the URL of the new key
+     * @return the key of the URL and the properties of this key
+     */
+    PropertiesKey withUrl(String otherUrl) {
+        return new PropertiesKey(otherUrl, this);
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    boolean hasSameProperties(PropertiesKey other) {
+        return propertiesHashCode == other.propertiesHashCode && properties.equals(other.properties);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PropertiesKey)) {
+            return false;
+        }
+
+        PropertiesKey other = (PropertiesKey) o;
+        return hashCode == other.hashCode
+                && url.equals(other.url)
+                && properties.equals(other.properties);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        // properties are intentionally omitted: they might contain credentials
+        return "PropertiesKey{" + url + '}';
+    }
+}
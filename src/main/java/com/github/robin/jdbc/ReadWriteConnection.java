@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read/write splitting connection: statements are executed on the primary connection, except
+ * while the connection is read-only, when they are executed on a replica connection. The replica
+ * connection is opened on the first switch, and kept until the connection is closed.
+ *
+ * <p>Switching to the replica happens when {@link #setReadOnly(boolean)} is called outside a
+ * transaction, that is, in auto-commit mode: within a transaction, the call is passed to the
+ * current connection only. Switching back to the primary always happens: a read-only transaction
+ * in progress on the replica is committed first. The auto-commit mode, catalog, schema and
+ * transaction isolation set on this connection are carried over on switch.</p>
+ *
+ * <p>If no replica connection can be opened, the primary connection serves the reads too, and
+ * connecting to the replicas is not retried until the retry delay elapses.</p>
+ *
+ * <p>Like the connections of most drivers, instances are not meant to be shared by threads.</p>
+ */
+final class ReadWriteConnection extends DelegatingConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadWriteConnection.class);
+
+    /**
+     * Opens the replica connection.
+     */
+    @FunctionalInterface
+    interface ReplicaConnector {
+
+        /**
+         * @return the replica connection, or {@code null} if there is no replica to connect to
+         * @throws SQLException if the replicas cannot be connected to
+         */
+        Connection connect() throws SQLException;
+    }
+
+    private static final int ISOLATION_NOT_SET = -1;
+
+    private final Connection primary;
+    private final ReplicaConnector replicaConnector;
+    private final long replicaRetryDelayNanos;
+
+    private Connection replica;
+    private Connection current;
+    private boolean replicaConnectFailed;
+    private long replicaConnectFailedNanos;
+
+    // the session state set on this connection, applied to the connection switched to
+    private Boolean autoCommit;
+    private String catalog;
+    private String schema;
+    private int transactionIsolation = ISOLATION_NOT_SET;
+
+    ReadWriteConnection(Connection primary, ReplicaConnector replicaConnector, long replicaRetryDelayMillis) {
+        this.primary = primary;
+        this.replicaConnector = replicaConnector;
+        this.replicaRetryDelayNanos = TimeUnit.MILLISECONDS.toNanos(replicaRetryDelayMillis);
+        this.current = primary;
+    }
+
+    @Override
+    protected Connection getDelegate() {
+        return current;
+    }
+
+    boolean isUsingReplica() {
+        return current != primary;
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        if (readOnly) {
+            if (isAutoCommit()) {
+                switchTo(getReplica());
+            } else {
+                LOGGER.debug("setReadOnly(true) called within a transaction: not switching to the replica");
+            }
+        } else if (isUsingReplica()) {
+            if (!isAutoCommit()) {
+                LOGGER.debug("setReadOnly(false) called within a transaction: committing it on the replica");
+                current.commit();
+            }
+            switchTo(primary);
+        }
+
+        current.setReadOnly(readOnly);
+    }
+
+    private boolean isAutoCommit() throws SQLException {
+        if (autoCommit == null) {
+            autoCommit = current.getAutoCommit();
+        }
+        return autoCommit;
+    }
+
+    private Connection getReplica() throws SQLException {
+        if (replica == null) {
+            if (primary.isClosed() || isReplicaConnectBackingOff()) {
+                return primary;
+            }
+
+            try {
+                replica = replicaConnector.connect();
+            } catch (SQLException sqlException) {
+                replicaConnectFailed = true;
+                replicaConnectFailedNanos = System.nanoTime();
+                LOGGER.warn("Could not connect to any replica, reading from the primary: {}",
+                        sqlException.toString());
+                LOGGER.debug("Could not connect to any replica", sqlException);
+            }
+
+            if (replica == null) {
+                return primary;
+            }
+        }
+        return replica;
+    }
+
+    private boolean isReplicaConnectBackingOff() {
+        return replicaConnectFailed && System.nanoTime() - replicaConnectFailedNanos < replicaRetryDelayNanos;
+    }
+
+    private void switchTo(Connection target) throws SQLException {
+        if (target != current) {
+            if (transactionIsolation != ISOLATION_NOT_SET) {
+                target.setTransactionIsolation(transactionIsolation);
+            }
+            if (catalog != null) {
+                target.setCatalog(catalog);
+            }
+            if (schema != null) {
+                target.setSchema(schema);
+            }
+            // last, so that a transaction is only started once the rest of the state is set
+            if (autoCommit != null && target.getAutoCommit() != autoCommit) {
+                target.setAutoCommit(autoCommit);
+            }
+            LOGGER.debug("Switching to the {} connection", getRole(target));
+            current = target;
+        }
+    }
+
+    private String getRole(Connection connection) {
+        if (connection == primary) {
+            return "primary";
+        }
+        return "replica";
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        current.setAutoCommit(autoCommit);
+        this.autoCommit = autoCommit;
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        current.setCatalog(catalog);
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        current.setSchema(schema);
+        this.schema = schema;
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        current.setTransactionIsolation(level);
+        transactionIsolation = level;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (replica != null) {
+                replica.close();
+            }
+        } finally {
+            current = primary;
+            primary.close();
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        try {
+            if (replica != null) {
+                replica.abort(executor);
+            }
+        } finally {
+            current = primary;
+            primary.abort(executor);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReadWriteConnection{" + getRole(current) + '}';
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Connection wrapper surviving the loss of its session: once a connection-level failure is
+ * detected, the wrapper is marked broken, and the next call made outside a transaction opens
+ * a new connection, through the same URL list the original connection was opened with.
+ *
+ * <p>Connection-level failures are exceptions of SQLState class {@value #CONNECTION_EXCEPTION_CLASS}
+ * and server shutdown SQLStates, thrown by the connection or by the statements created by it,
+ * or a failing {@link #isValid(int)} check. The failed call itself is not retried, except for
+ * the creation of statements, which has no side effects. Within a transaction the failure is
+ * reported as is: the transaction is lost, and reconnection only happens once it is ended with
+ * {@link #commit()}, {@link #rollback()} or {@link #setAutoCommit(boolean)}.</p>
+ *
+ * <p>The auto-commit mode, and the read-only, transaction isolation, catalog and schema settings
+ * made through the wrapper are restored on the new connection. Like the connections of most
+ * drivers, instances are not meant to be shared by threads.</p>
+ */
+final class ReconnectingConnection extends DelegatingConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReconnectingConnection.class);
+
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    // admin_shutdown, crash_shutdown and cannot_connect_now of PostgreSQL
+    private static final Set<String> SHUTDOWN_SQL_STATES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("57P01", "57P02", "57P03")));
+
+    /**
+     * Opens the connection replacing the broken one.
+     */
+    @FunctionalInterface
+    interface Reconnector {
+        Connection connect() throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionCall<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionAction {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    private final Reconnector reconnector;
+
+    private Connection delegate;
+    private volatile boolean broken;
+    private volatile boolean closed;
+    private boolean transactionStarted;
+
+    // session state set through the wrapper: null if not set
+    private boolean autoCommit;
+    private Boolean readOnly;
+    private Integer transactionIsolation;
+    private String catalog;
+    private String schema;
+
+    ReconnectingConnection(Connection delegate, Reconnector reconnector) throws SQLException {
+        this.delegate = delegate;
+        this.reconnector = reconnector;
+        this.autoCommit = delegate.getAutoCommit();
+    }
+
+    /**
+     * Returns whether the exception signals the loss of the session.
+     *
+     * @param sqlException the exception to check, including its chained exceptions
+     * @return {@code true} if the exception is a connection-level failure
+     */
+    static boolean isConnectionFailure(SQLException sqlException) {
+        for (Throwable t = sqlException; t != null; t = t.getCause()) {
+            if (t instanceof SQLNonTransientConnectionException || t instanceof SQLTransientConnectionException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String sqlState = ((SQLException) t).getSQLState();
+                if (sqlState != null && (sqlState.startsWith(CONNECTION_EXCEPTION_CLASS)
+                        || SHUTDOWN_SQL_STATES.contains(sqlState))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected Connection getDelegate() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection is closed", "08003");
+        }
+        if (broken && !isInTransaction()) {
+            reconnect();
+        }
+        return delegate;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    private boolean isInTransaction() {
+        return !autoCommit && transactionStarted;
+    }
+
+    private void reconnect() throws SQLException {
+        LOGGER.info("Session of {} is lost, reconnecting", delegate);
+        JdbcUtils.closeQuietly(delegate);
+
+        Connection connection = reconnector.connect();
+        try {
+            restoreSessionState(connection);
+        } catch (SQLException sqlException) {
+            JdbcUtils.closeQuietly(connection);
+            throw sqlException;
+        }
+
+        delegate = connection;
+        broken = false;
+    }
+
+    private void restoreSessionState(Connection connection) throws SQLException {
+        if (catalog != null) {
+            connection.setCatalog(catalog);
+        }
+        if (schema != null) {
+            connection.setSchema(schema);
+        }
+        if (readOnly != null) {
+            connection.setReadOnly(readOnly);
+        }
+        if (transactionIsolation != null) {
+            connection.setTransactionIsolation(transactionIsolation);
+        }
+        if (connection.getAutoCommit() != autoCommit) {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void onException(SQLException sqlException) {
+        if (!broken && isConnectionFailure(sqlException)) {
+            LOGGER.warn("Connection-level failure, session of {} is lost: {}", delegate, sqlException.toString());
+            broken = true;
+        }
+    }
+
+    private <T> T call(ConnectionCall<T> call) throws SQLException {
+        try {
+            return call.apply(getDelegate());
+        } catch (SQLException sqlException) {
+            onException(sqlException);
+            throw sqlException;
+        }
+    }
+
+    private void run(ConnectionAction action) throws SQLException {
+        try {
+            action.apply(getDelegate());
+        } catch (SQLException sqlException) {
+            onException(sqlException);
+            throw sqlException;
+        }
+    }
+
+    /**
+     * Creates a statement, retrying once on a new connection if the session is found lost
+     * outside a transaction, and wraps it to detect connection-level failures.
+     */
+    @Override
+    protected <T extends Statement> T createStatement(Class<T> type, StatementFactory<T> factory)
+            throws SQLException {
+        T statement;
+        try {
+            statement = call(factory::create);
+        } catch (SQLException sqlException) {
+            if (!broken || isInTransaction()) {
+                throw sqlException;
+            }
+            LOGGER.debug("Creating the statement again on a new connection");
+            statement = call(factory::create);
+        }
+
+        return type.cast(Proxy.newProxyInstance(ReconnectingConnection.class.getClassLoader(),
+                new Class<?>[] {type}, new StatementHandler(statement)));
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        try {
+            run(c -> c.setAutoCommit(autoCommit));
+            this.autoCommit = autoCommit;
+        } finally {
+            transactionStarted = false;
+        }
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return call(Connection::getAutoCommit);
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        try {
+            run(Connection::commit);
+        } finally {
+            transactionStarted = false;
+        }
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        try {
+            run(Connection::rollback);
+        } finally {
+            transactionStarted = false;
+        }
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        run(c -> c.setReadOnly(readOnly));
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        run(c -> c.setTransactionIsolation(level));
+        this.transactionIsolation = level;
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        run(c -> c.setCatalog(catalog));
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        run(c -> c.setSchema(schema));
+        this.schema = schema;
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        if (closed) {
+            return false;
+        }
+        if (call(c -> c.isValid(timeout))) {
+            return true;
+        }
+
+        broken = true;
+        if (isInTransaction()) {
+            return false;
+        }
+        try {
+            return getDelegate().isValid(timeout);
+        } catch (SQLException sqlException) {
+            LOGGER.debug("Could not reconnect", sqlException);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (broken) {
+            JdbcUtils.closeQuietly(delegate);
+        } else {
+            delegate.close();
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        closed = true;
+        delegate.abort(executor);
+    }
+
+    @Override
+    public String toString() {
+        return "ReconnectingConnection{" + delegate + '}';
+    }
+
+    /**
+     * Forwards the calls to the statement, detecting connection-level failures and the start
+     * of transactions, and returns the wrapper as the connection of the statement.
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+
+        private StatementHandler(Statement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("getConnection".equals(methodName) && method.getParameterCount() == 0) {
+                return ReconnectingConnection.this;
+            }
+            if (!autoCommit && methodName.startsWith("execute")) {
+                transactionStarted = true;
+            }
+
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException ite) {
+                Throwable cause = ite.getCause();
+                if (cause instanceof SQLException) {
+                    onException((SQLException) cause);
+                }
+                throw cause;
+            }
+        }
+    }
+}
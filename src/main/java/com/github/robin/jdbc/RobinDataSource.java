@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.ConnectionURLSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link DataSource} for robin URLs, primarily intended to be used by connection pools.
+ *
+ * <p>Contrary to {@link Driver}, the URL is parsed, the configuration is validated and the
+ * URL template is evaluated only once, when the data source is created: each
+ * {@link #getConnection()} call goes straight to connecting to the delegate URLs.</p>
+ *
+ * <p>Instances are immutable and thread-safe.</p>
+ */
+public final class RobinDataSource implements DataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RobinDataSource.class);
+
+    private static final String USER_PROPERTY = "user";
+    private static final String PASSWORD_PROPERTY = "password";
+
+    private final ConnectionFactory connectionFactory;
+    private final String factoryConfiguration;
+    private final Properties properties;
+    // replaced when stale, as the URLs changed
+    private volatile ConnectPlan connectPlan;
+
+    private volatile PrintWriter logWriter;
+    private volatile int loginTimeout;
+
+    /**
+     * Creates a data source for the robin URL.
+     *
+     * @param url the robin JDBC URL
+     * @throws SQLException if the URL is invalid
+     */
+    public RobinDataSource(String url) throws SQLException {
+        this(url, new Properties());
+    }
+
+    /**
+     * Creates a data source for the robin URL, using the given properties for each connection.
+     *
+     * @param url the robin JDBC URL
+     * @param properties the connection properties; copied, later changes are not reflected
+     * @throws SQLException if the URL or the configuration is invalid
+     */
+    public RobinDataSource(String url, Properties properties) throws SQLException {
+        this(ConnectionFactory.getInstance(), url, properties);
+    }
+
+    RobinDataSource(ConnectionFactory connectionFactory, String url, Properties properties) throws SQLException {
+        Objects.requireNonNull(url, "url cannot be null");
+        Objects.requireNonNull(properties, "properties cannot be null");
+
+        if (!url.startsWith(Driver.JDBC_URL_PREFIX)) {
+            throw new SQLException(String.format("Invalid URL: '%s' must start with '%s'",
+                    url, Driver.JDBC_URL_PREFIX));
+        }
+
+        this.connectionFactory = connectionFactory;
+        this.factoryConfiguration = url.substring(Driver.JDBC_URL_PREFIX.length());
+        this.properties = (Properties) properties.clone();
+
+        try {
+            this.connectPlan = connectionFactory.getConnectPlan(factoryConfiguration, this.properties);
+        } catch (ConnectionURLSyntaxException ex) {
+            throw Driver.toSQLException(ex);
+        }
+
+        LOGGER.debug("Data source created with {}", connectPlan);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return connectionFactory.connect(this::getCurrentConnectPlan, properties);
+        } catch (ConnectionURLSyntaxException ex) {
+            throw Driver.toSQLException(ex);
+        }
+    }
+
+    private ConnectPlan getCurrentConnectPlan() throws SQLException, ConnectionURLSyntaxException {
+        ConnectPlan plan = connectPlan;
+        if (plan.isStale()) {
+            plan = connectionFactory.getConnectPlan(factoryConfiguration, properties);
+            connectPlan = plan;
+        }
+        return plan;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Properties connectionProperties = (Properties) properties.clone();
+        setOrRemove(connectionProperties, USER_PROPERTY, username);
+        setOrRemove(connectionProperties, PASSWORD_PROPERTY, password);
+
+        try {
+            return connectionFactory.connect(
+                    () -> connectionFactory.getConnectPlan(factoryConfiguration, connectionProperties),
+                    connectionProperties);
+        } catch (ConnectionURLSyntaxException ex) {
+            throw Driver.toSQLException(ex);
+        }
+    }
+
+    /**
+     * Connects asynchronously, on a shared executor using virtual threads if the runtime supports
+     * them, and daemon platform threads otherwise.
+     *
+     * @return the future of the connection; cancelling it closes the connection if it is opened later
+     * @see #getConnectionAsync(Executor)
+     */
+    public CompletableFuture<Connection> getConnectionAsync() {
+        return getConnectionAsync(RobinExecutors.getAsyncConnectExecutor());
+    }
+
+    /**
+     * Connects asynchronously on the given executor: the failover or load balancing sequence of
+     * {@link #getConnection()} runs on a thread of the executor.
+     *
+     * <p>Cancelling the returned future with {@code mayInterruptIfRunning} set interrupts the
+     * connecting thread. A connection opened after the future was cancelled is closed.</p>
+     *
+     * @param executor the executor to connect on
+     * @return the future of the connection, failed with a {@link SQLException} if connecting fails
+     */
+    public CompletableFuture<Connection> getConnectionAsync(Executor executor) {
+        Objects.requireNonNull(executor, "executor cannot be null");
+
+        return AsyncConnector.connect(this::getConnection, executor);
+    }
+
+    private static void setOrRemove(Properties props, String key, String value) {
+        if (value != null) {
+            props.setProperty(key, value);
+        } else {
+            props.remove(key);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.logWriter = out;
+    }
+
+    /**
+     * Stores the login timeout only: the timeouts of the delegate drivers apply when connecting.
+     */
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return loginTimeout;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("java.util.logging is not used by this driver");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (isWrapperFor(iface)) {
+            return iface.cast(this);
+        }
+
+        throw new SQLException("Not a wrapper for: " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface != null && iface.isInstance(this);
+    }
+
+    @Override
+    public String toString() {
+        return "RobinDataSource{" + Driver.JDBC_URL_PREFIX + factoryConfiguration + '}';
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Emits Java Flight Recorder events of the connect phases: see {@code JfrRobinEvents}.
+ *
+ * <p>The driver is built for Java 8, hence the JFR event classes are compiled for Java 11 from
+ * {@code src/main/java11}, and only loaded if the runtime has the {@code jdk.jfr} API and can load
+ * Java 11 classes; otherwise, a no-op implementation is used. The {@code begin}
+ * methods return the event in progress, to be passed to the matching {@code end} method, or
+ * {@code null} if the event is not enabled in any recording: as only one implementation is
+ * ever loaded, the calls are inlined and cost nothing beyond a check if recording is off.</p>
+ */
+abstract class RobinEvents {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RobinEvents.class);
+
+    private static final String JFR_EVENT_CLASS_NAME = "jdk.jfr.Event";
+
+    private static final RobinEvents INSTANCE = load();
+
+    static RobinEvents getInstance() {
+        return INSTANCE;
+    }
+
+    private static RobinEvents load() {
+        try {
+            Class.forName(JFR_EVENT_CLASS_NAME);
+        } catch (ClassNotFoundException cnfe) {
+            LOGGER.debug("Java Flight Recorder is not available: not emitting events");
+            return new Disabled();
+        }
+
+        try {
+            // loaded reflectively, so that the JFR event classes are never loaded without the JFR API
+            return (RobinEvents) Class.forName(RobinEvents.class.getPackage().getName() + ".JfrRobinEvents")
+                    .getDeclaredConstructor().newInstance();
+        } catch (UnsupportedClassVersionError ucve) {
+            // e.g. a Java 8 update with the JFR API backported
+            LOGGER.debug("Java Flight Recorder events require Java 11: not emitting events");
+            return new Disabled();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.warn("Could not initialize Java Flight Recorder events", e);
+            return new Disabled();
+        }
+    }
+
+    abstract Object beginConnect();
+
+    /**
+     * Ends the event of a connect call.
+     *
+     * @param event the event returned by {@link #beginConnect()}
+     * @param connectPlan the plan of the connect, or {@code null} if the plan could not be created
+     * @param success whether a connection was returned
+     */
+    abstract void endConnect(Object event, ConnectPlan connectPlan, boolean success);
+
+    abstract Object beginConnectAttempt();
+
+    /**
+     * Ends the event of a connection attempt to a delegate URL.
+     *
+     * @param event the event returned by {@link #beginConnectAttempt()}
+     * @param url the delegate URL
+     * @param success whether the attempt succeeded
+     * @param failure the exception the attempt failed with, or {@code null}
+     */
+    abstract void endConnectAttempt(Object event, String url, boolean success, SQLException failure);
+
+    abstract Object beginTemplateEvaluation();
+
+    /**
+     * Ends the event of the compilation and evaluation of a URL template.
+     *
+     * @param event the event returned by {@link #beginTemplateEvaluation()}
+     * @param urls the URLs yielded by the template, or {@code null} if the evaluation failed
+     */
+    abstract void endTemplateEvaluation(Object event, List<String> urls);
+
+    abstract Object beginConfigurationParse();
+
+    abstract void endConfigurationParse(Object event, boolean success);
+
+    private static final class Disabled extends RobinEvents {
+
+        @Override
+        Object beginConnect() {
+            return null;
+        }
+
+        @Override
+        void endConnect(Object event, ConnectPlan connectPlan, boolean success) {
+            // no-op
+        }
+
+        @Override
+        Object beginConnectAttempt() {
+            return null;
+        }
+
+        @Override
+        void endConnectAttempt(Object event, String url, boolean success, SQLException failure) {
+            // no-op
+        }
+
+        @Override
+        Object beginTemplateEvaluation() {
+            return null;
+        }
+
+        @Override
+        void endTemplateEvaluation(Object event, List<String> urls) {
+            // no-op
+        }
+
+        @Override
+        Object beginConfigurationParse() {
+            return null;
+        }
+
+        @Override
+        void endConfigurationParse(Object event, boolean success) {
+            // no-op
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors shared by the driver for running work in the background.
+ * All threads are daemon threads, so that the driver never prevents the JVM from exiting.
+ */
+final class RobinExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RobinExecutors.class);
+
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60L;
+
+    private RobinExecutors() {
+        throw new AssertionError("static utility class");
+    }
+
+    /**
+     * Returns the executor used for running connection attempts in the background.
+     * Connection attempts might block for a long time, hence threads are created on demand
+     * and idle threads are discarded after a while.
+     *
+     * @return the shared executor; never {@code null}
+     */
+    static ExecutorService getConnectExecutor() {
+        return ConnectExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the single-threaded executor used for scheduling periodic background tasks.
+     * The scheduled tasks must not block: blocking work is to be handed over to another executor.
+     *
+     * @return the shared scheduler; never {@code null}
+     */
+    static ScheduledExecutorService getScheduler() {
+        return SchedulerHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the executor used for background endpoint probes: a virtual thread per task
+     * executor if the runtime supports virtual threads, the connect executor otherwise.
+     *
+     * @return the shared executor; never {@code null}
+     */
+    static ExecutorService getProbeExecutor() {
+        return VirtualThreadExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the default executor of asynchronous connects: the same executor as
+     * {@link #getProbeExecutor()}, using virtual threads if the runtime supports them.
+     *
+     * @return the shared executor; never {@code null}
+     */
+    static ExecutorService getAsyncConnectExecutor() {
+        return VirtualThreadExecutorHolder.INSTANCE;
+    }
+
+    static ThreadFactory newDaemonThreadFactory(String namePrefix) {
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class ConnectExecutorHolder {
+
+        private static final ExecutorService INSTANCE = new ThreadPoolExecutor(
+                0, Integer.MAX_VALUE,
+                IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                newDaemonThreadFactory("robin-connect"));
+    }
+
+    private static final class SchedulerHolder {
+
+        private static final ScheduledExecutorService INSTANCE = newScheduler();
+
+        private static ScheduledExecutorService newScheduler() {
+            ScheduledThreadPoolExecutor scheduler =
+                    new ScheduledThreadPoolExecutor(1, newDaemonThreadFactory("robin-scheduler"));
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+    private static final class VirtualThreadExecutorHolder {
+
+        private static final ExecutorService INSTANCE = newVirtualThreadExecutor();
+
+        private static ExecutorService newVirtualThreadExecutor() {
+            try {
+                // Java 21+: looked up reflectively, as the driver is built for Java 8
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                LOGGER.debug("Using virtual threads for probes and asynchronous connects");
+                return executor;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.debug("Virtual threads are not available: "
+                        + "using platform threads for probes and asynchronous connects");
+                return getConnectExecutor();
+            }
+        }
+    }
+}
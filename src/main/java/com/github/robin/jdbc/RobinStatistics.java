@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide statistics of robin: the per-endpoint {@link EndpointMetrics} held by the
+ * {@link EndpointRegistry}, and the time spent creating connect plans. Registered to the
+ * platform MBean server on first use.
+ */
+final class RobinStatistics implements RobinStatisticsMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RobinStatistics.class);
+
+    static final String OBJECT_NAME = "com.github.robin.jdbc:type=RobinStatistics";
+
+    static final String JMX_ENABLED_SYSTEM_PROPERTY = "com.github.robin.jdbc.jmx";
+
+    private static final RobinStatistics INSTANCE = register(new RobinStatistics(EndpointRegistry.getInstance()));
+
+    private final EndpointRegistry endpointRegistry;
+
+    private final LongAdder configurationParseCount = new LongAdder();
+    private final LongAdder configurationParseNanos = new LongAdder();
+    private final LongAdder templateEvaluationCount = new LongAdder();
+    private final LongAdder templateEvaluationNanos = new LongAdder();
+
+    RobinStatistics(EndpointRegistry endpointRegistry) {
+        this.endpointRegistry = endpointRegistry;
+    }
+
+    static RobinStatistics getInstance() {
+        return INSTANCE;
+    }
+
+    private static RobinStatistics register(RobinStatistics statistics) {
+        if (!Boolean.parseBoolean(System.getProperty(JMX_ENABLED_SYSTEM_PROPERTY, Boolean.TRUE.toString()))) {
+            LOGGER.debug("JMX registration is disabled by system property {}", JMX_ENABLED_SYSTEM_PROPERTY);
+            return statistics;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, new ObjectName(OBJECT_NAME));
+            LOGGER.debug("Registered MBean {}", OBJECT_NAME);
+        } catch (InstanceAlreadyExistsException iae) {
+            // e.g. the driver is loaded by multiple class loaders
+            LOGGER.info("MBean {} is registered already: not registering again", OBJECT_NAME);
+        } catch (JMException | SecurityException e) {
+            LOGGER.warn("Could not register MBean {}", OBJECT_NAME, e);
+        }
+        return statistics;
+    }
+
+    void recordConfigurationParse(long nanos) {
+        configurationParseCount.increment();
+        configurationParseNanos.add(nanos);
+    }
+
+    void recordTemplateEvaluation(long nanos) {
+        templateEvaluationCount.increment();
+        templateEvaluationNanos.add(nanos);
+    }
+
+    @Override
+    public List<EndpointStatistics> getEndpointStatistics() {
+        List<EndpointStatistics> statistics = new ArrayList<>();
+        for (EndpointState endpointState : endpointRegistry.getEndpoints()) {
+            EndpointMetrics metrics = endpointState.getMetrics();
+            if (metrics.getAttempts() > 0) {
+                statistics.add(new EndpointStatistics(endpointState.getUrl(), metrics));
+            }
+        }
+        return statistics;
+    }
+
+    @Override
+    public long getConfigurationParseCount() {
+        return configurationParseCount.sum();
+    }
+
+    @Override
+    public long getConfigurationParseTimeMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(configurationParseNanos.sum());
+    }
+
+    @Override
+    public long getTemplateEvaluationCount() {
+        return templateEvaluationCount.sum();
+    }
+
+    @Override
+    public long getTemplateEvaluationTimeMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(templateEvaluationNanos.sum());
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.util.List;
+
+/**
+ * Management interface of the driver-level statistics of robin, registered to the platform
+ * MBean server as {@value RobinStatistics#OBJECT_NAME}, unless the system property
+ * {@value RobinStatistics#JMX_ENABLED_SYSTEM_PROPERTY} is {@code false}.
+ */
+public interface RobinStatisticsMXBean {
+
+    /**
+     * Returns the connection attempt statistics of each delegate URL attempted so far.
+     *
+     * @return the statistics of the delegate URLs
+     */
+    List<EndpointStatistics> getEndpointStatistics();
+
+    /**
+     * Returns the number of times the configuration section of a robin URL was parsed:
+     * once per connect plan created.
+     *
+     * @return the number of configuration parses
+     */
+    long getConfigurationParseCount();
+
+    /**
+     * Returns the total time spent parsing the configuration section of robin URLs.
+     *
+     * @return the total time in microseconds
+     */
+    long getConfigurationParseTimeMicros();
+
+    /**
+     * Returns the number of times a URL template was compiled and evaluated: once per connect plan created.
+     *
+     * @return the number of template evaluations
+     */
+    long getTemplateEvaluationCount();
+
+    /**
+     * Returns the total time spent compiling and evaluating URL templates.
+     *
+     * @return the total time in microseconds
+     */
+    long getTemplateEvaluationTimeMicros();
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable view of a random access list, rotated to start at the given index.
+ *
+ * @param <E> the type of the elements
+ */
+final class RotatedList<E> extends AbstractList<E> implements RandomAccess {
+
+    private final List<E> list;
+    private final int offset;
+
+    RotatedList(List<E> list, int offset) {
+        this.list = list;
+        this.offset = offset;
+    }
+
+    @Override
+    public E get(int index) {
+        final int size = list.size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        int rotatedIndex = index + offset;
+        if (rotatedIndex >= size) {
+            rotatedIndex -= size;
+        }
+        return list.get(rotatedIndex);
+    }
+
+    @Override
+    public int size() {
+        return list.size();
+    }
+}
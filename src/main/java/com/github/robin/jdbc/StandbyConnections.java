@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps warm standby connections to the next failover candidate of the registered connect plans:
+ * the second URL of the plan, in the order of availability. The connections are opened, validated
+ * and replenished in the background, and handed out when a connect fails over to their URL,
+ * so that failing over costs no connection handshake.
+ *
+ * <p>When the preferred URL becomes unavailable, the standby URL changes: the standby connections
+ * opened to the previous candidate are kept until they are handed out, found invalid or expire.
+ * When the plan is {@linkplain #unregister(PropertiesKey, ConnectPlan) unregistered}, its maintenance
+ * stops, and the standby connections no other registered plan keeps are closed.</p>
+ */
+final class StandbyConnections {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StandbyConnections.class);
+
+    static final int MAX_TARGETS = 1024;
+
+    private static final StandbyConnections INSTANCE = new StandbyConnections(
+            RobinExecutors.getScheduler(), RobinExecutors.getProbeExecutor(),
+            EndpointRegistry.getInstance(), HealthProber.getInstance());
+
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final EndpointRegistry endpointRegistry;
+    private final HealthProber healthProber;
+
+    private final ConcurrentMap<PropertiesKey, Target> targets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<PropertiesKey, Deque<StandbyConnection>> standbyConnections =
+            new ConcurrentHashMap<>();
+
+    StandbyConnections(ScheduledExecutorService scheduler, Executor executor,
+                       EndpointRegistry endpointRegistry, HealthProber healthProber) {
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.endpointRegistry = endpointRegistry;
+        this.healthProber = healthProber;
+    }
+
+    static StandbyConnections getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts keeping standby connections for the plan. If a plan with the same key is registered
+     * already, e.g. as the plan was recreated as its URLs changed, the plan is replaced.
+     *
+     * @param key the key of the plan in the {@link ConnectPlanCache}
+     * @param connectPlan the plan
+     * @param properties the properties to connect with
+     */
+    void register(PropertiesKey key, ConnectPlan connectPlan, Properties properties) {
+        if (targets.size() >= MAX_TARGETS) {
+            LOGGER.warn("Maximum number of {} plans with standby connections reached: not registering {}",
+                    MAX_TARGETS, connectPlan);
+            return;
+        }
+
+        Target existingTarget = targets.get(key);
+        if (existingTarget != null) {
+            existingTarget.connectPlan = connectPlan;
+            return;
+        }
+
+        targets.computeIfAbsent(key, k -> {
+            Target target = new Target(connectPlan, copyOf(properties));
+            long intervalMillis = connectPlan.getConfiguration().getStandbyValidationIntervalMillis();
+            target.scheduledMaintenance = scheduler.scheduleWithFixedDelay(
+                    target::schedule, 0, intervalMillis, TimeUnit.MILLISECONDS);
+            LOGGER.debug("Keeping standby connections for {}", connectPlan);
+            return target;
+        });
+    }
+
+    /**
+     * Stops keeping standby connections for the plan, and closes those no other plan keeps.
+     * Nothing happens if the plan was replaced already by a plan registered with the same key.
+     *
+     * @param key the key of the plan in the {@link ConnectPlanCache}
+     * @param connectPlan the plan removed from the cache
+     */
+    void unregister(PropertiesKey key, ConnectPlan connectPlan) {
+        Target target = targets.get(key);
+        if (target == null || target.connectPlan != connectPlan || !targets.remove(key, target)) {
+            return;
+        }
+
+        target.registered = false;
+        target.scheduledMaintenance.cancel(false);
+        LOGGER.debug("Stopped keeping standby connections for {}", connectPlan);
+
+        for (PropertiesKey standbyKey : target.standbyKeys) {
+            if (!isKeptByAnyTarget(standbyKey)) {
+                Deque<StandbyConnection> connections = standbyConnections.remove(standbyKey);
+                if (connections != null) {
+                    closeAll(connections);
+                }
+            }
+        }
+    }
+
+    private boolean isKeptByAnyTarget(PropertiesKey standbyKey) {
+        for (Target target : targets.values()) {
+            if (target.standbyKeys.contains(standbyKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void closeAll(Deque<StandbyConnection> connections) {
+        StandbyConnection standbyConnection;
+        while ((standbyConnection = connections.pollFirst()) != null) {
+            JdbcUtils.closeQuietly(standbyConnection.connection);
+        }
+    }
+
+    private static Properties copyOf(Properties properties) {
+        Properties copy = new Properties();
+        if (properties != null) {
+            copy.putAll(properties);
+        }
+        return copy;
+    }
+
+    /**
+     * Takes a standby connection to the URL, discarding the expired ones.
+     *
+     * @param url the URL to take a connection to
+     * @param properties the properties of the connect call
+     * @param configuration the configuration of the robin URL taking the connection
+     * @return the connection, or {@code null} if there is no standby connection to the URL
+     */
+    Connection take(String url, Properties properties, Configuration configuration) {
+        Deque<StandbyConnection> connections = standbyConnections.get(new PropertiesKey(url, properties));
+        if (connections == null) {
+            return null;
+        }
+
+        StandbyConnection standbyConnection;
+        while ((standbyConnection = connections.pollFirst()) != null) {
+            if (!IdleConnectionPool.isExpired(standbyConnection.createdNanos, configuration)) {
+                return standbyConnection.connection;
+            }
+            JdbcUtils.closeQuietly(standbyConnection.connection);
+        }
+
+        return null;
+    }
+
+    int getStandbyCount(String url, Properties properties) {
+        Deque<StandbyConnection> connections = standbyConnections.get(new PropertiesKey(url, properties));
+        if (connections == null) {
+            return 0;
+        }
+        return connections.size();
+    }
+
+    /**
+     * Closes all standby connections.
+     */
+    void clear() {
+        for (Deque<StandbyConnection> connections : standbyConnections.values()) {
+            closeAll(connections);
+        }
+    }
+
+    int getTargetCount() {
+        return targets.size();
+    }
+
+    private final class Target {
+
+        private volatile ConnectPlan connectPlan;
+        private final Properties properties;
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+
+        // the keys of the standby connections this target opened
+        private final Set<PropertiesKey> standbyKeys = ConcurrentHashMap.newKeySet();
+
+        private volatile ScheduledFuture<?> scheduledMaintenance;
+        private volatile boolean registered = true;
+
+        private Target(ConnectPlan connectPlan, Properties properties) {
+            this.connectPlan = connectPlan;
+            this.properties = properties;
+        }
+
+        void schedule() {
+            if (!inFlight.compareAndSet(false, true)) {
+                // the previous maintenance is still running, e.g. opening a slow connection
+                return;
+            }
+
+            try {
+                executor.execute(this::maintain);
+            } catch (RejectedExecutionException ree) {
+                inFlight.set(false);
+                LOGGER.debug("Maintenance of the standby connections was rejected", ree);
+            }
+        }
+
+        private void maintain() {
+            try {
+                ConnectPlan plan = connectPlan;
+                Configuration configuration = plan.getConfiguration();
+                List<String> urls = endpointRegistry.orderByAvailability(
+                        plan.getUrls(), plan.getPropertiesKey(), configuration, healthProber.getSnapshot());
+
+                for (String url : urls) {
+                    discardUnusable(standbyConnections.get(new PropertiesKey(url, properties)), configuration);
+                }
+
+                if (urls.size() > 1) {
+                    replenish(urls.get(1), configuration);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Maintenance of the standby connections failed", e);
+            } finally {
+                inFlight.set(false);
+            }
+        }
+
+        private void discardUnusable(Deque<StandbyConnection> connections, Configuration configuration) {
+            if (connections == null) {
+                return;
+            }
+            for (StandbyConnection standbyConnection : connections) {
+                if ((IdleConnectionPool.isExpired(standbyConnection.createdNanos, configuration)
+                        || !IdleConnectionPool.isValid(standbyConnection.connection))
+                        && connections.remove(standbyConnection)) {
+                    LOGGER.debug("Closing standby connection to {}: expired or invalid", standbyConnection.url);
+                    JdbcUtils.closeQuietly(standbyConnection.connection);
+                }
+            }
+        }
+
+        private void replenish(String url, Configuration configuration) {
+            PropertiesKey standbyKey = new PropertiesKey(url, properties);
+            standbyKeys.add(standbyKey);
+            Deque<StandbyConnection> connections =
+                    standbyConnections.computeIfAbsent(standbyKey, key -> new ConcurrentLinkedDeque<>());
+            while (registered && connections.size() < configuration.getStandbyConnections()) {
+                try {
+                    Connection connection = DelegateDrivers.getInstance().connect(url, properties);
+                    StandbyConnection standbyConnection = new StandbyConnection(url, connection, System.nanoTime());
+                    connections.offerLast(standbyConnection);
+                    if (!registered && connections.remove(standbyConnection)) {
+                        // unregistered while connecting: the connections were closed already
+                        JdbcUtils.closeQuietly(connection);
+                        return;
+                    }
+                    LOGGER.debug("Opened standby connection to {}", url);
+                } catch (SQLException | RuntimeException e) {
+                    LOGGER.debug("Could not open standby connection to {}: {}", url, e.toString());
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class StandbyConnection {
+        private final String url;
+        private final Connection connection;
+        private final long createdNanos;
+
+        private StandbyConnection(String url, Connection connection, long createdNanos) {
+            this.url = url;
+            this.connection = connection;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection wrapper counting the open connections of an endpoint: the count is incremented
+ * when the wrapper is created, and decremented when the connection is closed or aborted the
+ * first time. Connections lost without being closed are still counted. Also notifies the
+ * {@link ConnectionListener}s of the close.
+ */
+final class TrackedConnection extends DelegatingConnection {
+
+    private final Connection delegate;
+    private final EndpointState endpointState;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    // only measured if there are listeners to notify
+    private final long openedNanos;
+
+    TrackedConnection(Connection delegate, EndpointState endpointState) {
+        this.delegate = delegate;
+        this.endpointState = endpointState;
+        endpointState.connectionOpened();
+        if (ConnectionListeners.ENABLED) {
+            openedNanos = System.nanoTime();
+        } else {
+            openedNanos = 0L;
+        }
+    }
+
+    @Override
+    protected Connection getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            delegate.close();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        try {
+            delegate.abort(executor);
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            endpointState.connectionClosed();
+            if (ConnectionListeners.ENABLED) {
+                ConnectionListeners.fireConnectionClosed(endpointState.getUrl(), System.nanoTime() - openedNanos);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TrackedConnection{" + endpointState.getUrl() + '}';
+    }
+}
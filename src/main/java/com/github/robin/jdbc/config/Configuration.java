@@ -1,41 +1,368 @@
-/*
- * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
- 
-package com.github.robin.jdbc.config;
-
-
-public final class Configuration {
-
-    public static final int ATTEMPT_ALL = -1;
-
-    private int attemptCount;
-
-    public int getAttemptCount() {
-        return attemptCount;
-    }
-
-    public void setAttemptCount(int attemptCount) {
-        this.attemptCount = attemptCount;
-    }
-
-    @Override
-    public String toString() {
-        return "Configuration{"
-                + "attemptCount=" + attemptCount
-                + '}';
-    }
-}
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+ 
+package com.github.robin.jdbc.config;
+
+import java.util.Collections;
+import java.util.List;
+
+public final class Configuration {
+
+    public static final int ATTEMPT_ALL = -1;
+
+    public static final int DEFAULT_MAX_URL_COUNT = 10000;
+
+    public static final int DEFAULT_MAX_TEMPLATE_OUTPUT_LENGTH = 1024 * 1024;
+
+    public static final int HEDGING_DISABLED = 0;
+
+    public static final int DEFAULT_MAX_PARALLEL_ATTEMPTS = 2;
+
+    public static final int CIRCUIT_BREAKER_DISABLED = 0;
+
+    public static final int DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_MILLIS = 30000;
+
+    public static final int SINGLE_FLIGHT_DISABLED = 0;
+
+    public static final int MAX_WEIGHT = 1000;
+
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 8;
+
+    public static final int DEFAULT_MAX_LIFETIME_MILLIS = 30 * 60 * 1000;
+
+    public static final int UNLIMITED_LIFETIME = 0;
+
+    public static final int HEALTH_PROBING_DISABLED = 0;
+
+    public static final int NO_TIMEOUT = 0;
+
+    public static final int STANDBY_DISABLED = 0;
+
+    public static final int DEFAULT_STANDBY_VALIDATION_INTERVAL_MILLIS = 10000;
+
+    public static final int NO_LIMIT = 0;
+
+    public static final int DEFAULT_MAX_QUEUED_CONNECTS = 0;
+
+    public static final int DEFAULT_ADMISSION_TIMEOUT_MILLIS = 1000;
+
+    private int attemptCount;
+
+    private int maxUrlCount = DEFAULT_MAX_URL_COUNT;
+
+    private int maxTemplateOutputLength = DEFAULT_MAX_TEMPLATE_OUTPUT_LENGTH;
+
+    private int hedgeDelayMillis = HEDGING_DISABLED;
+
+    private int maxParallelAttempts = DEFAULT_MAX_PARALLEL_ATTEMPTS;
+
+    private int circuitBreakerFailureThreshold = CIRCUIT_BREAKER_DISABLED;
+
+    private int circuitBreakerCoolDownMillis = DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_MILLIS;
+
+    private int trialFailureThreshold = SINGLE_FLIGHT_DISABLED;
+
+    private List<Integer> weights = Collections.emptyList();
+
+    private boolean trackConnections;
+
+    private boolean pooled;
+
+    private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+
+    private int maxLifetimeMillis = DEFAULT_MAX_LIFETIME_MILLIS;
+
+    private boolean validateOnBorrow = true;
+
+    private int healthProbeIntervalMillis = HEALTH_PROBING_DISABLED;
+
+    private int attemptTimeoutMillis = NO_TIMEOUT;
+
+    private int connectTimeoutMillis = NO_TIMEOUT;
+
+    private boolean reconnect;
+
+    private int standbyConnections = STANDBY_DISABLED;
+
+    private int standbyValidationIntervalMillis = DEFAULT_STANDBY_VALIDATION_INTERVAL_MILLIS;
+
+    private List<String> zones = Collections.emptyList();
+
+    private int maxConcurrentConnects = NO_LIMIT;
+
+    private int maxConnectsPerSecond = NO_LIMIT;
+
+    private int maxQueuedConnects = DEFAULT_MAX_QUEUED_CONNECTS;
+
+    private int admissionTimeoutMillis = DEFAULT_ADMISSION_TIMEOUT_MILLIS;
+
+    public int getAttemptCount() {
+        return attemptCount;
+    }
+
+    public void setAttemptCount(int attemptCount) {
+        this.attemptCount = attemptCount;
+    }
+
+    public int getMaxUrlCount() {
+        return maxUrlCount;
+    }
+
+    public void setMaxUrlCount(int maxUrlCount) {
+        this.maxUrlCount = maxUrlCount;
+    }
+
+    public int getMaxTemplateOutputLength() {
+        return maxTemplateOutputLength;
+    }
+
+    public void setMaxTemplateOutputLength(int maxTemplateOutputLength) {
+        this.maxTemplateOutputLength = maxTemplateOutputLength;
+    }
+
+    public int getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    public void setHedgeDelayMillis(int hedgeDelayMillis) {
+        this.hedgeDelayMillis = hedgeDelayMillis;
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedgeDelayMillis != HEDGING_DISABLED;
+    }
+
+    public int getMaxParallelAttempts() {
+        return maxParallelAttempts;
+    }
+
+    public void setMaxParallelAttempts(int maxParallelAttempts) {
+        this.maxParallelAttempts = maxParallelAttempts;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerFailureThreshold != CIRCUIT_BREAKER_DISABLED;
+    }
+
+    public int getCircuitBreakerCoolDownMillis() {
+        return circuitBreakerCoolDownMillis;
+    }
+
+    public void setCircuitBreakerCoolDownMillis(int circuitBreakerCoolDownMillis) {
+        this.circuitBreakerCoolDownMillis = circuitBreakerCoolDownMillis;
+    }
+
+    public int getTrialFailureThreshold() {
+        return trialFailureThreshold;
+    }
+
+    public void setTrialFailureThreshold(int trialFailureThreshold) {
+        this.trialFailureThreshold = trialFailureThreshold;
+    }
+
+    public boolean isSingleFlightEnabled() {
+        return trialFailureThreshold != SINGLE_FLIGHT_DISABLED;
+    }
+
+    /**
+     * Returns the weights of the URLs, in the order the URL template yields them.
+     *
+     * @return the immutable list of weights; URLs without a weight here have the weight {@code 1}
+     */
+    public List<Integer> getWeights() {
+        return weights;
+    }
+
+    public void setWeights(List<Integer> weights) {
+        this.weights = Collections.unmodifiableList(weights);
+    }
+
+    public boolean isTrackConnections() {
+        return trackConnections;
+    }
+
+    public void setTrackConnections(boolean trackConnections) {
+        this.trackConnections = trackConnections;
+    }
+
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    public void setPooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    public int getMaxLifetimeMillis() {
+        return maxLifetimeMillis;
+    }
+
+    public void setMaxLifetimeMillis(int maxLifetimeMillis) {
+        this.maxLifetimeMillis = maxLifetimeMillis;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public void setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    public int getHealthProbeIntervalMillis() {
+        return healthProbeIntervalMillis;
+    }
+
+    public void setHealthProbeIntervalMillis(int healthProbeIntervalMillis) {
+        this.healthProbeIntervalMillis = healthProbeIntervalMillis;
+    }
+
+    public int getAttemptTimeoutMillis() {
+        return attemptTimeoutMillis;
+    }
+
+    public void setAttemptTimeoutMillis(int attemptTimeoutMillis) {
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public boolean isTimeoutEnabled() {
+        return attemptTimeoutMillis != NO_TIMEOUT || connectTimeoutMillis != NO_TIMEOUT;
+    }
+
+    public boolean isReconnect() {
+        return reconnect;
+    }
+
+    public void setReconnect(boolean reconnect) {
+        this.reconnect = reconnect;
+    }
+
+    public int getStandbyConnections() {
+        return standbyConnections;
+    }
+
+    public void setStandbyConnections(int standbyConnections) {
+        this.standbyConnections = standbyConnections;
+    }
+
+    public int getStandbyValidationIntervalMillis() {
+        return standbyValidationIntervalMillis;
+    }
+
+    public void setStandbyValidationIntervalMillis(int standbyValidationIntervalMillis) {
+        this.standbyValidationIntervalMillis = standbyValidationIntervalMillis;
+    }
+
+    public List<String> getZones() {
+        return zones;
+    }
+
+    public void setZones(List<String> zones) {
+        this.zones = zones;
+    }
+
+    public int getMaxConcurrentConnects() {
+        return maxConcurrentConnects;
+    }
+
+    public void setMaxConcurrentConnects(int maxConcurrentConnects) {
+        this.maxConcurrentConnects = maxConcurrentConnects;
+    }
+
+    public int getMaxConnectsPerSecond() {
+        return maxConnectsPerSecond;
+    }
+
+    public void setMaxConnectsPerSecond(int maxConnectsPerSecond) {
+        this.maxConnectsPerSecond = maxConnectsPerSecond;
+    }
+
+    public int getMaxQueuedConnects() {
+        return maxQueuedConnects;
+    }
+
+    public void setMaxQueuedConnects(int maxQueuedConnects) {
+        this.maxQueuedConnects = maxQueuedConnects;
+    }
+
+    public int getAdmissionTimeoutMillis() {
+        return admissionTimeoutMillis;
+    }
+
+    public void setAdmissionTimeoutMillis(int admissionTimeoutMillis) {
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+    }
+
+    public boolean isAdmissionControlEnabled() {
+        return maxConcurrentConnects != NO_LIMIT || maxConnectsPerSecond != NO_LIMIT;
+    }
+
+    @Override
+    public String toString() {
+        return "Configuration{"
+                + "attemptCount=" + attemptCount
+                + ", maxUrlCount=" + maxUrlCount
+                + ", maxTemplateOutputLength=" + maxTemplateOutputLength
+                + ", hedgeDelayMillis=" + hedgeDelayMillis
+                + ", maxParallelAttempts=" + maxParallelAttempts
+                + ", circuitBreakerFailureThreshold=" + circuitBreakerFailureThreshold
+                + ", circuitBreakerCoolDownMillis=" + circuitBreakerCoolDownMillis
+                + ", trialFailureThreshold=" + trialFailureThreshold
+                + ", weights=" + weights
+                + ", trackConnections=" + trackConnections
+                + ", pooled=" + pooled
+                + ", maxIdleConnections=" + maxIdleConnections
+                + ", maxLifetimeMillis=" + maxLifetimeMillis
+                + ", validateOnBorrow=" + validateOnBorrow
+                + ", healthProbeIntervalMillis=" + healthProbeIntervalMillis
+                + ", attemptTimeoutMillis=" + attemptTimeoutMillis
+                + ", connectTimeoutMillis=" + connectTimeoutMillis
+                + ", reconnect=" + reconnect
+                + ", standbyConnections=" + standbyConnections
+                + ", standbyValidationIntervalMillis=" + standbyValidationIntervalMillis
+                + ", zones=" + zones
+                + ", maxConcurrentConnects=" + maxConcurrentConnects
+                + ", maxConnectsPerSecond=" + maxConnectsPerSecond
+                + ", maxQueuedConnects=" + maxQueuedConnects
+                + ", admissionTimeoutMillis=" + admissionTimeoutMillis
+                + '}';
+    }
+}
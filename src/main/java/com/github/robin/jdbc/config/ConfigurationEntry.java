@@ -1,76 +1,439 @@
-/*
- * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-
-package com.github.robin.jdbc.config;
-
-import java.sql.DriverPropertyInfo;
-
-public enum ConfigurationEntry {
-
-    ATTEMPT_COUNT("attemptCount", Integer.toString(Configuration.ATTEMPT_ALL),
-            "Number of servers to try connecting before giving up. To attempt all servers: "
-                    + Configuration.ATTEMPT_ALL + ".") {
-        @Override
-        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
-            if (value != null && value.trim().length() != 0) {
-
-                try {
-                    int retryCount = Integer.parseInt(value);
-                    if (retryCount < 1 && retryCount != Configuration.ATTEMPT_ALL) {
-                        throw InvalidConfigurationValueException
-                                .forMessage("Value for %s must be a positive integer, or %s but was '%s'",
-                                        this.key, Configuration.ATTEMPT_ALL, value);
-                    }
-
-                    config.setAttemptCount(retryCount);
-                } catch (NumberFormatException nfe) {
-                    throw InvalidConfigurationValueException
-                            .forMessage("Value for %s must be a valid integer, but was '%s'", this.key, value);
-                }
-
-            }
-        }
-    };
-
-    public String getDefaultValue() {
-        return defaultValue;
-    }
-
-    public String getKey() {
-        return key;
-    }
-
-    //CHECKSTYLE.OFF: VisibilityModifier
-    protected final String key;
-    //CHECKSTYLE.ON: VisibilityModifier
-    private final String defaultValue;
-    private final String description;
-
-    ConfigurationEntry(String key, String defaultValue, String description) {
-        this.key = key;
-        this.defaultValue = defaultValue;
-        this.description = String.format("%s Default is: '%s'", description, defaultValue);
-    }
-
-    abstract void setConfiguration(Configuration config, String value) throws MisconfigurationException;
-
-    public DriverPropertyInfo getDriverPropertyInfo() {
-        DriverPropertyInfo driverPropertyInfo = new DriverPropertyInfo(this.key, defaultValue);
-        driverPropertyInfo.description = this.description;
-        return driverPropertyInfo;
-    }
-}
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.robin.jdbc.config;
+
+import java.sql.DriverPropertyInfo;
+import java.util.ArrayList;
+import java.util.List;
+
+public enum ConfigurationEntry {
+
+    ATTEMPT_COUNT("attemptCount", Integer.toString(Configuration.ATTEMPT_ALL),
+            "Number of servers to try connecting before giving up. To attempt all servers: "
+                    + Configuration.ATTEMPT_ALL + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer retryCount = parseInteger(this, value);
+            if (retryCount != null) {
+                if (retryCount < 1 && retryCount != Configuration.ATTEMPT_ALL) {
+                    throw InvalidConfigurationValueException
+                            .forMessage("Value for %s must be a positive integer, or %s but was '%s'",
+                                    this.key, Configuration.ATTEMPT_ALL, value);
+                }
+
+                config.setAttemptCount(retryCount);
+            }
+        }
+    },
+
+    MAX_URL_COUNT("maxUrlCount", Integer.toString(Configuration.DEFAULT_MAX_URL_COUNT),
+            "Maximum number of URLs the URL template is allowed to yield.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer maxUrlCount = parsePositiveInteger(this, value);
+            if (maxUrlCount != null) {
+                config.setMaxUrlCount(maxUrlCount);
+            }
+        }
+    },
+
+    MAX_TEMPLATE_OUTPUT_LENGTH("maxTemplateOutputLength",
+            Integer.toString(Configuration.DEFAULT_MAX_TEMPLATE_OUTPUT_LENGTH),
+            "Maximum number of characters a custom URL template is allowed to output. The output of "
+                    + "#@jdbcUrlsFrom is checked as it is rendered, other output once the template is rendered. "
+                    + "Does not apply to templates whose URLs are generated lazily, without rendering.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer maxTemplateOutputLength = parsePositiveInteger(this, value);
+            if (maxTemplateOutputLength != null) {
+                config.setMaxTemplateOutputLength(maxTemplateOutputLength);
+            }
+        }
+    },
+
+    HEDGE_DELAY_MILLIS("hedgeDelayMillis", Integer.toString(Configuration.HEDGING_DISABLED),
+            "Delay in milliseconds, after which the next URL is attempted in parallel, "
+                    + "if the previous attempt has not completed yet. To disable hedging: "
+                    + Configuration.HEDGING_DISABLED + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer hedgeDelayMillis = parseNonNegativeInteger(this, value);
+            if (hedgeDelayMillis != null) {
+                config.setHedgeDelayMillis(hedgeDelayMillis);
+            }
+        }
+    },
+
+    MAX_PARALLEL_ATTEMPTS("maxParallelAttempts", Integer.toString(Configuration.DEFAULT_MAX_PARALLEL_ATTEMPTS),
+            "Maximum number of connection attempts running in parallel, if hedging is enabled.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer maxParallelAttempts = parsePositiveInteger(this, value);
+            if (maxParallelAttempts != null) {
+                config.setMaxParallelAttempts(maxParallelAttempts);
+            }
+        }
+    },
+
+    CIRCUIT_BREAKER_FAILURE_THRESHOLD("circuitBreakerFailureThreshold",
+            Integer.toString(Configuration.CIRCUIT_BREAKER_DISABLED),
+            "Number of consecutive failed connection attempts, after which a URL is only attempted "
+                    + "after all others, until the cool-down time elapses. To disable circuit breaking: "
+                    + Configuration.CIRCUIT_BREAKER_DISABLED + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer failureThreshold = parseNonNegativeInteger(this, value);
+            if (failureThreshold != null) {
+                config.setCircuitBreakerFailureThreshold(failureThreshold);
+            }
+        }
+    },
+
+    CIRCUIT_BREAKER_COOL_DOWN_MILLIS("circuitBreakerCoolDownMillis",
+            Integer.toString(Configuration.DEFAULT_CIRCUIT_BREAKER_COOL_DOWN_MILLIS),
+            "Time in milliseconds a URL is considered dead after its circuit breaker opened; "
+                    + "also the time a read/write splitting connection waits before retrying the replicas.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer coolDownMillis = parseNonNegativeInteger(this, value);
+            if (coolDownMillis != null) {
+                config.setCircuitBreakerCoolDownMillis(coolDownMillis);
+            }
+        }
+    },
+
+    TRIAL_FAILURE_THRESHOLD("trialFailureThreshold", Integer.toString(Configuration.SINGLE_FLIGHT_DISABLED),
+            "Number of consecutive failed connection attempts, after which a URL is only attempted by one "
+                    + "connect at a time, until an attempt succeeds: the other connects attempt it last. "
+                    + "To disable: " + Configuration.SINGLE_FLIGHT_DISABLED + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer failureThreshold = parseNonNegativeInteger(this, value);
+            if (failureThreshold != null) {
+                config.setTrialFailureThreshold(failureThreshold);
+            }
+        }
+    },
+
+    WEIGHTS("weights", "",
+            "Comma-separated weights of the URLs for the weighted connection type, in the order the "
+                    + "URL template yields them. URLs without a weight have the weight 1.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            if (isBlank(value)) {
+                return;
+            }
+
+            List<Integer> weights = new ArrayList<>();
+            for (String weightString : value.split(",")) {
+                Integer weight = parsePositiveInteger(this, weightString.trim());
+                if (weight == null || weight > Configuration.MAX_WEIGHT) {
+                    throw InvalidConfigurationValueException
+                            .forMessage("Values for %s must be integers between 1 and %s, but was '%s'",
+                                    this.key, Configuration.MAX_WEIGHT, value);
+                }
+                weights.add(weight);
+            }
+            config.setWeights(weights);
+        }
+    },
+
+    TRACK_CONNECTIONS("trackConnections", Boolean.FALSE.toString(),
+            "Whether the number of open connections is tracked per URL, by returning a thin wrapper "
+                    + "of the connection. Always enabled for the leastconn connection type.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Boolean trackConnections = parseBoolean(this, value);
+            if (trackConnections != null) {
+                config.setTrackConnections(trackConnections);
+            }
+        }
+    },
+
+    POOLED("pooled", Boolean.FALSE.toString(),
+            "Whether closed connections are kept in an idle pool per URL, to be reused by later connects.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Boolean pooled = parseBoolean(this, value);
+            if (pooled != null) {
+                config.setPooled(pooled);
+            }
+        }
+    },
+
+    MAX_IDLE_CONNECTIONS("maxIdleConnections", Integer.toString(Configuration.DEFAULT_MAX_IDLE_CONNECTIONS),
+            "Maximum number of idle connections pooled per URL, if pooling is enabled.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer maxIdleConnections = parseNonNegativeInteger(this, value);
+            if (maxIdleConnections != null) {
+                config.setMaxIdleConnections(maxIdleConnections);
+            }
+        }
+    },
+
+    MAX_LIFETIME_MILLIS("maxLifetimeMillis", Integer.toString(Configuration.DEFAULT_MAX_LIFETIME_MILLIS),
+            "Time in milliseconds after which a pooled connection is closed instead of being reused. "
+                    + "For unlimited lifetime: " + Configuration.UNLIMITED_LIFETIME + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer maxLifetimeMillis = parseNonNegativeInteger(this, value);
+            if (maxLifetimeMillis != null) {
+                config.setMaxLifetimeMillis(maxLifetimeMillis);
+            }
+        }
+    },
+
+    VALIDATE_ON_BORROW("validateOnBorrow", Boolean.TRUE.toString(),
+            "Whether pooled connections are validated with Connection.isValid() before they are reused.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Boolean validateOnBorrow = parseBoolean(this, value);
+            if (validateOnBorrow != null) {
+                config.setValidateOnBorrow(validateOnBorrow);
+            }
+        }
+    },
+
+    HEALTH_PROBE_INTERVAL_MILLIS("healthProbeIntervalMillis", Integer.toString(Configuration.HEALTH_PROBING_DISABLED),
+            "Interval in milliseconds, in which the URLs are probed in the background. URLs found "
+                    + "unhealthy are only attempted after all others. To disable probing: "
+                    + Configuration.HEALTH_PROBING_DISABLED + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer healthProbeIntervalMillis = parseNonNegativeInteger(this, value);
+            if (healthProbeIntervalMillis != null) {
+                config.setHealthProbeIntervalMillis(healthProbeIntervalMillis);
+            }
+        }
+    },
+
+    ATTEMPT_TIMEOUT_MILLIS("attemptTimeoutMillis", Integer.toString(Configuration.NO_TIMEOUT),
+            "Time in milliseconds, after which a connection attempt to a URL is abandoned, and the next "
+                    + "URL is attempted. For no timeout: " + Configuration.NO_TIMEOUT + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer attemptTimeoutMillis = parseNonNegativeInteger(this, value);
+            if (attemptTimeoutMillis != null) {
+                config.setAttemptTimeoutMillis(attemptTimeoutMillis);
+            }
+        }
+    },
+
+    CONNECT_TIMEOUT_MILLIS("connectTimeoutMillis", Integer.toString(Configuration.NO_TIMEOUT),
+            "Time in milliseconds, after which connecting fails, regardless of the URLs not attempted yet. "
+                    + "For no timeout: " + Configuration.NO_TIMEOUT + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer connectTimeoutMillis = parseNonNegativeInteger(this, value);
+            if (connectTimeoutMillis != null) {
+                config.setConnectTimeoutMillis(connectTimeoutMillis);
+            }
+        }
+    },
+
+    RECONNECT("reconnect", Boolean.FALSE.toString(),
+            "Whether a connection, whose session is lost outside a transaction, transparently reconnects "
+                    + "to the URLs and restores its auto-commit, read-only, isolation, catalog and schema settings.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Boolean reconnect = parseBoolean(this, value);
+            if (reconnect != null) {
+                config.setReconnect(reconnect);
+            }
+        }
+    },
+
+    STANDBY_CONNECTIONS("standbyConnections", Integer.toString(Configuration.STANDBY_DISABLED),
+            "Number of connections kept open in the background to the next URL in failover order, "
+                    + "handed out when the preferred URL fails. To disable: " + Configuration.STANDBY_DISABLED + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer standbyConnections = parseNonNegativeInteger(this, value);
+            if (standbyConnections != null) {
+                config.setStandbyConnections(standbyConnections);
+            }
+        }
+    },
+
+    STANDBY_VALIDATION_INTERVAL_MILLIS("standbyValidationIntervalMillis",
+            Integer.toString(Configuration.DEFAULT_STANDBY_VALIDATION_INTERVAL_MILLIS),
+            "Interval in milliseconds, in which the standby connections are validated and replenished.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer standbyValidationIntervalMillis = parsePositiveInteger(this, value);
+            if (standbyValidationIntervalMillis != null) {
+                config.setStandbyValidationIntervalMillis(standbyValidationIntervalMillis);
+            }
+        }
+    },
+
+    ZONES("zones", "",
+            "Comma-separated zones in the order of preference of the zoned connection type: URLs are balanced "
+                    + "within the first zone, failing over to the next one. Zones are assigned to the URLs with the "
+                    + "[zone=...] attribute; URLs of other zones are attempted last.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            if (isBlank(value)) {
+                return;
+            }
+
+            List<String> zones = new ArrayList<>();
+            for (String zone : value.split(",")) {
+                if (isBlank(zone)) {
+                    throw InvalidConfigurationValueException
+                            .forMessage("Values for %s must not be blank, but was '%s'", this.key, value);
+                }
+                zones.add(zone.trim());
+            }
+            config.setZones(zones);
+        }
+    },
+
+    MAX_CONCURRENT_CONNECTS("maxConcurrentConnects", Integer.toString(Configuration.NO_LIMIT),
+            "Maximum number of connects in flight to a URL at a time, counting the connects of all robin "
+                    + "URLs. Once reached, the next URL is attempted. For no limit: "
+                    + Configuration.NO_LIMIT + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer maxConcurrentConnects = parseNonNegativeInteger(this, value);
+            if (maxConcurrentConnects != null) {
+                config.setMaxConcurrentConnects(maxConcurrentConnects);
+            }
+        }
+    },
+
+    MAX_CONNECTS_PER_SECOND("maxConnectsPerSecond", Integer.toString(Configuration.NO_LIMIT),
+            "Maximum rate of the connects to a URL, allowing bursts of the same size. Once reached, "
+                    + "the next URL is attempted. For no limit: " + Configuration.NO_LIMIT + ".") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer maxConnectsPerSecond = parseNonNegativeInteger(this, value);
+            if (maxConnectsPerSecond != null) {
+                config.setMaxConnectsPerSecond(maxConnectsPerSecond);
+            }
+        }
+    },
+
+    MAX_QUEUED_CONNECTS("maxQueuedConnects", Integer.toString(Configuration.DEFAULT_MAX_QUEUED_CONNECTS),
+            "Maximum number of connects waiting for a URL whose connect limits are reached. Connects not "
+                    + "fitting into the queue attempt the next URL immediately.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer maxQueuedConnects = parseNonNegativeInteger(this, value);
+            if (maxQueuedConnects != null) {
+                config.setMaxQueuedConnects(maxQueuedConnects);
+            }
+        }
+    },
+
+    ADMISSION_TIMEOUT_MILLIS("admissionTimeoutMillis", Integer.toString(Configuration.DEFAULT_ADMISSION_TIMEOUT_MILLIS),
+            "Maximum time in milliseconds a queued connect waits for a URL, before attempting the next URL.") {
+        @Override
+        void setConfiguration(Configuration config, String value) throws MisconfigurationException {
+            Integer admissionTimeoutMillis = parseNonNegativeInteger(this, value);
+            if (admissionTimeoutMillis != null) {
+                config.setAdmissionTimeoutMillis(admissionTimeoutMillis);
+            }
+        }
+    };
+
+    public String getDefaultValue() {
+        return defaultValue;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    //CHECKSTYLE.OFF: VisibilityModifier
+    protected final String key;
+    //CHECKSTYLE.ON: VisibilityModifier
+    private final String defaultValue;
+    private final String description;
+
+    ConfigurationEntry(String key, String defaultValue, String description) {
+        this.key = key;
+        this.defaultValue = defaultValue;
+        this.description = String.format("%s Default is: '%s'", description, defaultValue);
+    }
+
+    abstract void setConfiguration(Configuration config, String value) throws MisconfigurationException;
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().length() == 0;
+    }
+
+    private static Integer parseInteger(ConfigurationEntry entry, String value) throws MisconfigurationException {
+        if (isBlank(value)) {
+            return null;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException nfe) {
+            throw InvalidConfigurationValueException
+                    .forMessage("Value for %s must be a valid integer, but was '%s'", entry.key, value);
+        }
+    }
+
+    private static Boolean parseBoolean(ConfigurationEntry entry, String value) throws MisconfigurationException {
+        if (isBlank(value)) {
+            return null;
+        }
+
+        String trimmedValue = value.trim();
+        if (Boolean.TRUE.toString().equalsIgnoreCase(trimmedValue)) {
+            return Boolean.TRUE;
+        }
+        if (Boolean.FALSE.toString().equalsIgnoreCase(trimmedValue)) {
+            return Boolean.FALSE;
+        }
+
+        throw InvalidConfigurationValueException
+                .forMessage("Value for %s must be 'true' or 'false', but was '%s'", entry.key, value);
+    }
+
+    private static Integer parseNonNegativeInteger(ConfigurationEntry entry, String value)
+            throws MisconfigurationException {
+        Integer integer = parseInteger(entry, value);
+        if (integer != null && integer < 0) {
+            throw InvalidConfigurationValueException
+                    .forMessage("Value for %s must not be negative, but was '%s'", entry.key, value);
+        }
+
+        return integer;
+    }
+
+    private static Integer parsePositiveInteger(ConfigurationEntry entry, String value)
+            throws MisconfigurationException {
+        Integer integer = parseInteger(entry, value);
+        if (integer != null && integer < 1) {
+            throw InvalidConfigurationValueException
+                    .forMessage("Value for %s must be a positive integer, but was '%s'", entry.key, value);
+        }
+
+        return integer;
+    }
+
+    public DriverPropertyInfo getDriverPropertyInfo() {
+        DriverPropertyInfo driverPropertyInfo = new DriverPropertyInfo(this.key, defaultValue);
+        driverPropertyInfo.description = this.description;
+        return driverPropertyInfo;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc.url;
+
+import com.github.robin.jdbc.config.URLTemplateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link UrlTemplate} reading the URLs from a local file, specified as {@code file:<path>}:
+ * each non-blank line of the file is a URL, optionally preceded by an attribute block.
+ *
+ * <p>The file is parsed when the template is compiled and each time it changes, as notified by
+ * the {@link FileWatcher}: the parsed, immutable URL list is swapped atomically, and the
+ * {@linkplain #getRevision() revision} is incremented, so that connect plans built from the
+ * previous list are recreated. Evaluating the template never reads the file. If the changed file
+ * cannot be read or yields less than two URLs, the previous URLs are kept. The file is only read
+ * once it has not changed for a short while; still, to avoid reading a partially written file,
+ * replace the file by moving a new file in its place.</p>
+ *
+ * <p>There is a single instance per file, shared by all robin URLs referencing the file.</p>
+ */
+final class FileUrlTemplate implements UrlTemplate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileUrlTemplate.class);
+
+    static final String FILE_PREFIX = "file:";
+
+    private static final ConcurrentMap<Path, FileUrlTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    private final Path file;
+
+    // replaced by the watcher thread only
+    private volatile Endpoints endpoints;
+
+    private FileUrlTemplate(Path file, Endpoints endpoints) {
+        this.file = file;
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * Compiles the template if it references a file.
+     *
+     * @param urlTemplate the template
+     * @return the template of the file, or {@code null} if the template does not reference a file
+     * @throws URLTemplateException if the file cannot be read or watched, or it yields less than two URLs
+     */
+    static FileUrlTemplate tryCompile(String urlTemplate) throws URLTemplateException {
+        String trimmedTemplate = urlTemplate.trim();
+        if (!trimmedTemplate.startsWith(FILE_PREFIX)) {
+            return null;
+        }
+
+        Path file;
+        try {
+            file = Paths.get(trimmedTemplate.substring(FILE_PREFIX.length())).toAbsolutePath().normalize();
+        } catch (InvalidPathException ipe) {
+            throw new URLTemplateException("Invalid URL file path: " + trimmedTemplate, ipe);
+        }
+
+        FileUrlTemplate template = TEMPLATES.get(file);
+        if (template == null) {
+            // templates are only published once watched: concurrent callers never get an unwatched one
+            synchronized (TEMPLATES) {
+                template = TEMPLATES.get(file);
+                if (template == null) {
+                    template = new FileUrlTemplate(file, load(file, 0L));
+                    template.watch();
+                    TEMPLATES.put(file, template);
+                }
+            }
+        }
+        return template;
+    }
+
+    private void watch() throws URLTemplateException {
+        try {
+            FileWatcher.getInstance().watch(file, this::reload);
+        } catch (IOException | RuntimeException e) {
+            throw new URLTemplateException("Cannot watch URL file for changes: " + file, e);
+        }
+    }
+
+    private static Endpoints load(Path file, long revision) throws URLTemplateException {
+        String content;
+        try {
+            content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException ioe) {
+            throw new URLTemplateException("Cannot read URL file: " + file, ioe);
+        }
+
+        List<String> urls = DefaultUrlTemplateParser.validateUrls(ScannedUrlList.scan(content, Integer.MAX_VALUE));
+        return new Endpoints(content, urls, revision);
+    }
+
+    private void reload() {
+        Endpoints current = endpoints;
+        try {
+            Endpoints reloaded = load(file, current.revision + 1);
+            if (reloaded.content.equals(current.content)) {
+                return;
+            }
+
+            endpoints = reloaded;
+            LOGGER.info("Reloaded {} URLs from {}", reloaded.urls.size(), file);
+        } catch (URLTemplateException ute) {
+            LOGGER.warn("Could not reload URLs from {}, keeping the previous {} URLs: {}",
+                    file, current.urls.size(), ute.getMessage());
+        }
+    }
+
+    @Override
+    public List<String> getUrls(Properties properties, int maxUrlCount, int maxOutputLength)
+            throws URLTemplateException {
+        Endpoints snapshot = endpoints;
+
+        if (snapshot.content.length() > maxOutputLength) {
+            throw URLTemplateException.forMessage("URL file is %s characters long, which exceeds "
+                    + "the maximum allowed length of %s characters", snapshot.content.length(), maxOutputLength);
+        }
+        if (snapshot.urls.size() > maxUrlCount) {
+            throw URLTemplateException.forMessage(
+                    "URL file yielded more than the maximum allowed number of %s URLs", maxUrlCount);
+        }
+
+        return snapshot.urls;
+    }
+
+    @Override
+    public long getRevision() {
+        return endpoints.revision;
+    }
+
+    @Override
+    public String toString() {
+        return "FileUrlTemplate{" + file + '}';
+    }
+
+    private static final class Endpoints {
+        private final String content;
+        private final List<String> urls;
+        private final long revision;
+
+        private Endpoints(String content, List<String> urls, long revision) {
+            this.content = content;
+            this.urls = urls;
+            this.revision = revision;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc.url;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches files for changes with a {@link WatchService}, on a single daemon thread.
+ *
+ * <p>The parent directory of each file is watched, so that files replaced by moving a new file
+ * in place are noticed too. The listeners run on the watcher thread, hence they must be quick.</p>
+ *
+ * <p>Changes are debounced: a listener is only called once its file has not changed for
+ * {@value #DEBOUNCE_MILLIS} ms, so that a file being written is not read after each write.</p>
+ */
+final class FileWatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileWatcher.class);
+
+    static final long DEBOUNCE_MILLIS = 100L;
+
+    private static final long DEBOUNCE_NANOS = TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS);
+
+    private static FileWatcher instance;
+
+    private final WatchService watchService;
+    private final ConcurrentMap<Path, Runnable> listeners = new ConcurrentHashMap<>();
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+
+    // changed files, mapped to the time their listener is due: accessed by the watcher thread only
+    private final Map<Path, Long> pendingChanges = new HashMap<>();
+
+    private FileWatcher(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    static synchronized FileWatcher getInstance() throws IOException {
+        if (instance == null) {
+            FileWatcher fileWatcher = new FileWatcher(FileSystems.getDefault().newWatchService());
+
+            Thread thread = new Thread(fileWatcher::run, "robin-file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+
+            instance = fileWatcher;
+        }
+        return instance;
+    }
+
+    /**
+     * Starts watching the file.
+     *
+     * @param file the absolute, normalized path of the file to watch
+     * @param listener called on the watcher thread, when the file might have changed
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    void watch(Path file, Runnable listener) throws IOException {
+        Path directory = file.getParent();
+        if (watchedDirectories.add(directory)) {
+            try {
+                directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException | RuntimeException e) {
+                watchedDirectories.remove(directory);
+                throw e;
+            }
+        }
+
+        listeners.put(file, listener);
+        LOGGER.debug("Watching {} for changes", file);
+    }
+
+    private void run() {
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = nextWatchKey();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                LOGGER.debug("File watcher stopped");
+                return;
+            }
+
+            if (watchKey != null) {
+                collectChanges(watchKey);
+                watchKey.reset();
+            }
+            notifyQuietFiles();
+        }
+    }
+
+    /**
+     * Waits for the next events, but only until the earliest pending listener is due.
+     *
+     * @return the key of the directory with events, or {@code null} if a listener is due
+     */
+    private WatchKey nextWatchKey() throws InterruptedException {
+        if (pendingChanges.isEmpty()) {
+            return watchService.take();
+        }
+
+        long waitNanos = Long.MAX_VALUE;
+        long nowNanos = System.nanoTime();
+        for (long dueNanos : pendingChanges.values()) {
+            waitNanos = Math.min(waitNanos, dueNanos - nowNanos);
+        }
+        return watchService.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private void collectChanges(WatchKey watchKey) {
+        Path directory = (Path) watchKey.watchable();
+        long dueNanos = System.nanoTime() + DEBOUNCE_NANOS;
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost: any file of the directory might have changed
+                for (Path file : listeners.keySet()) {
+                    if (directory.equals(file.getParent())) {
+                        pendingChanges.put(file, dueNanos);
+                    }
+                }
+            } else {
+                Path file = directory.resolve((Path) event.context());
+                if (listeners.containsKey(file)) {
+                    pendingChanges.put(file, dueNanos);
+                }
+            }
+        }
+    }
+
+    private void notifyQuietFiles() {
+        long nowNanos = System.nanoTime();
+        Iterator<Map.Entry<Path, Long>> iterator = pendingChanges.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> pendingChange = iterator.next();
+            if (nowNanos - pendingChange.getValue() >= 0) {
+                iterator.remove();
+                notify(pendingChange.getKey(), listeners.get(pendingChange.getKey()));
+            }
+        }
+    }
+
+    private static void notify(Path file, Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Listener of {} failed", file, e);
+        }
+    }
+}
@@ -0,0 +1,501 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc.url;
+
+import com.github.robin.jdbc.config.URLTemplateException;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.RandomAccess;
+
+/**
+ * Specialized {@link UrlTemplate} for the most common template shape, a single
+ * {@code #@jdbcUrlsFrom} macro call over a range or a list literal, like
+ * <pre>
+ * #@jdbcUrlsFrom( [1..3] ) jdbc:h2:mem:foobar#formatter('%02d', $value) #end
+ * </pre>
+ * These templates are evaluated without the Velocity engine: {@link #tryCompile(String)}
+ * recognizes the shape and returns {@code null} for anything it is not absolutely sure
+ * to evaluate exactly the same way as Velocity does; those templates are handled by
+ * {@link VelocityUrlTemplate}.
+ *
+ * <p>The URLs are generated lazily, as the returned list is accessed: the template output
+ * is never rendered as a whole. Hence the maximum output length, which bounds the memory used
+ * by rendering, does not apply to these templates: the number of URLs is bounded by the
+ * maximum URL count only.</p>
+ */
+final class GeneratorUrlTemplate implements UrlTemplate {
+
+    private static final String GENERATOR_CALL_START = "#@" + VelocityUrlTemplate.GENERATOR_MACRO_NAME + "(";
+    private static final String FORMATTER_MACRO_CALL_START = "#" + VelocityUrlTemplate.FORMATTER_MACRO_NAME + "(";
+    private static final String FORMATTER_METHOD_CALL_START =
+            "$" + VelocityUrlTemplate.FORMATTER_MACRO_NAME + ".format(";
+    private static final String END_DIRECTIVE = "#end";
+    private static final String RANGE_OPERATOR = "..";
+    private static final String VALUE_VARIABLE = "value";
+    private static final char ATTRIBUTE_BLOCK_START = '[';
+
+    private final String urlTemplate;
+    private final List<Object> values;
+    private final List<Part> parts;
+
+    /**
+     * Whether the body yields a non-blank URL for any value: if it does not, blank results
+     * have to be filtered out and hence the URLs cannot be generated lazily.
+     */
+    private final boolean alwaysYieldsUrl;
+
+    /**
+     * Whether the URLs might start with an attribute block: they cannot, if the body starts
+     * with text other than an attribute block.
+     */
+    private final boolean mayYieldAttributes;
+
+    private GeneratorUrlTemplate(String urlTemplate, List<Object> values, List<Part> parts) {
+        this.urlTemplate = urlTemplate;
+        this.values = values;
+        this.parts = parts;
+        this.alwaysYieldsUrl = parts.stream().anyMatch(Part::isNonBlankText);
+        this.mayYieldAttributes = parts.stream()
+                .filter(part -> !(part instanceof LiteralPart) || part.isNonBlankText())
+                .findFirst()
+                .map(part -> !(part instanceof LiteralPart)
+                        || ((LiteralPart) part).text.trim().charAt(0) == ATTRIBUTE_BLOCK_START)
+                .orElse(Boolean.FALSE);
+    }
+
+    static GeneratorUrlTemplate tryCompile(String urlTemplate) {
+        Cursor cursor = new Cursor(urlTemplate);
+
+        cursor.skipWhitespace();
+        if (!cursor.consume(GENERATOR_CALL_START)) {
+            return null;
+        }
+
+        cursor.skipWhitespace();
+        List<Object> values = parseValues(cursor);
+        if (values == null) {
+            return null;
+        }
+
+        cursor.skipWhitespace();
+        if (!cursor.consume(")")) {
+            return null;
+        }
+
+        int endDirectiveIndex = urlTemplate.lastIndexOf(END_DIRECTIVE);
+        if (endDirectiveIndex < cursor.position
+                || !isWhitespace(urlTemplate.substring(endDirectiveIndex + END_DIRECTIVE.length()))) {
+            return null;
+        }
+
+        List<Part> parts = parseBody(new Cursor(urlTemplate.substring(cursor.position, endDirectiveIndex)));
+        if (parts == null) {
+            return null;
+        }
+
+        return new GeneratorUrlTemplate(urlTemplate, values, parts);
+    }
+
+    @Override
+    public List<String> getUrls(Properties properties, int maxUrlCount, int maxOutputLength)
+            throws URLTemplateException {
+
+        if (values.size() > maxUrlCount) {
+            throw URLTemplateException.forMessage(
+                    "Template yields %s URLs, which exceeds the maximum allowed number of %s URLs",
+                    values.size(), maxUrlCount);
+        }
+
+        List<String> urls = new GeneratedUrlList();
+        if (!alwaysYieldsUrl) {
+            List<String> nonBlankUrls = new ArrayList<>(values.size());
+            for (String url : urls) {
+                if (!url.isEmpty()) {
+                    nonBlankUrls.add(url);
+                }
+            }
+            urls = Collections.unmodifiableList(nonBlankUrls);
+        }
+
+        return DefaultUrlTemplateParser.validateUrls(urls);
+    }
+
+    @Override
+    public boolean mayYieldAttributes() {
+        return mayYieldAttributes;
+    }
+
+    @Override
+    public String toString() {
+        return "GeneratorUrlTemplate{" + urlTemplate + '}';
+    }
+
+    private static List<Object> parseValues(Cursor cursor) {
+        if (!cursor.consume("[")) {
+            return null;
+        }
+
+        cursor.skipWhitespace();
+        Integer first = cursor.parseInteger();
+        if (first != null) {
+            cursor.skipWhitespace();
+            if (cursor.consume(RANGE_OPERATOR)) {
+                return parseRangeEnd(cursor, first);
+            }
+        }
+
+        List<Object> values = new ArrayList<>();
+        Object value = first;
+        if (value == null) {
+            value = cursor.parseStringLiteral();
+        }
+
+        while (value != null) {
+            values.add(value);
+
+            cursor.skipWhitespace();
+            if (cursor.consume("]")) {
+                return Collections.unmodifiableList(values);
+            }
+            if (!cursor.consume(",")) {
+                return null;
+            }
+
+            cursor.skipWhitespace();
+            value = cursor.parseLiteral();
+        }
+
+        if (values.isEmpty() && cursor.consume("]")) {
+            return Collections.emptyList();
+        }
+
+        return null;
+    }
+
+    private static List<Object> parseRangeEnd(Cursor cursor, int from) {
+        cursor.skipWhitespace();
+        Integer to = cursor.parseInteger();
+        if (to == null) {
+            return null;
+        }
+
+        cursor.skipWhitespace();
+        if (!cursor.consume("]")) {
+            return null;
+        }
+
+        if (Math.abs((long) to - from) >= Integer.MAX_VALUE) {
+            return null;
+        }
+
+        return new RangeList(from, to);
+    }
+
+    private static List<Part> parseBody(Cursor cursor) {
+        List<Part> parts = new ArrayList<>();
+
+        StringBuilder literal = new StringBuilder();
+        while (!cursor.isAtEnd()) {
+            Part part = null;
+            char c = cursor.peek();
+
+            if (c == '$') {
+                part = parseReference(cursor);
+            } else if (c == '#') {
+                part = parseFormatterMacroCall(cursor);
+            } else if (c != '\\' && c != '\n' && c != '\r') {
+                literal.append(c);
+                cursor.position++;
+                continue;
+            }
+
+            if (part == null) {
+                return null;
+            }
+
+            if (literal.length() > 0) {
+                parts.add(new LiteralPart(literal.toString()));
+                literal.setLength(0);
+            }
+            parts.add(part);
+        }
+
+        if (literal.length() > 0) {
+            parts.add(new LiteralPart(literal.toString()));
+        }
+
+        return parts;
+    }
+
+    private static Part parseReference(Cursor cursor) {
+        if (cursor.consume(FORMATTER_METHOD_CALL_START)) {
+            return parseFormatterArguments(cursor);
+        }
+
+        if (cursor.consume("$!{" + VALUE_VARIABLE + "}") || cursor.consume("${" + VALUE_VARIABLE + "}")) {
+            return ValuePart.INSTANCE;
+        }
+
+        boolean valueReference = cursor.consume("$!" + VALUE_VARIABLE) || cursor.consume("$" + VALUE_VARIABLE);
+        if (valueReference && (cursor.isAtEnd() || !isReferenceContinuation(cursor.peek()))) {
+            return ValuePart.INSTANCE;
+        }
+
+        return null;
+    }
+
+    private static Part parseFormatterMacroCall(Cursor cursor) {
+        if (!cursor.consume(FORMATTER_MACRO_CALL_START)) {
+            return null;
+        }
+
+        Part part = parseFormatterArguments(cursor);
+
+        /* The formatter macro emits a newline after the formatted value:
+         * anything but whitespace following it would yield an additional line
+         */
+        if (part == null || !isWhitespace(cursor.remaining())) {
+            return null;
+        }
+
+        return part;
+    }
+
+    private static Part parseFormatterArguments(Cursor cursor) {
+        cursor.skipWhitespace();
+        String formatString = cursor.parseStringLiteral();
+        if (formatString == null) {
+            return null;
+        }
+
+        cursor.skipWhitespace();
+        if (!cursor.consume(",")) {
+            return null;
+        }
+
+        cursor.skipWhitespace();
+        if (!cursor.consume("$" + VALUE_VARIABLE)) {
+            return null;
+        }
+
+        cursor.skipWhitespace();
+        if (!cursor.consume(")")) {
+            return null;
+        }
+
+        return new FormattedValuePart(formatString);
+    }
+
+    private static boolean isReferenceContinuation(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == '[' || c == '(';
+    }
+
+    private static boolean isWhitespace(String str) {
+        return str.trim().isEmpty();
+    }
+
+    /**
+     * The URLs yielded by the template, generated on access.
+     */
+    private final class GeneratedUrlList extends AbstractList<String> implements RandomAccess {
+
+        @Override
+        public String get(int index) {
+            Object value = values.get(index);
+
+            StringBuilder sb = new StringBuilder();
+            for (Part part : parts) {
+                part.appendTo(sb, value);
+            }
+
+            return sb.toString().trim();
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+    }
+
+    /**
+     * The values of a range literal like {@code [1..5]}: Velocity ranges might be descending too.
+     */
+    private static final class RangeList extends AbstractList<Object> implements RandomAccess {
+
+        private final int from;
+        private final int step;
+        private final int size;
+
+        private RangeList(int from, int to) {
+            this.from = from;
+            this.step = Integer.signum(to - from);
+            this.size = Math.abs(to - from) + 1;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+
+            return from + index * step;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private interface Part {
+        void appendTo(StringBuilder sb, Object value);
+
+        default boolean isNonBlankText() {
+            return false;
+        }
+    }
+
+    private static final class LiteralPart implements Part {
+
+        private final String text;
+
+        private LiteralPart(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void appendTo(StringBuilder sb, Object value) {
+            sb.append(text);
+        }
+
+        @Override
+        public boolean isNonBlankText() {
+            return !isWhitespace(text);
+        }
+    }
+
+    private static final class ValuePart implements Part {
+
+        private static final ValuePart INSTANCE = new ValuePart();
+
+        @Override
+        public void appendTo(StringBuilder sb, Object value) {
+            sb.append(value);
+        }
+    }
+
+    private static final class FormattedValuePart implements Part {
+
+        private final String formatString;
+
+        private FormattedValuePart(String formatString) {
+            this.formatString = formatString;
+        }
+
+        @Override
+        public void appendTo(StringBuilder sb, Object value) {
+            sb.append(FormatUtil.INSTANCE.format(formatString, value));
+        }
+    }
+
+    private static final class Cursor {
+
+        private final String input;
+        private int position;
+
+        private Cursor(String input) {
+            this.input = input;
+        }
+
+        boolean isAtEnd() {
+            return position >= input.length();
+        }
+
+        char peek() {
+            return input.charAt(position);
+        }
+
+        String remaining() {
+            return input.substring(position);
+        }
+
+        void skipWhitespace() {
+            while (!isAtEnd() && Character.isWhitespace(peek())) {
+                position++;
+            }
+        }
+
+        boolean consume(String expected) {
+            if (input.startsWith(expected, position)) {
+                position += expected.length();
+                return true;
+            }
+            return false;
+        }
+
+        Object parseLiteral() {
+            Object literal = parseInteger();
+            if (literal == null) {
+                literal = parseStringLiteral();
+            }
+            return literal;
+        }
+
+        Integer parseInteger() {
+            int start = position;
+            while (!isAtEnd() && Character.isDigit(peek())) {
+                position++;
+            }
+
+            if (start == position) {
+                return null;
+            }
+
+            try {
+                return Integer.valueOf(input.substring(start, position));
+            } catch (NumberFormatException nfe) {
+                position = start;
+                return null;
+            }
+        }
+
+        String parseStringLiteral() {
+            if (isAtEnd() || peek() != '\'' && peek() != '"') {
+                return null;
+            }
+
+            char quote = peek();
+            int end = input.indexOf(quote, position + 1);
+            if (end < 0) {
+                return null;
+            }
+
+            String literal = input.substring(position + 1, end);
+            if (quote == '"' && (literal.indexOf('$') >= 0 || literal.indexOf('#') >= 0)) {
+                // double-quoted strings are interpolated by Velocity
+                return null;
+            }
+
+            position = end + 1;
+            return literal;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc.url;
+
+/**
+ * Bounds the output of the {@value VelocityUrlTemplate#GENERATOR_MACRO_NAME} macro while the
+ * template is evaluated: each URL the macro yields passes through {@link #line(String)}, which
+ * aborts the evaluation as soon as the output grows beyond the maximum length. The Velocity
+ * engine renders into memory, hence a template yielding a huge number of URLs would otherwise
+ * allocate all of its output before its length could be checked.
+ *
+ * <p>Public, as it is called by the Velocity engine; an instance is used by a single evaluation.</p>
+ */
+public final class OutputLimit {
+
+    private final int maxOutputLength;
+    private int outputLength;
+
+    OutputLimit(int maxOutputLength) {
+        this.maxOutputLength = maxOutputLength;
+    }
+
+    int getMaxOutputLength() {
+        return maxOutputLength;
+    }
+
+    boolean isExceeded() {
+        return outputLength > maxOutputLength;
+    }
+
+    /**
+     * Accounts for a line of the output.
+     *
+     * @param line the line, without the line separator
+     * @return the line
+     * @throws LimitExceededException if the output is longer than the maximum length
+     */
+    public String line(String line) {
+        outputLength += line.length() + 1;
+        if (outputLength > maxOutputLength) {
+            throw new LimitExceededException(maxOutputLength);
+        }
+        return line;
+    }
+
+    /**
+     * Thrown through the Velocity engine to abort the evaluation.
+     */
+    static final class LimitExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private LimitExceededException(int maxOutputLength) {
+            super("Template output exceeds the maximum allowed length of " + maxOutputLength + " characters", null,
+                    false, false);
+        }
+    }
+}
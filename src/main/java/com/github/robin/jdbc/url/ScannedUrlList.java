@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc.url;
+
+import com.github.robin.jdbc.config.URLTemplateException;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of the URLs found in the output of a template.
+ *
+ * <p>The output is scanned once, without regular expressions, recording the start and end
+ * offset of each URL only: the URL strings are created lazily, as they are accessed.</p>
+ *
+ * <p>If the output contains newlines, each non-blank line is a URL. Otherwise, a new URL is
+ * assumed to start at each {@code jdbc:<subprotocol>:} prefix (where the sub-protocol
+ * consists of word characters), or at the attribute block in square brackets preceding
+ * such a prefix, e.g. {@code [weight=2] jdbc:h2:mem:db}.</p>
+ */
+final class ScannedUrlList extends AbstractList<String> implements RandomAccess {
+
+    private static final char URL_SEPARATOR = '\n';
+    private static final String JDBC_PREFIX = "jdbc:";
+    private static final char ATTRIBUTE_BLOCK_START = '[';
+    private static final char ATTRIBUTE_BLOCK_END = ']';
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final String templateOutput;
+
+    // start and end offset of the URL with index i are at [2*i] and [2*i + 1]
+    private final int[] offsets;
+    private final int size;
+
+    private ScannedUrlList(String templateOutput, int[] offsets, int size) {
+        this.templateOutput = templateOutput;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    static ScannedUrlList scan(String templateOutput, int maxUrlCount) throws URLTemplateException {
+        Scanner scanner = new Scanner(templateOutput, maxUrlCount);
+
+        int start = skipWhitespaceForward(templateOutput, 0, templateOutput.length());
+        int end = skipWhitespaceBackward(templateOutput, start, templateOutput.length());
+
+        if (templateOutput.lastIndexOf(URL_SEPARATOR, end - 1) >= start) {
+            scanner.scanLines(start, end);
+        } else {
+            scanner.scanJdbcPrefixes(start, end);
+        }
+
+        return new ScannedUrlList(templateOutput, scanner.offsets, scanner.count);
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return templateOutput.substring(offsets[2 * index], offsets[2 * index + 1]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static int skipWhitespaceForward(String str, int from, int to) {
+        int i = from;
+        while (i < to && Character.isWhitespace(str.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespaceBackward(String str, int from, int to) {
+        int i = to;
+        while (i > from && Character.isWhitespace(str.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index after the {@code jdbc:<subprotocol>:} prefix starting at the given index,
+     * or {@code -1} if there is no such prefix at the index.
+     */
+    private static int endOfJdbcPrefix(String str, int index, int end) {
+        if (!str.startsWith(JDBC_PREFIX, index)) {
+            return -1;
+        }
+
+        int i = index + JDBC_PREFIX.length();
+        int subProtocolStart = i;
+        while (i < end && isWordCharacter(str.charAt(i))) {
+            i++;
+        }
+
+        if (i == subProtocolStart || i >= end || str.charAt(i) != ':') {
+            return -1;
+        }
+
+        return i + 1;
+    }
+
+    /**
+     * Returns the index after the attribute block starting at the given index and the whitespace
+     * following it, or the given index if there is no attribute block at the index.
+     */
+    private static int endOfAttributeBlock(String str, int index, int end) {
+        if (str.charAt(index) != ATTRIBUTE_BLOCK_START) {
+            return index;
+        }
+
+        int blockEnd = str.indexOf(ATTRIBUTE_BLOCK_END, index);
+        if (blockEnd < 0 || blockEnd >= end) {
+            return index;
+        }
+
+        return skipWhitespaceForward(str, blockEnd + 1, end);
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+    }
+
+    private static final class Scanner {
+
+        private final String output;
+        private final int maxUrlCount;
+
+        private int[] offsets = new int[2 * INITIAL_CAPACITY];
+        private int count;
+
+        private Scanner(String output, int maxUrlCount) {
+            this.output = output;
+            this.maxUrlCount = maxUrlCount;
+        }
+
+        void scanLines(int start, int end) throws URLTemplateException {
+            int lineStart = start;
+            while (lineStart < end) {
+                int lineEnd = output.indexOf(URL_SEPARATOR, lineStart);
+                if (lineEnd < 0 || lineEnd > end) {
+                    lineEnd = end;
+                }
+
+                addUrl(lineStart, lineEnd);
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        void scanJdbcPrefixes(int start, int end) throws URLTemplateException {
+            int urlStart = start;
+            int i = start;
+            while (i < end) {
+                int prefixStart = endOfAttributeBlock(output, i, end);
+                int prefixEnd = endOfJdbcPrefix(output, prefixStart, end);
+                if (prefixEnd < 0) {
+                    i++;
+                } else {
+                    addUrl(urlStart, i);
+                    urlStart = i;
+                    i = prefixEnd;
+                }
+            }
+
+            addUrl(urlStart, end);
+        }
+
+        private void addUrl(int start, int end) throws URLTemplateException {
+            int urlStart = skipWhitespaceForward(output, start, end);
+            int urlEnd = skipWhitespaceBackward(output, urlStart, end);
+            if (urlStart == urlEnd) {
+                return;
+            }
+
+            if (count == maxUrlCount) {
+                throw URLTemplateException.forMessage(
+                        "Template yielded more than the maximum allowed number of %s URLs", maxUrlCount);
+            }
+
+            if (2 * count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            }
+
+            offsets[2 * count] = urlStart;
+            offsets[2 * count + 1] = urlEnd;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc.url;
+
+import com.github.robin.jdbc.config.Configuration;
+import com.github.robin.jdbc.config.URLTemplateException;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A compiled URL template: parsed once, evaluated many times.
+ *
+ * <p>Implementations are immutable and thread-safe. The returned URL lists are immutable
+ * too, and might produce the URLs lazily as they are accessed.</p>
+ */
+public interface UrlTemplate {
+
+    /**
+     * Evaluates the template.
+     *
+     * @param properties the properties to evaluate the template with
+     * @param maxUrlCount the maximum number of URLs the template is allowed to yield
+     * @param maxOutputLength the maximum number of characters the template is allowed to output
+     * @return the immutable list of URLs
+     * @throws URLTemplateException if the evaluation fails or any of the limits is exceeded
+     */
+    List<String> getUrls(Properties properties, int maxUrlCount, int maxOutputLength) throws URLTemplateException;
+
+    /**
+     * Returns the revision of the URLs: it changes when the template yields different URLs for
+     * the same properties, e.g. as the file the URLs are read from changes. Results of earlier
+     * evaluations are outdated once the revision changes.
+     *
+     * @return the revision of the URLs; constant for templates yielding the same URLs for the same properties
+     */
+    default long getRevision() {
+        return 0L;
+    }
+
+    /**
+     * Returns whether any of the URLs yielded might start with an attribute block, like
+     * {@code [weight=2] jdbc:h2:mem:db}: if not, the URLs need not be inspected for attributes.
+     *
+     * @return {@code false} only if the URLs never start with an attribute block
+     */
+    default boolean mayYieldAttributes() {
+        return true;
+    }
+
+    default List<String> getUrls(Properties properties) throws URLTemplateException {
+        return getUrls(properties,
+                Configuration.DEFAULT_MAX_URL_COUNT, Configuration.DEFAULT_MAX_TEMPLATE_OUTPUT_LENGTH);
+    }
+
+}
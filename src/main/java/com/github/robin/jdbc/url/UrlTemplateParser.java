@@ -22,5 +22,10 @@ import java.util.List;
 import java.util.Properties;
 
 public interface UrlTemplateParser {
-    List<String> getUrls(String urlPattern, Properties properties) throws URLTemplateException;
+
+    UrlTemplate compile(String urlPattern) throws URLTemplateException;
+
+    default List<String> getUrls(String urlPattern, Properties properties) throws URLTemplateException {
+        return compile(urlPattern).getUrls(properties);
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc.url;
+
+import com.github.robin.jdbc.config.URLTemplateException;
+import com.google.escapevelocity.ParseException;
+import com.google.escapevelocity.Template;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Generic {@link UrlTemplate} implementation: the user-defined template is parsed
+ * by the Velocity engine once, and the parsed template is evaluated for each call.
+ *
+ * <p>The output of the {@value #GENERATOR_MACRO_NAME} macro is bounded while it is rendered,
+ * by an {@link OutputLimit}. Output produced otherwise, e.g. by a plain {@code #foreach} loop,
+ * is only checked against the maximum length once the template is rendered.</p>
+ */
+final class VelocityUrlTemplate implements UrlTemplate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VelocityUrlTemplate.class);
+
+    static final String GENERATOR_MACRO_NAME = "jdbcUrlsFrom";
+
+    static final String FORMATTER_MACRO_NAME = "formatter";
+
+    private static final String OUTPUT_LIMIT_NAME = "robinOutputLimit";
+
+    // each line is passed through the output limit, which aborts the evaluation once it is exceeded
+    private static final String GENERATOR_MACRO_CODE = String.format(
+                            "#macro( %s $inputList )\n"
+                            + "#foreach( $value in $inputList )$%s.line(\"$!bodyContent\")\n#end\n"
+                            + "#end\n", GENERATOR_MACRO_NAME, OUTPUT_LIMIT_NAME);
+
+    private static final String FORMAT_MACRO_CODE = String.format(
+            "#macro( %s $formatString $value )\n"
+                    + "$formatter.format($formatString, $value)\n"
+                    + "#end\n", FORMATTER_MACRO_NAME);
+
+    private final String urlTemplate;
+    private final Template template;
+
+    private VelocityUrlTemplate(String urlTemplate, Template template) {
+        this.urlTemplate = urlTemplate;
+        this.template = template;
+    }
+
+    static VelocityUrlTemplate compile(String urlTemplate) throws URLTemplateException {
+        try {
+            String fullTemplate = GENERATOR_MACRO_CODE + FORMAT_MACRO_CODE + urlTemplate;
+
+            Template template = Template.parseFrom(new StringReader(fullTemplate));
+
+            return new VelocityUrlTemplate(urlTemplate, template);
+
+        } catch (ParseException pex) {
+            LOGGER.error("User-defined Velocity template is invalid: {}", urlTemplate);
+
+            throw new URLTemplateException(
+                    "Template evaluation failed: ensure the template adheres to Velocity template syntax", pex);
+        } catch (IOException ioe) {
+            LOGGER.error("I/O error processing template: {}", urlTemplate);
+
+            throw new URLTemplateException("I/O error processing template", ioe);
+        }
+    }
+
+    @Override
+    public List<String> getUrls(Properties properties, int maxUrlCount, int maxOutputLength)
+            throws URLTemplateException {
+        if (LOGGER.isTraceEnabled()) {
+            if (properties != null) {
+                LOGGER.debug("Received {} properties", properties.size());
+                properties.forEach((key, value) ->
+                        LOGGER.trace("Property '{}'={}", key, value));
+            } else {
+                LOGGER.debug("Properties are null");
+            }
+        }
+
+        Map<String, Object> context = new HashMap<>();
+        if (properties != null) {
+            properties.forEach((key, value) -> context.put(String.valueOf(key), value));
+        }
+
+        context.put(FORMATTER_MACRO_NAME, FormatUtil.INSTANCE);
+        OutputLimit outputLimit = new OutputLimit(maxOutputLength);
+        context.put(OUTPUT_LIMIT_NAME, outputLimit);
+
+        String templateResult = evaluate(context, outputLimit);
+        if (templateResult.length() > maxOutputLength) {
+            throw URLTemplateException.forMessage("Template output is %s characters long, which exceeds "
+                    + "the maximum allowed length of %s characters", templateResult.length(), maxOutputLength);
+        }
+
+        return DefaultUrlTemplateParser.validateUrls(ScannedUrlList.scan(templateResult, maxUrlCount));
+    }
+
+    private String evaluate(Map<String, Object> context, OutputLimit outputLimit) throws URLTemplateException {
+        try {
+            return template.evaluate(context);
+        } catch (RuntimeException e) {
+            // the engine wraps the exception aborting the evaluation
+            if (outputLimit.isExceeded()) {
+                throw URLTemplateException.forMessage("Template output exceeds the maximum allowed length of "
+                        + "%s characters", outputLimit.getMaxOutputLength());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VelocityUrlTemplate{" + urlTemplate + '}';
+    }
+}
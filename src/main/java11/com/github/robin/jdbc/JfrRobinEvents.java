@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link RobinEvents} emitting Java Flight Recorder events. Only loaded if the runtime has the
+ * {@code jdk.jfr} API. The events are only allocated if they are enabled in a recording.
+ */
+final class JfrRobinEvents extends RobinEvents {
+
+    private static final String CATEGORY = "Robin JDBC";
+
+    // instances only used to check whether the event types are enabled
+    private static final ConnectEvent CONNECT = new ConnectEvent();
+    private static final ConnectAttemptEvent CONNECT_ATTEMPT = new ConnectAttemptEvent();
+    private static final TemplateEvaluationEvent TEMPLATE_EVALUATION = new TemplateEvaluationEvent();
+    private static final ConfigurationParseEvent CONFIGURATION_PARSE = new ConfigurationParseEvent();
+
+    @Override
+    Object beginConnect() {
+        if (!CONNECT.isEnabled()) {
+            return null;
+        }
+        ConnectEvent event = new ConnectEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endConnect(Object event, ConnectPlan connectPlan, boolean success) {
+        if (event == null) {
+            return;
+        }
+
+        ConnectEvent connectEvent = (ConnectEvent) event;
+        connectEvent.end();
+        if (connectEvent.shouldCommit()) {
+            if (connectPlan != null) {
+                connectEvent.connectionType = connectPlan.getConnectionType().name;
+                connectEvent.urlCount = connectPlan.getUrls().size();
+            }
+            connectEvent.success = success;
+            connectEvent.commit();
+        }
+    }
+
+    @Override
+    Object beginConnectAttempt() {
+        if (!CONNECT_ATTEMPT.isEnabled()) {
+            return null;
+        }
+        ConnectAttemptEvent event = new ConnectAttemptEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endConnectAttempt(Object event, String url, boolean success, SQLException failure) {
+        if (event == null) {
+            return;
+        }
+
+        ConnectAttemptEvent attemptEvent = (ConnectAttemptEvent) event;
+        attemptEvent.end();
+        if (attemptEvent.shouldCommit()) {
+            attemptEvent.url = url;
+            attemptEvent.success = success;
+            if (failure != null) {
+                attemptEvent.sqlState = failure.getSQLState();
+            }
+            attemptEvent.commit();
+        }
+    }
+
+    @Override
+    Object beginTemplateEvaluation() {
+        if (!TEMPLATE_EVALUATION.isEnabled()) {
+            return null;
+        }
+        TemplateEvaluationEvent event = new TemplateEvaluationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endTemplateEvaluation(Object event, List<String> urls) {
+        if (event == null) {
+            return;
+        }
+
+        TemplateEvaluationEvent evaluationEvent = (TemplateEvaluationEvent) event;
+        evaluationEvent.end();
+        if (evaluationEvent.shouldCommit()) {
+            if (urls != null) {
+                evaluationEvent.success = true;
+                evaluationEvent.urlCount = urls.size();
+            }
+            evaluationEvent.commit();
+        }
+    }
+
+    @Override
+    Object beginConfigurationParse() {
+        if (!CONFIGURATION_PARSE.isEnabled()) {
+            return null;
+        }
+        ConfigurationParseEvent event = new ConfigurationParseEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endConfigurationParse(Object event, boolean success) {
+        if (event == null) {
+            return;
+        }
+
+        ConfigurationParseEvent parseEvent = (ConfigurationParseEvent) event;
+        parseEvent.end();
+        if (parseEvent.shouldCommit()) {
+            parseEvent.success = success;
+            parseEvent.commit();
+        }
+    }
+
+    @Name("com.github.robin.jdbc.Connect")
+    @Label("Robin Connect")
+    @Category(CATEGORY)
+    @Description("Connect call of the robin driver or data source, including all connection attempts")
+    static final class ConnectEvent extends Event {
+
+        @Label("Connection Type")
+        private String connectionType;
+
+        @Label("URL Count")
+        private int urlCount;
+
+        @Label("Success")
+        private boolean success;
+    }
+
+    @Name("com.github.robin.jdbc.ConnectAttempt")
+    @Label("Robin Connection Attempt")
+    @Category(CATEGORY)
+    @Description("Connection attempt to a delegate URL")
+    static final class ConnectAttemptEvent extends Event {
+
+        @Label("URL")
+        private String url;
+
+        @Label("Success")
+        private boolean success;
+
+        @Label("SQL State")
+        private String sqlState;
+    }
+
+    @Name("com.github.robin.jdbc.TemplateEvaluation")
+    @Label("Robin URL Template Evaluation")
+    @Category(CATEGORY)
+    @Description("Compilation and evaluation of the URL template, when a connect plan is created")
+    static final class TemplateEvaluationEvent extends Event {
+
+        @Label("URL Count")
+        private int urlCount;
+
+        @Label("Success")
+        private boolean success;
+    }
+
+    @Name("com.github.robin.jdbc.ConfigurationParse")
+    @Label("Robin Configuration Parse")
+    @Category(CATEGORY)
+    @Description("Parsing of the configuration section of the robin URL, when a connect plan is created")
+    static final class ConfigurationParseEvent extends Event {
+
+        @Label("Success")
+        private boolean success;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionControlTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testConcurrencyCap() throws InterruptedException {
+        Configuration configuration = new Configuration();
+        configuration.setMaxConcurrentConnects(2);
+
+        EndpointAdmission admission = new EndpointAdmission();
+        Assert.assertTrue(admission.admit(configuration));
+        Assert.assertTrue(admission.admit(configuration));
+        Assert.assertFalse(admission.admit(configuration));
+
+        admission.release();
+        Assert.assertTrue(admission.admit(configuration));
+        Assert.assertEquals(admission.getConnectsInFlight(), 2);
+    }
+
+    @Test
+    public void testRateLimit() throws InterruptedException {
+        Configuration configuration = new Configuration();
+        configuration.setMaxConnectsPerSecond(5);
+
+        EndpointAdmission admission = new EndpointAdmission();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(admission.admit(configuration));
+            admission.release();
+        }
+        Assert.assertFalse(admission.admit(configuration));
+
+        // a queued connect waits for the next token
+        configuration.setMaxQueuedConnects(1);
+        long start = System.nanoTime();
+        Assert.assertTrue(admission.admit(configuration));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue(elapsedMillis < 1000, "Took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void testQueuedConnectTimesOut() throws InterruptedException {
+        Configuration configuration = new Configuration();
+        configuration.setMaxConcurrentConnects(1);
+        configuration.setMaxQueuedConnects(1);
+        configuration.setAdmissionTimeoutMillis(100);
+
+        EndpointAdmission admission = new EndpointAdmission();
+        Assert.assertTrue(admission.admit(configuration));
+
+        long start = System.nanoTime();
+        Assert.assertFalse(admission.admit(configuration));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+    }
+
+    @Test
+    public void testSaturatedEndpointSpillsOverToNextUrl() throws Exception {
+        String url = "jdbc:robin:failover:maxConcurrentConnects=1;template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.sleeping(500, "jdbc:h2:mem:admission1") + "', "
+                + "'jdbc:h2:mem:admission2'] ) $value #end";
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch startGate = new CountDownLatch(1);
+            Future<String> first = executor.submit(() -> connect(url, startGate));
+            Future<String> second = executor.submit(() -> connect(url, startGate));
+            startGate.countDown();
+
+            Assert.assertEquals(new HashSet<>(Arrays.asList(first.get(10, TimeUnit.SECONDS),
+                    second.get(10, TimeUnit.SECONDS))), new HashSet<>(Arrays.asList("ADMISSION1", "ADMISSION2")));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String connect(String url, CountDownLatch startGate) throws Exception {
+        startGate.await();
+        try (Connection connection = DriverManager.getConnection(url)) {
+            return connection.getCatalog();
+        }
+    }
+}
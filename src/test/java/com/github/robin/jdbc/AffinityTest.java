@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.DefaultConfigurationFactory;
+import com.github.robin.jdbc.url.DefaultUrlTemplateParser;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+public class AffinityTest {
+
+    private static final String URL = "jdbc:robin:affinity:template:"
+            + "#@jdbcUrlsFrom( [1..4] ) jdbc:h2:mem:affinity0$value #end";
+
+    @Test
+    public void testSameKeyIsRoutedToSameEndpoint() throws SQLException {
+        Set<String> catalogsOfTenants = new HashSet<>();
+        for (int tenant = 0; tenant < 50; tenant++) {
+            String catalog = connect("tenant-" + tenant);
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(connect("tenant-" + tenant), catalog);
+            }
+            catalogsOfTenants.add(catalog);
+        }
+
+        Assert.assertTrue(catalogsOfTenants.size() > 1, "All tenants routed to " + catalogsOfTenants);
+    }
+
+    @Test
+    public void testPlanIsSharedBetweenRoutingKeys() throws Exception {
+        ConnectionFactory connectionFactory = new ConnectionFactory(DefaultConfigurationFactory.getInstance(),
+                DefaultUrlTemplateParser.getInstance(), new ConnectPlanCache(16));
+
+        String factoryConfiguration = URL.substring(Driver.JDBC_URL_PREFIX.length());
+        ConnectPlan first = connectionFactory.getConnectPlan(factoryConfiguration, routingKey("tenant-a"));
+        ConnectPlan second = connectionFactory.getConnectPlan(factoryConfiguration, routingKey("tenant-b"));
+
+        Assert.assertSame(first, second);
+    }
+
+    @Test
+    public void testFailoverToNextRingNode() {
+        List<String> urls = urls(5);
+        HashRing hashRing = new HashRing(urls);
+
+        List<String> orderedUrls = hashRing.getUrls("tenant-x");
+        Assert.assertEquals(new HashSet<>(orderedUrls), new HashSet<>(urls));
+
+        List<String> withoutFirst = new ArrayList<>(urls);
+        withoutFirst.remove(orderedUrls.get(0));
+        Assert.assertEquals(new HashRing(withoutFirst).getUrls("tenant-x").get(0), orderedUrls.get(1));
+    }
+
+    @Test
+    public void testAddingEndpointMovesFewKeys() {
+        HashRing fourEndpoints = new HashRing(urls(4));
+        HashRing fiveEndpoints = new HashRing(urls(5));
+
+        int moved = 0;
+        final int keyCount = 10000;
+        for (int i = 0; i < keyCount; i++) {
+            String before = fourEndpoints.getUrls("key-" + i).get(0);
+            String after = fiveEndpoints.getUrls("key-" + i).get(0);
+            if (!before.equals(after)) {
+                moved++;
+                Assert.assertEquals(after, "jdbc:h2:mem:ring5");
+            }
+        }
+
+        // ideally 1/5 of the keys move, all to the new endpoint
+        Assert.assertTrue(moved > keyCount / 10 && moved < keyCount * 3 / 10, "Moved " + moved + " keys");
+    }
+
+    private static List<String> urls(int count) {
+        List<String> urls = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            urls.add("jdbc:h2:mem:ring" + i);
+        }
+        return urls;
+    }
+
+    private static Properties routingKey(String routingKey) {
+        Properties properties = new Properties();
+        properties.setProperty(ConnectionType.ROUTING_KEY_PROPERTY, routingKey);
+        return properties;
+    }
+
+    private static String connect(String routingKey) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, routingKey(routingKey))) {
+            return connection.getCatalog();
+        }
+    }
+}
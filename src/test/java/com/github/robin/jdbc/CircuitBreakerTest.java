@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreakerTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testOpenEndpointIsAttemptedLast() throws SQLException {
+        String deadUrl = TestDelegateDriver.failing("jdbc:h2:mem:breaker01");
+        String url = "jdbc:robin:failover:circuitBreakerFailureThreshold=2;template:#@jdbcUrlsFrom( ['"
+                + deadUrl + "', 'jdbc:h2:mem:breaker02'] ) $value #end";
+
+        for (int i = 0; i < 5; i++) {
+            try (Connection connection = DriverManager.getConnection(url)) {
+                Assert.assertEquals(connection.getCatalog(), "BREAKER02");
+            }
+        }
+
+        Assert.assertEquals(TestDelegateDriver.getAttemptCount(deadUrl), 2);
+    }
+
+    @Test
+    public void testOpenEndpointIsAttemptedIfAllOthersFail() {
+        String deadUrl = TestDelegateDriver.failing("jdbc:h2:mem:breaker11");
+        String otherDeadUrl = TestDelegateDriver.failing("jdbc:h2:mem:breaker12");
+        String url = "jdbc:robin:failover:circuitBreakerFailureThreshold=1;template:#@jdbcUrlsFrom( ['"
+                + deadUrl + "', '" + otherDeadUrl + "'] ) $value #end";
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                DriverManager.getConnection(url);
+                Assert.fail("Should have thrown an exception");
+            } catch (SQLException expected) {
+                Assert.assertEquals(expected.getSuppressed().length, 2);
+            }
+        }
+
+        Assert.assertEquals(TestDelegateDriver.getAttemptCount(deadUrl), 3);
+    }
+
+    @Test
+    public void testInvalidCredentialsDoNotOpenTheBreaker() throws SQLException {
+        String url = "jdbc:robin:failover:circuitBreakerFailureThreshold=1;template:"
+                + "jdbc:h2:mem:breaker41 jdbc:h2:mem:breaker42";
+
+        // the in-memory databases are created with the credentials of their first connection
+        try (Connection keepAlive = DriverManager.getConnection("jdbc:h2:mem:breaker41", "sa", "secret");
+             Connection otherKeepAlive = DriverManager.getConnection("jdbc:h2:mem:breaker42", "sa", "secret")) {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    DriverManager.getConnection(url, "sa", "wrong").close();
+                    Assert.fail("Should have thrown an exception");
+                } catch (SQLException expected) {
+                    Assert.assertEquals(((SQLException) expected.getSuppressed()[0]).getSQLState(), "28000");
+                }
+            }
+
+            EndpointState endpointState = EndpointRegistry.getInstance().get("jdbc:h2:mem:breaker41");
+            Assert.assertEquals(endpointState.getConsecutiveFailures(), 0);
+            try (Connection connection = DriverManager.getConnection(url, "sa", "secret")) {
+                Assert.assertEquals(connection.getCatalog(), "BREAKER41");
+            }
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() throws SQLException {
+        String deadUrl = TestDelegateDriver.failing("jdbc:h2:mem:breaker21");
+        String url = "jdbc:robin:failover:template:#@jdbcUrlsFrom( ['"
+                + deadUrl + "', 'jdbc:h2:mem:breaker22'] ) $value #end";
+
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = DriverManager.getConnection(url)) {
+                Assert.assertEquals(connection.getCatalog(), "BREAKER22");
+            }
+        }
+
+        Assert.assertEquals(TestDelegateDriver.getAttemptCount(deadUrl), 3);
+    }
+
+    @Test
+    public void testCircuitStateTransitions() {
+        EndpointState endpointState = new EndpointState("jdbc:h2:mem:breaker31");
+        long coolDownNanos = TimeUnit.SECONDS.toNanos(10);
+        long now = 0;
+
+        endpointState.recordFailure(now);
+        Assert.assertEquals(endpointState.getCircuitState(2, coolDownNanos, now), EndpointState.CircuitState.CLOSED);
+
+        endpointState.recordFailure(now);
+        Assert.assertEquals(endpointState.getCircuitState(2, coolDownNanos, now), EndpointState.CircuitState.OPEN);
+        Assert.assertEquals(endpointState.getCircuitState(0, coolDownNanos, now), EndpointState.CircuitState.CLOSED);
+
+        now += coolDownNanos;
+        Assert.assertEquals(endpointState.getCircuitState(2, coolDownNanos, now),
+                EndpointState.CircuitState.HALF_OPEN);
+
+        endpointState.recordFailure(now);
+        Assert.assertEquals(endpointState.getCircuitState(2, coolDownNanos, now), EndpointState.CircuitState.OPEN);
+
+        endpointState.recordSuccess(1000L);
+        Assert.assertEquals(endpointState.getCircuitState(2, coolDownNanos, now), EndpointState.CircuitState.CLOSED);
+    }
+}
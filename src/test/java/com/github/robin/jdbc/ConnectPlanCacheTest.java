@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.DefaultConfigurationFactory;
+import com.github.robin.jdbc.config.ConnectionURLSyntaxException;
+import com.github.robin.jdbc.url.DefaultUrlTemplateParser;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.Properties;
+
+public class ConnectPlanCacheTest {
+
+    private static final String FACTORY_CONFIGURATION =
+            "failover:template:#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:plan0$value  #end";
+
+    @Test
+    public void testPlanIsReusedForSameUrlAndProperties() throws SQLException, ConnectionURLSyntaxException {
+        ConnectionFactory connectionFactory = newConnectionFactory(4);
+
+        Properties properties = new Properties();
+        properties.setProperty("user", "sa");
+
+        ConnectPlan first = connectionFactory.getConnectPlan(FACTORY_CONFIGURATION, properties);
+        ConnectPlan second = connectionFactory.getConnectPlan(FACTORY_CONFIGURATION, (Properties) properties.clone());
+
+        Assert.assertSame(second, first);
+        Assert.assertEquals(first.getConnectionType(), ConnectionType.FAILOVER);
+        Assert.assertEquals(first.getUrls().size(), 2);
+
+        ConnectPlanCache cache = connectionFactory.getConnectPlanCache();
+        Assert.assertEquals(cache.getMissCount(), 1);
+        Assert.assertEquals(cache.getHitCount(), 1);
+    }
+
+    @Test
+    public void testDifferentPropertiesYieldDifferentPlans() throws SQLException, ConnectionURLSyntaxException {
+        ConnectionFactory connectionFactory = newConnectionFactory(4);
+
+        Properties properties = new Properties();
+        properties.setProperty("user", "sa");
+
+        ConnectPlan first = connectionFactory.getConnectPlan(FACTORY_CONFIGURATION, properties);
+        ConnectPlan second = connectionFactory.getConnectPlan(FACTORY_CONFIGURATION, new Properties());
+
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(connectionFactory.getConnectPlanCache().getMissCount(), 2);
+    }
+
+    @Test
+    public void testEviction() throws SQLException, ConnectionURLSyntaxException {
+        ConnectionFactory connectionFactory = newConnectionFactory(2);
+
+        for (int i = 0; i < 5; i++) {
+            Properties properties = new Properties();
+            properties.setProperty("user", "user" + i);
+
+            connectionFactory.getConnectPlan(FACTORY_CONFIGURATION, properties);
+        }
+
+        ConnectPlanCache cache = connectionFactory.getConnectPlanCache();
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertEquals(cache.getEvictionCount(), 3);
+    }
+
+    @Test
+    public void testDisabledCache() throws SQLException, ConnectionURLSyntaxException {
+        ConnectionFactory connectionFactory = newConnectionFactory(0);
+
+        ConnectPlan first = connectionFactory.getConnectPlan(FACTORY_CONFIGURATION, null);
+        ConnectPlan second = connectionFactory.getConnectPlan(FACTORY_CONFIGURATION, null);
+
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(connectionFactory.getConnectPlanCache().size(), 0);
+    }
+
+    private static ConnectionFactory newConnectionFactory(int maximumSize) {
+        return new ConnectionFactory(DefaultConfigurationFactory.getInstance(),
+                DefaultUrlTemplateParser.getInstance(), new ConnectPlanCache(maximumSize));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+public class ConnectTimeoutTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testHungAttemptIsAbandoned() throws SQLException {
+        String url = "jdbc:robin:failover:attemptTimeoutMillis=200;template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.sleeping(10000, "jdbc:h2:mem:timeout01") + "', 'jdbc:h2:mem:timeout02'] ) "
+                + "$value #end";
+
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url)) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assert.assertEquals(connection.getCatalog(), "TIMEOUT02");
+            Assert.assertTrue(elapsedMillis < 5000, "Took " + elapsedMillis + " ms");
+        }
+    }
+
+    @Test
+    public void testAllAttemptsTimeOut() {
+        String url = "jdbc:robin:failover:attemptTimeoutMillis=100;template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.sleeping(10000, "jdbc:h2:mem:timeout11") + "', '"
+                + TestDelegateDriver.sleeping(10000, "jdbc:h2:mem:timeout12") + "'] ) $value #end";
+
+        try {
+            DriverManager.getConnection(url);
+            Assert.fail("Should have thrown an exception");
+        } catch (SQLException expected) {
+            Assert.assertEquals(expected.getSuppressed().length, 2);
+            Assert.assertTrue(expected.getSuppressed()[0] instanceof SQLTimeoutException);
+        }
+    }
+
+    @Test
+    public void testConnectTimeout() {
+        String url = "jdbc:robin:failover:connectTimeoutMillis=300;template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.sleeping(10000, "jdbc:h2:mem:timeout21") + "', '"
+                + TestDelegateDriver.sleeping(10000, "jdbc:h2:mem:timeout22") + "'] ) $value #end";
+
+        long start = System.nanoTime();
+        try {
+            DriverManager.getConnection(url);
+            Assert.fail("Should have thrown an exception");
+        } catch (SQLException expected) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assert.assertTrue(expected instanceof SQLTimeoutException, expected.toString());
+            Assert.assertEquals(expected.getMessage(), "Connect timeout of 300 ms elapsed");
+            Assert.assertTrue(elapsedMillis < 5000, "Took " + elapsedMillis + " ms");
+        }
+    }
+
+    @Test
+    public void testConnectTimeoutWithHedging() throws SQLException {
+        String url = "jdbc:robin:failover:hedgeDelayMillis=50;connectTimeoutMillis=5000;template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.sleeping(10000, "jdbc:h2:mem:timeout31") + "', 'jdbc:h2:mem:timeout32'] ) "
+                + "$value #end";
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertEquals(connection.getCatalog(), "TIMEOUT32");
+        }
+    }
+}
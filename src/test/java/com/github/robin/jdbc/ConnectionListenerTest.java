@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The listeners are discovered once per class loader of the driver: {@link RecordingConnectionListener}
+ * is only registered for a copy of the driver loaded by a dedicated class loader, so that the rest of
+ * the tests run with no listener registered.
+ */
+public class ConnectionListenerTest {
+
+    private static final String PACKAGE_PREFIX = ConnectionListenerTest.class.getPackage().getName() + ".";
+
+    private URLClassLoader listenerClassLoader;
+    private java.sql.Driver driver;
+
+    @BeforeClass
+    public void beforeClass() throws Exception {
+        URL[] urls = {
+            ConnectionListenerTest.class.getResource("/listener/"),
+            Driver.class.getProtectionDomain().getCodeSource().getLocation(),
+            ConnectionListenerTest.class.getProtectionDomain().getCodeSource().getLocation()
+        };
+        listenerClassLoader = new DriverClassLoader(urls, ConnectionListenerTest.class.getClassLoader());
+
+        // the listeners are discovered with the context class loader
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(listenerClassLoader);
+        try {
+            Class.forName(ConnectionListeners.class.getName(), true, listenerClassLoader);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+
+        Class.forName(TestDelegateDriver.class.getName(), true, listenerClassLoader);
+        driver = (java.sql.Driver) listenerClassLoader.loadClass(Driver.class.getName())
+                .getDeclaredConstructor().newInstance();
+    }
+
+    @AfterClass
+    public void afterClass() throws IOException {
+        listenerClassLoader.close();
+    }
+
+    @Test
+    public void testListenersAreDisabledIfNoneIsRegistered() {
+        Assert.assertFalse(ConnectionListeners.ENABLED);
+    }
+
+    @Test
+    public void testListenerIsDiscovered() throws ReflectiveOperationException {
+        Field enabled = listenerClassLoader.loadClass(ConnectionListeners.class.getName()).getDeclaredField("ENABLED");
+        enabled.setAccessible(true);
+        Assert.assertTrue(enabled.getBoolean(null));
+    }
+
+    @Test
+    public void testCallbacksOfConnectAndClose() throws Exception {
+        String deadUrl = TestDelegateDriver.failing("jdbc:h2:mem:listener1");
+        String url = "jdbc:robin:failover:trackConnections=true;template:#@jdbcUrlsFrom( ['"
+                + deadUrl + "', 'jdbc:h2:mem:listener2'] ) $value #end";
+
+        String thread = Thread.currentThread().getName();
+        try (Connection connection = driver.connect(url, new Properties())) {
+            Assert.assertEquals(connection.getCatalog(), "LISTENER2");
+        }
+
+        Assert.assertEquals(getCallbacks(deadUrl), Arrays.asList(
+                "attemptFinished " + thread + " null 0 " + deadUrl + " false Simulated connection failure: "
+                        + deadUrl));
+        Assert.assertEquals(getCallbacks("jdbc:h2:mem:listener2"), Arrays.asList(
+                "attemptFinished " + thread + " null 0 jdbc:h2:mem:listener2 true ",
+                "connectionClosed " + thread + " null 0 jdbc:h2:mem:listener2 true "));
+    }
+
+    @Test
+    public void testCallbacksOfFailedConnect() throws Exception {
+        String deadUrl = TestDelegateDriver.failing("jdbc:h2:mem:listener11");
+        String url = "jdbc:robin:loadbalance:template:#@jdbcUrlsFrom( ['"
+                + deadUrl + "', '" + deadUrl + "', '" + deadUrl + "'] ) $value #end";
+
+        String thread = Thread.currentThread().getName();
+        try {
+            driver.connect(url, new Properties()).close();
+            Assert.fail("connect should fail");
+        } catch (SQLException expected) {
+            // expected
+        }
+
+        List<String> callbacks = getCallbacks(thread);
+        Assert.assertTrue(callbacks.size() >= 5, callbacks.toString());
+        Assert.assertEquals(callbacks.get(callbacks.size() - 5), "connectStarted " + thread + " null 0 null false ");
+        Assert.assertTrue(callbacks.get(callbacks.size() - 1).startsWith(
+                "connectFailed " + thread + " loadbalance 3 null false Could not connect to any of the URLs"),
+                callbacks.toString());
+        Assert.assertEquals(getCallbacks("attemptFinished " + thread + " null 0 " + deadUrl).size(), 3);
+    }
+
+    @Test
+    public void testCallbacksOfConnectWithInvalidUrl() throws Exception {
+        String thread = Thread.currentThread().getName();
+        try {
+            driver.connect("jdbc:robin:nosuchtype:template:jdbc:h2:mem:listener21", new Properties()).close();
+            Assert.fail("connect should fail");
+        } catch (SQLException expected) {
+            // expected
+        }
+
+        List<String> callbacks = getCallbacks(thread);
+        Assert.assertEquals(callbacks.get(callbacks.size() - 2), "connectStarted " + thread + " null 0 null false ");
+        Assert.assertTrue(callbacks.get(callbacks.size() - 1).startsWith(
+                "connectFailed " + thread + " null 0 null false "), callbacks.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> getCallbacks(String text) throws Exception {
+        Method getCallbacks = listenerClassLoader.loadClass(RecordingConnectionListener.class.getName())
+                .getDeclaredMethod("getCallbacks", String.class);
+        getCallbacks.setAccessible(true);
+        try {
+            return (List<String>) getCallbacks.invoke(null, text);
+        } catch (InvocationTargetException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * Loads the classes of the driver itself, instead of delegating to the parent class loader.
+     */
+    private static final class DriverClassLoader extends URLClassLoader {
+
+        private DriverClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(PACKAGE_PREFIX)) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loadedClass = findLoadedClass(name);
+                if (loadedClass == null) {
+                    loadedClass = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(loadedClass);
+                }
+                return loadedClass;
+            }
+        }
+    }
+}
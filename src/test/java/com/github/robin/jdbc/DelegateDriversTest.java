@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class DelegateDriversTest {
+
+    @Test
+    public void testPrefix() {
+        Assert.assertEquals(DelegateDrivers.getPrefix("jdbc:h2:mem:db"), "jdbc:h2:");
+        Assert.assertEquals(DelegateDrivers.getPrefix("jdbc:postgresql://host/db"), "jdbc:postgresql:");
+        Assert.assertNull(DelegateDrivers.getPrefix("jdbc-h2"));
+        Assert.assertNull(DelegateDrivers.getPrefix("jdbc:h2"));
+    }
+
+    @Test
+    public void testDriverIsCachedPerPrefix() throws SQLException {
+        DelegateDrivers delegateDrivers = new DelegateDrivers(true);
+
+        try (Connection first = delegateDrivers.connect("jdbc:h2:mem:drivers01", null);
+             Connection second = delegateDrivers.connect("jdbc:h2:mem:drivers02", null)) {
+            Assert.assertEquals(first.getCatalog(), "DRIVERS01");
+            Assert.assertEquals(second.getCatalog(), "DRIVERS02");
+        }
+
+        Assert.assertEquals(delegateDrivers.getCachedDriverCount(), 1);
+    }
+
+    @Test
+    public void testCachingDisabled() throws SQLException {
+        DelegateDrivers delegateDrivers = new DelegateDrivers(false);
+
+        try (Connection connection = delegateDrivers.connect("jdbc:h2:mem:drivers11", null)) {
+            Assert.assertEquals(connection.getCatalog(), "DRIVERS11");
+        }
+
+        Assert.assertEquals(delegateDrivers.getCachedDriverCount(), 0);
+    }
+
+    @Test
+    public void testUnknownDriverFallsBackToDriverManager() {
+        DelegateDrivers delegateDrivers = new DelegateDrivers(true);
+
+        try {
+            delegateDrivers.connect("jdbc:nosuchdriver:db", null);
+            Assert.fail("Should have thrown an exception");
+        } catch (SQLException expected) {
+            Assert.assertEquals(expected.getSQLState(), "08001");
+        }
+
+        Assert.assertEquals(delegateDrivers.getCachedDriverCount(), 0);
+    }
+}
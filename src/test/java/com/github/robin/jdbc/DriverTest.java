@@ -39,7 +39,7 @@ public class DriverTest {
             Assert.fail("Should have thrown an exception");
         } catch (SQLException sqlException) {
             Assert.assertTrue(sqlException.getMessage().contains(
-                    "Invalid URL syntax: connection type must be 'loadbalance' or 'failover', but was: 'foobar'"));
+                    "Invalid URL syntax: connection type must be one of 'loadbalance', 'failover', 'fastest', 'roundrobin', 'weighted', 'leastconn', 'affinity', 'readwrite', 'zoned', but was: 'foobar'"));
         }
     }
 
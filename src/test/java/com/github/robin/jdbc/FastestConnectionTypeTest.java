@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class FastestConnectionTypeTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testFastEndpointIsPreferred() throws SQLException {
+        String url = "jdbc:robin:fastest:template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.sleeping(100, "jdbc:h2:mem:fastest01") + "', 'jdbc:h2:mem:fastest02'] ) $value #end";
+
+        int fastConnections = 0;
+        for (int i = 0; i < 20; i++) {
+            try (Connection connection = DriverManager.getConnection(url)) {
+                if ("FASTEST02".equals(connection.getCatalog())) {
+                    fastConnections++;
+                }
+            }
+        }
+
+        Assert.assertTrue(fastConnections >= 12, "Connected to the fast endpoint " + fastConnections + " times");
+    }
+
+    @Test
+    public void testOrderByScore() {
+        EndpointRegistry endpointRegistry = EndpointRegistry.getInstance();
+        List<String> urls = Arrays.asList("jdbc:h2:mem:fastest11", "jdbc:h2:mem:fastest12", "jdbc:h2:mem:fastest13");
+
+        endpointRegistry.recordSuccess(urls.get(0), TimeUnit.MILLISECONDS.toNanos(30));
+        endpointRegistry.recordSuccess(urls.get(1), TimeUnit.MILLISECONDS.toNanos(10));
+        endpointRegistry.recordSuccess(urls.get(2), TimeUnit.MILLISECONDS.toNanos(20));
+
+        int fastestFirst = 0;
+        int explored = 0;
+        for (int i = 0; i < 1000; i++) {
+            List<String> orderedUrls = endpointRegistry.orderByScore(urls);
+            Assert.assertEquals(orderedUrls.size(), urls.size());
+
+            if (orderedUrls.equals(Arrays.asList(urls.get(1), urls.get(2), urls.get(0)))) {
+                fastestFirst++;
+            } else {
+                explored++;
+            }
+        }
+
+        Assert.assertTrue(fastestFirst > 800, "Fastest first " + fastestFirst + " times");
+        Assert.assertTrue(explored > 0, "Never explored");
+    }
+
+    @Test
+    public void testFailuresArePenalized() {
+        EndpointState reliable = new EndpointState("jdbc:h2:mem:fastest21");
+        EndpointState unreliable = new EndpointState("jdbc:h2:mem:fastest22");
+
+        reliable.recordSuccess(TimeUnit.MILLISECONDS.toNanos(20));
+        unreliable.recordSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+        unreliable.recordFailure(System.nanoTime());
+
+        Assert.assertEquals(unreliable.getFailureRateAverage(), EndpointState.EWMA_ALPHA, 0.0001);
+        Assert.assertTrue(unreliable.getScore() > reliable.getScore());
+    }
+
+    @Test
+    public void testDeadEndpointIsNotPreferred() {
+        EndpointRegistry endpointRegistry = EndpointRegistry.getInstance();
+        List<String> urls = Arrays.asList("jdbc:h2:mem:fastest31", "jdbc:h2:mem:fastest32");
+
+        for (int i = 0; i < 50; i++) {
+            endpointRegistry.recordFailure(urls.get(0));
+        }
+        endpointRegistry.recordSuccess(urls.get(1), TimeUnit.MILLISECONDS.toNanos(10));
+
+        int deadFirst = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (endpointRegistry.orderByScore(urls).get(0).equals(urls.get(0))) {
+                deadFirst++;
+            }
+        }
+
+        // only when exploring
+        Assert.assertTrue(deadFirst < 200, "Dead endpoint first " + deadFirst + " times");
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.url.DefaultUrlTemplateParser;
+import com.github.robin.jdbc.url.UrlTemplate;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.Properties;
+
+public class FileEndpointsTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private Path directory;
+
+    @BeforeClass
+    public void beforeClass() throws IOException {
+        TestDelegateDriver.register();
+        directory = Files.createTempDirectory("robin-endpoints");
+    }
+
+    @AfterClass
+    public void afterClass() throws IOException {
+        try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testConnectsToNewEndpointsAfterFileChange() throws Exception {
+        Path file = directory.resolve("change.txt");
+        write(file, "jdbc:h2:mem:fileendpoint1\njdbc:h2:mem:fileendpoint2\n");
+
+        String url = "jdbc:robin:failover:template:file:" + file;
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertEquals(connection.getCatalog(), "FILEENDPOINT1");
+        }
+
+        UrlTemplate template = DefaultUrlTemplateParser.getInstance().compile("file:" + file);
+        long revision = template.getRevision();
+
+        write(file, "jdbc:h2:mem:fileendpoint3\njdbc:h2:mem:fileendpoint4\n");
+        awaitRevisionChange(template, revision);
+
+        Assert.assertEquals(template.getUrls(new Properties()),
+                Arrays.asList("jdbc:h2:mem:fileendpoint3", "jdbc:h2:mem:fileendpoint4"));
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertEquals(connection.getCatalog(), "FILEENDPOINT3");
+        }
+    }
+
+    @Test
+    public void testDataSourceSeesNewEndpoints() throws Exception {
+        Path file = directory.resolve("datasource.txt");
+        write(file, "jdbc:h2:mem:fileendpoint11\njdbc:h2:mem:fileendpoint12\n");
+
+        RobinDataSource dataSource = new RobinDataSource("jdbc:robin:failover:template:file:" + file);
+        try (Connection connection = dataSource.getConnection()) {
+            Assert.assertEquals(connection.getCatalog(), "FILEENDPOINT11");
+        }
+
+        UrlTemplate template = DefaultUrlTemplateParser.getInstance().compile("file:" + file);
+        long revision = template.getRevision();
+
+        write(file, "jdbc:h2:mem:fileendpoint12\njdbc:h2:mem:fileendpoint11\n");
+        awaitRevisionChange(template, revision);
+
+        try (Connection connection = dataSource.getConnection()) {
+            Assert.assertEquals(connection.getCatalog(), "FILEENDPOINT12");
+        }
+    }
+
+    @Test
+    public void testInvalidChangeKeepsPreviousEndpoints() throws Exception {
+        Path file = directory.resolve("invalid.txt");
+        write(file, "jdbc:h2:mem:fileendpoint21\njdbc:h2:mem:fileendpoint22\n");
+
+        UrlTemplate template = DefaultUrlTemplateParser.getInstance().compile("file:" + file);
+        long revision = template.getRevision();
+
+        write(file, "jdbc:h2:mem:fileendpoint23\n");
+        Thread.sleep(500);
+        write(file, "jdbc:h2:mem:fileendpoint24\njdbc:h2:mem:fileendpoint25\n");
+        awaitRevisionChange(template, revision);
+
+        Assert.assertEquals(template.getUrls(new Properties()),
+                Arrays.asList("jdbc:h2:mem:fileendpoint24", "jdbc:h2:mem:fileendpoint25"));
+    }
+
+    @Test
+    public void testQuickSuccessiveChangesAreReadOnce() throws Exception {
+        Path file = directory.resolve("successive.txt");
+        write(file, "jdbc:h2:mem:fileendpoint31\njdbc:h2:mem:fileendpoint32\n");
+
+        UrlTemplate template = DefaultUrlTemplateParser.getInstance().compile("file:" + file);
+        long revision = template.getRevision();
+
+        for (int i = 3; i <= 6; i++) {
+            write(file, "jdbc:h2:mem:fileendpoint31\njdbc:h2:mem:fileendpoint3" + i + "\n");
+        }
+        awaitRevisionChange(template, revision);
+
+        Assert.assertEquals(template.getRevision(), revision + 1);
+        Assert.assertEquals(template.getUrls(new Properties()),
+                Arrays.asList("jdbc:h2:mem:fileendpoint31", "jdbc:h2:mem:fileendpoint36"));
+    }
+
+    @Test(expectedExceptions = java.sql.SQLException.class,
+            expectedExceptionsMessageRegExp = "URL template error: Cannot read URL file: .*")
+    public void testMissingFile() throws Exception {
+        DriverManager.getConnection("jdbc:robin:failover:template:file:" + directory.resolve("missing.txt"));
+    }
+
+    /**
+     * Replaces the file atomically, as recommended for endpoint files.
+     */
+    private static void write(Path file, String content) throws IOException {
+        Path temporaryFile = Files.createTempFile(file.getParent(), "endpoints", ".tmp");
+        Files.write(temporaryFile, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void awaitRevisionChange(UrlTemplate template, long revision) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (template.getRevision() == revision) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "URL file change was not noticed");
+            Thread.sleep(10);
+        }
+    }
+}
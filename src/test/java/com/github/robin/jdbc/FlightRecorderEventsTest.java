@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class FlightRecorderEventsTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testJfrEventsAreUsed() {
+        Assert.assertTrue(RobinEvents.getInstance() instanceof JfrRobinEvents);
+    }
+
+    @Test
+    public void testDisabledEventsAreNotAllocated() {
+        RobinEvents events = RobinEvents.getInstance();
+        Assert.assertNull(events.beginConnect());
+        Assert.assertNull(events.beginConnectAttempt());
+    }
+
+    @Test
+    public void testConnectEventsAreRecorded() throws Exception {
+        String deadUrl = TestDelegateDriver.failing("jdbc:h2:mem:jfr1");
+        String url = "jdbc:robin:failover:template:#@jdbcUrlsFrom( ['"
+                + deadUrl + "', 'jdbc:h2:mem:jfr2'] ) $value #end";
+
+        List<RecordedEvent> events = record(() -> {
+            try (Connection connection = DriverManager.getConnection(url)) {
+                Assert.assertEquals(connection.getCatalog(), "JFR2");
+            }
+        });
+
+        RecordedEvent connect = single(events, "com.github.robin.jdbc.Connect");
+        Assert.assertEquals(connect.getString("connectionType"), "failover");
+        Assert.assertEquals(connect.getInt("urlCount"), 2);
+        Assert.assertTrue(connect.getBoolean("success"));
+
+        List<RecordedEvent> attempts = filter(events, "com.github.robin.jdbc.ConnectAttempt");
+        Assert.assertEquals(attempts.size(), 2);
+        Assert.assertEquals(attempts.get(0).getString("url"), deadUrl);
+        Assert.assertFalse(attempts.get(0).getBoolean("success"));
+        Assert.assertEquals(attempts.get(0).getString("sqlState"), "08001");
+        Assert.assertEquals(attempts.get(1).getString("url"), "jdbc:h2:mem:jfr2");
+        Assert.assertTrue(attempts.get(1).getBoolean("success"));
+        Assert.assertNull(attempts.get(1).getString("sqlState"));
+
+        Assert.assertEquals(single(events, "com.github.robin.jdbc.TemplateEvaluation").getInt("urlCount"), 2);
+        Assert.assertTrue(single(events, "com.github.robin.jdbc.ConfigurationParse").getBoolean("success"));
+    }
+
+    @Test
+    public void testFailedConnectIsRecorded() throws Exception {
+        String url = "jdbc:robin:failover:template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.failing("jdbc:h2:mem:jfr11") + "', '"
+                + TestDelegateDriver.failing("jdbc:h2:mem:jfr12") + "'] ) $value #end";
+
+        List<RecordedEvent> events = record(() -> {
+            try {
+                DriverManager.getConnection(url).close();
+                Assert.fail("connect should fail");
+            } catch (SQLException expected) {
+                // expected
+            }
+        });
+
+        Assert.assertFalse(single(events, "com.github.robin.jdbc.Connect").getBoolean("success"));
+        Assert.assertEquals(filter(events, "com.github.robin.jdbc.ConnectAttempt").size(), 2);
+    }
+
+    private interface Action {
+        void run() throws Exception;
+    }
+
+    private static List<RecordedEvent> record(Action action) throws Exception {
+        Path file = Files.createTempFile("robin", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("com.github.robin.jdbc.Connect");
+                recording.enable("com.github.robin.jdbc.ConnectAttempt");
+                recording.enable("com.github.robin.jdbc.TemplateEvaluation");
+                recording.enable("com.github.robin.jdbc.ConfigurationParse");
+                recording.start();
+                action.run();
+                recording.stop();
+                recording.dump(file);
+            }
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .collect(Collectors.toList());
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> filtered = filter(events, name);
+        Assert.assertEquals(filtered.size(), 1, name);
+        return filtered.get(0);
+    }
+}
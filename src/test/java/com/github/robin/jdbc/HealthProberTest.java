@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import com.github.robin.jdbc.config.ConnectionURLSyntaxException;
+import com.github.robin.jdbc.config.DefaultConfigurationFactory;
+import com.github.robin.jdbc.url.DefaultUrlTemplateParser;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+public class HealthProberTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testEndpointsAreProbedInBackground() throws SQLException, InterruptedException {
+        String deadUrl = TestDelegateDriver.failing("jdbc:h2:mem:prober01");
+        String url = "jdbc:robin:failover:healthProbeIntervalMillis=20;template:#@jdbcUrlsFrom( ['"
+                + deadUrl + "', 'jdbc:h2:mem:prober02'] ) $value #end";
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertEquals(connection.getCatalog(), "PROBER02");
+        }
+
+        PropertiesKey liveKey = new PropertiesKey("jdbc:h2:mem:prober02", null);
+        PropertiesKey deadKey = new PropertiesKey(deadUrl, null);
+        awaitProbed(liveKey, deadKey);
+
+        HealthSnapshot snapshot = HealthProber.getInstance().getSnapshot();
+        Assert.assertTrue(snapshot.get(liveKey).isHealthy());
+        Assert.assertTrue(snapshot.get(liveKey).getLatencyNanos() > 0);
+        Assert.assertTrue(snapshot.isUnhealthy(deadKey));
+
+        Properties otherProperties = new Properties();
+        otherProperties.setProperty("user", "other");
+        Assert.assertNull(snapshot.get(new PropertiesKey(deadUrl, otherProperties)));
+    }
+
+    @Test
+    public void testEndpointsOfEvictedPlansAreNoLongerProbed() throws SQLException, ConnectionURLSyntaxException,
+            InterruptedException {
+        ConnectionFactory connectionFactory = new ConnectionFactory(DefaultConfigurationFactory.getInstance(),
+                DefaultUrlTemplateParser.getInstance(), new ConnectPlanCache(1));
+        Properties properties = new Properties();
+        properties.setProperty("user", "sa");
+
+        connectionFactory.getConnectPlan("failover:healthProbeIntervalMillis=20;"
+                + "template:#@jdbcUrlsFrom( [1..2] ) jdbc:h2:mem:prober2$value #end", properties);
+        PropertiesKey sharedKey = new PropertiesKey("jdbc:h2:mem:prober21", properties);
+        PropertiesKey evictedKey = new PropertiesKey("jdbc:h2:mem:prober22", properties);
+        awaitProbed(sharedKey, evictedKey);
+
+        connectionFactory.getConnectPlan("failover:healthProbeIntervalMillis=20;"
+                + "template:#@jdbcUrlsFrom( [1, 3] ) jdbc:h2:mem:prober2$value #end", properties);
+
+        HealthSnapshot snapshot = HealthProber.getInstance().getSnapshot();
+        Assert.assertNotNull(snapshot.get(sharedKey));
+        Assert.assertNull(snapshot.get(evictedKey));
+        Thread.sleep(100);
+        Assert.assertNull(HealthProber.getInstance().getSnapshot().get(evictedKey));
+    }
+
+    private static void awaitProbed(PropertiesKey... keys) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (PropertiesKey key : keys) {
+            while (HealthProber.getInstance().getSnapshot().get(key) == null) {
+                Assert.assertTrue(System.nanoTime() < deadline, "Endpoints were not probed");
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    public void testUnhealthyEndpointsAreAttemptedLast() {
+        List<String> urls = Arrays.asList("jdbc:h2:mem:prober11", "jdbc:h2:mem:prober12", "jdbc:h2:mem:prober13");
+        long nowNanos = System.nanoTime();
+        HealthSnapshot snapshot = HealthSnapshot.EMPTY
+                .with(new PropertiesKey(urls.get(0), null), new HealthSnapshot.EndpointHealth(false, 0, nowNanos))
+                .with(new PropertiesKey(urls.get(1), null), new HealthSnapshot.EndpointHealth(true, 0, nowNanos));
+
+        // the key of the plan, i.e. of the robin URL, which the endpoint keys are derived from
+        PropertiesKey planKey = ConnectPlanCache.keyFor("failover:template:", new Properties());
+        List<String> orderedUrls = EndpointRegistry.getInstance()
+                .orderByAvailability(urls, planKey, new Configuration(), snapshot);
+
+        Assert.assertEquals(orderedUrls, Arrays.asList(urls.get(1), urls.get(2), urls.get(0)));
+        Assert.assertSame(EndpointRegistry.getInstance()
+                .orderByAvailability(urls, planKey, new Configuration(), HealthSnapshot.EMPTY), urls);
+
+        Properties otherProperties = new Properties();
+        otherProperties.setProperty("user", "other");
+        PropertiesKey otherPlanKey = ConnectPlanCache.keyFor("failover:template:", otherProperties);
+        Assert.assertEquals(EndpointRegistry.getInstance()
+                .orderByAvailability(urls, otherPlanKey, new Configuration(), snapshot), urls);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+public class HedgedConnectTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testHedgingSkipsSlowEndpoint() throws SQLException {
+        String url = "jdbc:robin:failover:hedgeDelayMillis=100;template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.sleeping(5000, "jdbc:h2:mem:hedge01") + "', 'jdbc:h2:mem:hedge02'] ) $value #end";
+
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url)) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assert.assertEquals(connection.getCatalog(), "HEDGE02");
+            Assert.assertTrue(elapsedMillis < 4000, "Took " + elapsedMillis + " ms");
+        }
+    }
+
+    @Test
+    public void testFastFirstEndpointIsNotHedged() throws SQLException {
+        String url = "jdbc:robin:failover:hedgeDelayMillis=2000;template:"
+                + "#@jdbcUrlsFrom( [1..2] ) jdbc:h2:mem:hedge1$value #end";
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertEquals(connection.getCatalog(), "HEDGE11");
+        }
+    }
+
+    @Test
+    public void testFailedAttemptIsReplacedImmediately() throws SQLException {
+        String url = "jdbc:robin:failover:hedgeDelayMillis=10000;maxParallelAttempts=1;template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.failing("jdbc:h2:mem:hedge21") + "', 'jdbc:h2:mem:hedge22'] ) $value #end";
+
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url)) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assert.assertEquals(connection.getCatalog(), "HEDGE22");
+            Assert.assertTrue(elapsedMillis < 5000, "Took " + elapsedMillis + " ms");
+        }
+    }
+
+    @Test
+    public void testAllAttemptsFail() {
+        String url = "jdbc:robin:failover:hedgeDelayMillis=10;template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.failing("jdbc:h2:mem:hedge31") + "', '"
+                + TestDelegateDriver.failing("jdbc:h2:mem:hedge32") + "'] ) $value #end";
+
+        try {
+            DriverManager.getConnection(url);
+            Assert.fail("Should have thrown an exception");
+        } catch (SQLException sqlException) {
+            Assert.assertTrue(sqlException.getMessage().contains("Could not connect to any of the URLs"));
+            Assert.assertEquals(sqlException.getSuppressed().length, 2);
+        }
+    }
+}
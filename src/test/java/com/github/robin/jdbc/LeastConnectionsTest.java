@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.h2.jdbc.JdbcConnection;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class LeastConnectionsTest {
+
+    @Test
+    public void testOpenConnectionsAreBalanced() throws SQLException {
+        String url = "jdbc:robin:leastconn:template:#@jdbcUrlsFrom( [1..2] ) jdbc:h2:mem:leastconn0$value #end";
+
+        List<Connection> connections = new ArrayList<>();
+        List<String> catalogs = new ArrayList<>();
+        try {
+            for (int i = 0; i < 6; i++) {
+                Connection connection = DriverManager.getConnection(url);
+                connections.add(connection);
+                catalogs.add(connection.getCatalog());
+            }
+
+            Assert.assertEquals(Collections.frequency(catalogs, "LEASTCONN01"), 3);
+            Assert.assertEquals(Collections.frequency(catalogs, "LEASTCONN02"), 3);
+            Assert.assertEquals(EndpointRegistry.getInstance().getOpenConnections("jdbc:h2:mem:leastconn01"), 3);
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+
+        Assert.assertEquals(EndpointRegistry.getInstance().getOpenConnections("jdbc:h2:mem:leastconn01"), 0);
+        Assert.assertEquals(EndpointRegistry.getInstance().getOpenConnections("jdbc:h2:mem:leastconn02"), 0);
+    }
+
+    @Test
+    public void testTrackedConnection() throws SQLException {
+        String url = "jdbc:robin:failover:trackConnections=true;template:"
+                + "#@jdbcUrlsFrom( [1..2] ) jdbc:h2:mem:leastconn1$value #end";
+
+        Connection connection = DriverManager.getConnection(url);
+        Assert.assertTrue(connection instanceof TrackedConnection);
+        Assert.assertTrue(connection.isWrapperFor(JdbcConnection.class));
+        Assert.assertNotNull(connection.unwrap(JdbcConnection.class));
+        Assert.assertEquals(EndpointRegistry.getInstance().getOpenConnections("jdbc:h2:mem:leastconn11"), 1);
+
+        connection.close();
+        connection.close();
+        Assert.assertTrue(connection.isClosed());
+        Assert.assertEquals(EndpointRegistry.getInstance().getOpenConnections("jdbc:h2:mem:leastconn11"), 0);
+    }
+
+    @Test
+    public void testNotTrackedByDefault() throws SQLException {
+        String url = "jdbc:robin:failover:template:#@jdbcUrlsFrom( [1..2] ) jdbc:h2:mem:leastconn2$value #end";
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertFalse(connection instanceof TrackedConnection);
+        }
+    }
+}
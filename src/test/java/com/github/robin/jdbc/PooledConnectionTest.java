@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import com.github.robin.jdbc.config.DefaultConfigurationFactory;
+import org.h2.jdbc.JdbcConnection;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+public class PooledConnectionTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    private static String pooledUrl(String configuration, String database) {
+        return "jdbc:robin:failover:pooled=true;" + configuration + "template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.sleeping(0, "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")
+                + "', 'jdbc:h2:mem:unused'] ) $value #end";
+    }
+
+    @Test
+    public void testConnectionIsReused() throws SQLException {
+        String url = pooledUrl("", "pooled01");
+
+        JdbcConnection physicalConnection;
+        try (Connection connection = DriverManager.getConnection(url)) {
+            physicalConnection = connection.unwrap(JdbcConnection.class);
+        }
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertSame(connection.unwrap(JdbcConnection.class), physicalConnection);
+        }
+
+        Assert.assertEquals(TestDelegateDriver.getAttemptCount(
+                TestDelegateDriver.sleeping(0, "jdbc:h2:mem:pooled01;DB_CLOSE_DELAY=-1")), 1);
+    }
+
+    @Test
+    public void testClosedConnectionCannotBeUsed() throws SQLException {
+        Connection connection = DriverManager.getConnection(pooledUrl("", "pooled11"));
+        connection.close();
+
+        Assert.assertTrue(connection.isClosed());
+        try {
+            connection.createStatement();
+            Assert.fail("Should have thrown an exception");
+        } catch (SQLException expected) {
+            Assert.assertEquals(expected.getSQLState(), "08003");
+        }
+    }
+
+    @Test
+    public void testMaxIdleConnections() throws SQLException {
+        String url = pooledUrl("maxIdleConnections=1;", "pooled21");
+
+        Connection first = DriverManager.getConnection(url);
+        Connection second = DriverManager.getConnection(url);
+        JdbcConnection firstPhysical = first.unwrap(JdbcConnection.class);
+        JdbcConnection secondPhysical = second.unwrap(JdbcConnection.class);
+
+        first.close();
+        second.close();
+
+        Assert.assertFalse(firstPhysical.isClosed());
+        Assert.assertTrue(secondPhysical.isClosed());
+    }
+
+    @Test
+    public void testMaxLifetime() throws Exception {
+        String url = pooledUrl("maxLifetimeMillis=1;", "pooled31");
+
+        JdbcConnection physicalConnection;
+        try (Connection connection = DriverManager.getConnection(url)) {
+            physicalConnection = connection.unwrap(JdbcConnection.class);
+            Thread.sleep(10);
+        }
+
+        Assert.assertTrue(physicalConnection.isClosed());
+    }
+
+    @Test
+    public void testInvalidConnectionIsNotBorrowed() throws SQLException {
+        String url = pooledUrl("", "pooled41");
+
+        JdbcConnection physicalConnection;
+        try (Connection connection = DriverManager.getConnection(url)) {
+            physicalConnection = connection.unwrap(JdbcConnection.class);
+        }
+        physicalConnection.close();
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertNotSame(connection.unwrap(JdbcConnection.class), physicalConnection);
+            Assert.assertTrue(connection.isValid(1));
+        }
+    }
+
+    @Test
+    public void testTransactionIsRolledBackOnReturn() throws SQLException {
+        String url = pooledUrl("", "pooled51");
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE T (ID INT)");
+
+            connection.setAutoCommit(false);
+            statement.execute("INSERT INTO T VALUES (1)");
+        }
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM T")) {
+            Assert.assertTrue(connection.getAutoCommit());
+            Assert.assertTrue(resultSet.next());
+            Assert.assertEquals(resultSet.getInt(1), 0);
+        }
+    }
+
+    @Test
+    public void testStatementsAreWrappedAndClosedOnReturn() throws SQLException {
+        String url = pooledUrl("", "pooled61");
+
+        Statement statement;
+        ResultSet resultSet;
+        try (Connection connection = DriverManager.getConnection(url)) {
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery("SELECT 1");
+
+            Assert.assertSame(statement.getConnection(), connection);
+            Assert.assertSame(resultSet.getStatement(), statement);
+        }
+
+        Assert.assertTrue(statement.isClosed());
+        Assert.assertTrue(resultSet.isClosed());
+        try {
+            statement.executeQuery("SELECT 1");
+            Assert.fail("Should have thrown an exception");
+        } catch (SQLException expected) {
+            Assert.assertEquals(expected.getSQLState(), "08003");
+        }
+    }
+
+    @Test
+    public void testCatalogAndSchemaAreResetOnReturn() throws SQLException {
+        String url = pooledUrl("", "pooled71");
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA OTHER");
+            connection.setSchema("OTHER");
+        }
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertEquals(connection.getSchema(), "PUBLIC");
+        }
+    }
+
+    @Test
+    public void testExpiredIdleConnectionsAreEvicted() throws Exception {
+        Configuration configuration = DefaultConfigurationFactory.getInstance()
+                .newConfiguration("maxLifetimeMillis=50;", new Properties());
+        IdleConnectionPool pool = new IdleConnectionPool("jdbc:h2:mem:pooled81");
+
+        Connection expiring = DriverManager.getConnection("jdbc:h2:mem:pooled81");
+        pool.giveBack(expiring, System.nanoTime(), configuration);
+        Thread.sleep(100);
+        Connection fresh = DriverManager.getConnection("jdbc:h2:mem:pooled81");
+        pool.giveBack(fresh, System.nanoTime(), configuration);
+
+        pool.evictExpired();
+
+        Assert.assertTrue(expiring.isClosed());
+        Assert.assertFalse(fresh.isClosed());
+        Assert.assertEquals(pool.getIdleCount(), 1);
+        pool.clear();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReadWriteConnectionTest {
+
+    private static final String URL = "jdbc:robin:readwrite:template:"
+            + "jdbc:h2:mem:rwreplica1 [role=primary] jdbc:h2:mem:rwprimary jdbc:h2:mem:rwreplica2";
+
+    @Test
+    public void testWritesGoToPrimaryAndReadOnlyGoesToReplica() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL)) {
+            Assert.assertEquals(connection.getCatalog(), "RWPRIMARY");
+
+            connection.setReadOnly(true);
+            Assert.assertTrue(connection.getCatalog().startsWith("RWREPLICA"), connection.getCatalog());
+            String replicaCatalog = connection.getCatalog();
+
+            connection.setReadOnly(false);
+            Assert.assertEquals(connection.getCatalog(), "RWPRIMARY");
+
+            // the replica connection is kept for the next switch
+            connection.setReadOnly(true);
+            Assert.assertEquals(connection.getCatalog(), replicaCatalog);
+        }
+    }
+
+    @Test
+    public void testNoSwitchWithinTransaction() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL)) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+            }
+
+            connection.setReadOnly(true);
+            Assert.assertEquals(connection.getCatalog(), "RWPRIMARY");
+            connection.rollback();
+        }
+    }
+
+    @Test
+    public void testFirstUrlIsPrimaryByDefault() throws SQLException {
+        String url = "jdbc:robin:readwrite:template:jdbc:h2:mem:rwdefault1 jdbc:h2:mem:rwdefault2";
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertEquals(connection.getCatalog(), "RWDEFAULT1");
+
+            connection.setReadOnly(true);
+            Assert.assertEquals(connection.getCatalog(), "RWDEFAULT2");
+        }
+    }
+
+    @Test
+    public void testFallbackToPrimaryIfNoReplicaIsAvailable() throws SQLException {
+        Connection primary = DriverManager.getConnection("jdbc:h2:mem:rwfallback");
+        try (ReadWriteConnection connection = new ReadWriteConnection(primary, () -> {
+            throw new SQLException("replicas down");
+        }, 0)) {
+            connection.setReadOnly(true);
+
+            Assert.assertFalse(connection.isUsingReplica());
+        }
+        Assert.assertTrue(primary.isClosed());
+    }
+
+    @Test
+    public void testCloseClosesBothConnections() throws SQLException {
+        Connection primary = DriverManager.getConnection("jdbc:h2:mem:rwclose1");
+        Connection replica = DriverManager.getConnection("jdbc:h2:mem:rwclose2");
+
+        ReadWriteConnection connection = new ReadWriteConnection(primary, () -> replica, 0);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        connection.setReadOnly(true);
+        Assert.assertTrue(connection.isUsingReplica());
+        Assert.assertEquals(replica.getTransactionIsolation(), Connection.TRANSACTION_SERIALIZABLE);
+
+        connection.close();
+        Assert.assertTrue(connection.isClosed());
+        Assert.assertTrue(primary.isClosed());
+        Assert.assertTrue(replica.isClosed());
+    }
+
+    @Test
+    public void testFailedReplicaConnectIsNotRetriedWithinRetryDelay() throws SQLException {
+        AtomicInteger connectCount = new AtomicInteger();
+        Connection primary = DriverManager.getConnection("jdbc:h2:mem:rwbackoff");
+        try (ReadWriteConnection connection = new ReadWriteConnection(primary, () -> {
+            connectCount.incrementAndGet();
+            throw new SQLException("replicas down");
+        }, 60000)) {
+            connection.setReadOnly(true);
+            connection.setReadOnly(false);
+            connection.setReadOnly(true);
+
+            Assert.assertFalse(connection.isUsingReplica());
+            Assert.assertEquals(connectCount.get(), 1);
+        }
+    }
+
+    @Test
+    public void testSessionStateIsCarriedOverOnSwitch() throws SQLException {
+        Connection primary = DriverManager.getConnection("jdbc:h2:mem:rwstate1");
+        Connection replica = DriverManager.getConnection("jdbc:h2:mem:rwstate2");
+        for (Connection physical : new Connection[] {primary, replica}) {
+            try (Statement statement = physical.createStatement()) {
+                statement.execute("CREATE SCHEMA APP");
+            }
+        }
+
+        try (ReadWriteConnection connection = new ReadWriteConnection(primary, () -> replica, 0)) {
+            connection.setSchema("APP");
+            connection.setReadOnly(true);
+
+            Assert.assertTrue(connection.isUsingReplica());
+            Assert.assertEquals(replica.getSchema(), "APP");
+        }
+    }
+
+    @Test
+    public void testLeavingReadOnlyWithinTransactionSwitchesToPrimary() throws SQLException {
+        Connection primary = DriverManager.getConnection("jdbc:h2:mem:rwleave1");
+        Connection replica = DriverManager.getConnection("jdbc:h2:mem:rwleave2");
+
+        try (ReadWriteConnection connection = new ReadWriteConnection(primary, () -> replica, 0)) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+            }
+
+            connection.setReadOnly(false);
+
+            Assert.assertFalse(connection.isUsingReplica());
+            Assert.assertEquals(connection.getCatalog(), "RWLEAVE1");
+            Assert.assertFalse(primary.getAutoCommit());
+            connection.commit();
+        }
+    }
+}
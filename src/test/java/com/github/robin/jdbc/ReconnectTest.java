@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReconnectTest {
+
+    @Test
+    public void testConnectionFailureDetection() {
+        Assert.assertTrue(ReconnectingConnection.isConnectionFailure(new SQLException("reset", "08S01")));
+        Assert.assertTrue(ReconnectingConnection.isConnectionFailure(new SQLException("shutdown", "57P01")));
+        Assert.assertTrue(ReconnectingConnection.isConnectionFailure(new SQLNonTransientConnectionException("gone")));
+        Assert.assertTrue(ReconnectingConnection.isConnectionFailure(
+                new SQLException("wrapped", new SQLException("reset", "08006"))));
+
+        Assert.assertFalse(ReconnectingConnection.isConnectionFailure(new SQLException("duplicate", "23505")));
+        Assert.assertFalse(ReconnectingConnection.isConnectionFailure(new SQLException("no state")));
+    }
+
+    @Test
+    public void testReconnectOutsideTransactionRestoresSessionState() throws SQLException {
+        List<KillableConnection> connections = new ArrayList<>();
+        try (ReconnectingConnection connection = new ReconnectingConnection(
+                newConnection(connections), () -> newConnection(connections))) {
+
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            connection.setReadOnly(true);
+            connections.get(0).kill();
+
+            // statement creation is retried on a new connection
+            Assert.assertEquals(selectOne(connection), 1);
+            Assert.assertEquals(connections.size(), 2);
+            Assert.assertFalse(connection.isBroken());
+
+            Connection reconnected = connections.get(1);
+            Assert.assertEquals(reconnected.getTransactionIsolation(), Connection.TRANSACTION_SERIALIZABLE);
+            Assert.assertTrue(reconnected.getAutoCommit());
+        }
+    }
+
+    @Test
+    public void testNoReconnectWithinTransaction() throws SQLException {
+        List<KillableConnection> connections = new ArrayList<>();
+        try (ReconnectingConnection connection = new ReconnectingConnection(
+                newConnection(connections), () -> newConnection(connections))) {
+
+            connection.setAutoCommit(false);
+            Assert.assertEquals(selectOne(connection), 1);
+            connections.get(0).kill();
+
+            Assert.expectThrows(SQLException.class, () -> selectOne(connection));
+            Assert.assertTrue(connection.isBroken());
+            Assert.assertEquals(connections.size(), 1);
+
+            // the transaction is lost: once it is ended, the connection is usable again
+            Assert.expectThrows(SQLException.class, connection::rollback);
+            Assert.assertEquals(selectOne(connection), 1);
+            Assert.assertEquals(connections.size(), 2);
+            Assert.assertFalse(connections.get(1).getAutoCommit());
+        }
+    }
+
+    @Test
+    public void testFailedStatementMarksConnectionBroken() throws SQLException {
+        List<KillableConnection> connections = new ArrayList<>();
+        try (ReconnectingConnection connection = new ReconnectingConnection(
+                newConnection(connections), () -> newConnection(connections))) {
+
+            try (Statement statement = connection.createStatement()) {
+                Assert.assertSame(statement.getConnection(), connection);
+                statement.execute("CREATE ALIAS IF NOT EXISTS RESET_SESSION FOR \""
+                        + ReconnectTest.class.getName() + ".resetSession\"");
+                Assert.expectThrows(SQLException.class, () -> statement.execute("SELECT RESET_SESSION()"));
+            }
+
+            Assert.assertTrue(connection.isBroken());
+            Assert.assertTrue(connection.isValid(1));
+            Assert.assertEquals(connections.size(), 2);
+        }
+    }
+
+    @Test
+    public void testReconnectConfiguration() throws SQLException {
+        String url = "jdbc:robin:failover:reconnect=true;template:jdbc:h2:mem:reconnect1 jdbc:h2:mem:reconnect2";
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertTrue(connection.isWrapperFor(ReconnectingConnection.class));
+        }
+    }
+
+    @Test
+    public void testConnectionIsClosedIfTheWrapperCannotBeCreated() throws SQLException {
+        TestDelegateDriver.register();
+        String url = "jdbc:robin:failover:reconnect=true;template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.failingAutoCommit("jdbc:h2:mem:reconnect9") + "', 'jdbc:h2:mem:reconnect10'] )"
+                + " $value #end";
+
+        try (Connection observer = DriverManager.getConnection("jdbc:h2:mem:reconnect9")) {
+            try {
+                DriverManager.getConnection(url).close();
+                Assert.fail("Should have thrown an exception");
+            } catch (SQLException expected) {
+                Assert.assertEquals(expected.getMessage(), "Simulated getAutoCommit failure");
+            }
+
+            try (Statement statement = observer.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS")) {
+                resultSet.next();
+                Assert.assertEquals(resultSet.getInt(1), 1, "The connection is still open");
+            }
+        }
+    }
+
+    public static int resetSession() throws SQLException {
+        throw new SQLException("Connection reset", "08006");
+    }
+
+    private static int selectOne(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static KillableConnection newConnection(List<KillableConnection> connections) throws SQLException {
+        KillableConnection connection = new KillableConnection(
+                DriverManager.getConnection("jdbc:h2:mem:reconnect" + connections.size()));
+        connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Connection simulating the loss of the session: once killed, all calls fail with a
+     * connection-level exception.
+     */
+    private static final class KillableConnection extends DelegatingConnection {
+
+        private final Connection delegate;
+        private volatile boolean killed;
+
+        private KillableConnection(Connection delegate) {
+            this.delegate = delegate;
+        }
+
+        void kill() throws SQLException {
+            killed = true;
+            delegate.close();
+        }
+
+        @Override
+        protected Connection getDelegate() throws SQLException {
+            if (killed) {
+                throw new SQLException("Connection reset", "08006");
+            }
+            return delegate;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Test listener registered via {@code listener/META-INF/services} for {@link ConnectionListenerTest}
+ * only: records the callbacks as text, as the events passed are reused.
+ */
+public final class RecordingConnectionListener implements ConnectionListener {
+
+    private static final Queue<String> CALLBACKS = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Returns the recorded callbacks mentioning the text.
+     *
+     * @param text the text to look for, e.g. a URL
+     * @return the callbacks, in order
+     */
+    static List<String> getCallbacks(String text) {
+        List<String> callbacks = new ArrayList<>();
+        for (String callback : CALLBACKS) {
+            if (callback.contains(text)) {
+                callbacks.add(callback);
+            }
+        }
+        return callbacks;
+    }
+
+    @Override
+    public void connectStarted(ConnectionEvent event) {
+        record("connectStarted", event);
+    }
+
+    @Override
+    public void attemptFinished(ConnectionEvent event) {
+        record("attemptFinished", event);
+    }
+
+    @Override
+    public void connectSucceeded(ConnectionEvent event) {
+        record("connectSucceeded", event);
+    }
+
+    @Override
+    public void connectFailed(ConnectionEvent event) {
+        record("connectFailed", event);
+    }
+
+    @Override
+    public void connectionClosed(ConnectionEvent event) {
+        record("connectionClosed", event);
+    }
+
+    private static void record(String callback, ConnectionEvent event) {
+        String failure = "";
+        if (event.getFailure() != null) {
+            failure = event.getFailure().getMessage();
+        }
+        CALLBACKS.add(callback + " " + Thread.currentThread().getName() + " " + event.getConnectionType()
+                + " " + event.getUrlCount() + " " + event.getUrl() + " " + event.isSuccess() + " " + failure);
+    }
+}
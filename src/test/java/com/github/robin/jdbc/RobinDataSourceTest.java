@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class RobinDataSourceTest {
+
+    @Test
+    public void testGetConnection() throws SQLException {
+        RobinDataSource dataSource = new RobinDataSource("jdbc:robin:failover:template:"
+                + "#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:datasource0$value  #end");
+
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = dataSource.getConnection()) {
+                Assert.assertEquals(getDatabaseNameFrom(connection), "DATASOURCE01");
+            }
+        }
+    }
+
+    @Test
+    public void testGetConnectionWithCredentials() throws SQLException {
+        RobinDataSource dataSource = new RobinDataSource("jdbc:robin:failover:template:"
+                + "#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:datasource1$value  #end", new Properties());
+
+        try (Connection connection = dataSource.getConnection("sa", "")) {
+            Assert.assertEquals(getDatabaseNameFrom(connection), "DATASOURCE11");
+        }
+    }
+
+    @Test
+    public void testInvalidConfigurationIsReportedAtConstruction() {
+        try {
+            new RobinDataSource("jdbc:robin:failover:attemptCount=0;template:"
+                    + "#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:datasource2$value  #end");
+
+            Assert.fail("Should have thrown an exception");
+        } catch (SQLException sqlException) {
+            Assert.assertTrue(sqlException.getMessage().contains("Value for attemptCount must be a positive integer"));
+        }
+    }
+
+    @Test
+    public void testInvalidConnectionTypeIsReportedAtConstruction() {
+        try {
+            new RobinDataSource("jdbc:robin:foobar:template:"
+                    + "#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:datasource3$value  #end");
+
+            Assert.fail("Should have thrown an exception");
+        } catch (SQLException sqlException) {
+            Assert.assertTrue(sqlException.getMessage().startsWith("Invalid URL syntax"));
+        }
+    }
+
+    @Test(expectedExceptions = SQLException.class)
+    public void testNonRobinUrl() throws SQLException {
+        new RobinDataSource("jdbc:h2:mem:datasource4");
+    }
+
+    @Test
+    public void testGetConnectionAsync() throws Exception {
+        RobinDataSource dataSource = new RobinDataSource("jdbc:robin:failover:template:"
+                + "#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:datasource5$value  #end");
+
+        try (Connection connection = dataSource.getConnectionAsync().get(10, TimeUnit.SECONDS)) {
+            Assert.assertEquals(getDatabaseNameFrom(connection), "DATASOURCE51");
+        }
+    }
+
+    @Test
+    public void testGetConnectionAsyncFailure() throws Exception {
+        TestDelegateDriver.register();
+        RobinDataSource dataSource = new RobinDataSource("jdbc:robin:failover:template:#@jdbcUrlsFrom( ['"
+                + TestDelegateDriver.failing("jdbc:h2:mem:datasource61") + "', '"
+                + TestDelegateDriver.failing("jdbc:h2:mem:datasource62") + "'] ) $value #end");
+
+        try {
+            dataSource.getConnectionAsync(Runnable::run).get(10, TimeUnit.SECONDS);
+            Assert.fail("Should have thrown an exception");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof SQLException, expected.getCause().toString());
+            Assert.assertEquals(expected.getCause().getSuppressed().length, 2);
+        }
+    }
+
+    @Test
+    public void testCancelInterruptsConnect() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<Connection> future = AsyncConnector.connect(() -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+                throw new SQLException("Should have been interrupted");
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new SQLException("Interrupted", e);
+            }
+        }, RobinExecutors.getAsyncConnectExecutor());
+
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(future.cancel(true));
+        Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testLateConnectionOfCancelledConnectIsClosed() throws Exception {
+        Connection lateConnection = DriverManager.getConnection("jdbc:h2:mem:datasource7");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Connection> future = AsyncConnector.connect(() -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            return lateConnection;
+        }, RobinExecutors.getAsyncConnectExecutor());
+
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(future.cancel(true));
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!lateConnection.isClosed() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(lateConnection.isClosed());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException ignored) {
+                // retry: the connect ignores interrupts
+            }
+        }
+    }
+
+    private static String getDatabaseNameFrom(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "select * from INFORMATION_SCHEMA.INFORMATION_SCHEMA_CATALOG_NAME")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+public class RobinStatisticsTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long micros = 0; micros < 100000; micros++) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            Assert.assertTrue(micros <= LatencyHistogram.bucketUpperBound(index), "micros=" + micros);
+            if (index > 0) {
+                Assert.assertTrue(micros > LatencyHistogram.bucketUpperBound(index - 1), "micros=" + micros);
+            }
+        }
+        Assert.assertEquals(LatencyHistogram.bucketIndex(Long.MAX_VALUE), LatencyHistogram.BUCKET_COUNT - 1);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getPercentileMicros(0.5), 0L);
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        Assert.assertEquals(histogram.getCount(), 1000L);
+        assertWithinBucket(histogram.getPercentileMicros(0.5), 500);
+        assertWithinBucket(histogram.getPercentileMicros(0.99), 990);
+        assertWithinBucket(histogram.getPercentileMicros(0.999), 999);
+    }
+
+    @Test
+    public void testConnectTimeOfEndpointWithoutSuccess() {
+        EndpointMetrics metrics = new EndpointMetrics();
+        metrics.attemptStarted();
+        metrics.attemptFinished(false, 5000000L);
+        Assert.assertEquals(metrics.getConnectTimePercentileMicros(0.5), 0L);
+
+        metrics.attemptStarted();
+        metrics.attemptFinished(true, 2000000L);
+        assertWithinBucket(metrics.getConnectTimePercentileMicros(0.5), 2000);
+    }
+
+    private static void assertWithinBucket(long actual, long expected) {
+        Assert.assertTrue(actual >= expected && actual <= expected + expected / LatencyHistogram.SUB_BUCKETS,
+                "expected about " + expected + ", but was: " + actual);
+    }
+
+    @Test
+    public void testMBeanExposesEndpointStatistics() throws Exception {
+        String failingUrl = TestDelegateDriver.failing("jdbc:h2:mem:statistics1");
+        String url = "jdbc:robin:failover:template:#@jdbcUrlsFrom( ['"
+                + failingUrl + "', 'jdbc:h2:mem:statistics2'] ) $value #end";
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = DriverManager.getConnection(url)) {
+                Assert.assertEquals(connection.getCatalog(), "STATISTICS2");
+            }
+        }
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(RobinStatistics.OBJECT_NAME);
+
+        CompositeData failing = find(mBeanServer, objectName, failingUrl);
+        Assert.assertEquals(failing.get("attempts"), 3L);
+        Assert.assertEquals(failing.get("failures"), 3L);
+        Assert.assertEquals(failing.get("successes"), 0L);
+
+        CompositeData working = find(mBeanServer, objectName, "jdbc:h2:mem:statistics2");
+        Assert.assertEquals(working.get("attempts"), 3L);
+        Assert.assertEquals(working.get("successes"), 3L);
+        Assert.assertEquals(working.get("attemptsInFlight"), 0L);
+        Assert.assertTrue((Long) working.get("connectTimeP99Micros") >= (Long) working.get("connectTimeP50Micros"));
+
+        Assert.assertTrue((Long) mBeanServer.getAttribute(objectName, "ConfigurationParseCount") > 0);
+        Assert.assertTrue((Long) mBeanServer.getAttribute(objectName, "TemplateEvaluationCount") > 0);
+    }
+
+    private static CompositeData find(MBeanServer mBeanServer, ObjectName objectName, String url) throws Exception {
+        for (CompositeData statistics : (CompositeData[]) mBeanServer.getAttribute(objectName, "EndpointStatistics")) {
+            if (url.equals(statistics.get("url"))) {
+                return statistics;
+            }
+        }
+        throw new AssertionError("No statistics for URL: " + url);
+    }
+
+    @Test(expectedExceptions = SQLException.class)
+    public void testFailedConnectIsCounted() throws Exception {
+        String failingUrl = TestDelegateDriver.failing("jdbc:h2:mem:statistics3");
+        try {
+            DriverManager.getConnection("jdbc:robin:failover:template:#@jdbcUrlsFrom( ['"
+                    + failingUrl + "', '" + TestDelegateDriver.failing("jdbc:h2:mem:statistics4") + "'] ) $value #end");
+        } finally {
+            EndpointMetrics metrics = EndpointRegistry.getInstance().get(failingUrl).getMetrics();
+            Assert.assertEquals(metrics.getFailures(), metrics.getAttempts());
+            Assert.assertEquals(metrics.getAttemptsInFlight(), 0L);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.DefaultConfigurationFactory;
+import com.github.robin.jdbc.url.DefaultUrlTemplateParser;
+import com.github.robin.jdbc.url.UrlTemplate;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class RoundRobinConnectionTypeTest {
+
+    @Test
+    public void testRoundRobinRotates() throws SQLException {
+        List<String> catalogs = connect("jdbc:robin:roundrobin:template:"
+                + "#@jdbcUrlsFrom( [1..3] ) jdbc:h2:mem:roundrobin0$value #end", 6);
+
+        Assert.assertEquals(catalogs, Arrays.asList(
+                "ROUNDROBIN01", "ROUNDROBIN02", "ROUNDROBIN03", "ROUNDROBIN01", "ROUNDROBIN02", "ROUNDROBIN03"));
+    }
+
+    @Test
+    public void testWeightsFromTemplateOutput() throws SQLException {
+        List<String> catalogs = connect("jdbc:robin:weighted:template:"
+                + "[weight=2] jdbc:h2:mem:weighted11 jdbc:h2:mem:weighted12", 6);
+
+        Assert.assertEquals(Collections.frequency(catalogs, "WEIGHTED11"), 4);
+        Assert.assertEquals(Collections.frequency(catalogs, "WEIGHTED12"), 2);
+        // smooth: the heavier endpoint is never selected three times in a row
+        Assert.assertEquals(catalogs.subList(0, 3), Arrays.asList("WEIGHTED11", "WEIGHTED12", "WEIGHTED11"));
+    }
+
+    @Test
+    public void testWeightsFromConfiguration() throws SQLException {
+        List<String> catalogs = connect("jdbc:robin:weighted:weights=1,3;template:"
+                + "#@jdbcUrlsFrom( [1..2] ) jdbc:h2:mem:weighted2$value #end", 8);
+
+        Assert.assertEquals(Collections.frequency(catalogs, "WEIGHTED21"), 2);
+        Assert.assertEquals(Collections.frequency(catalogs, "WEIGHTED22"), 6);
+    }
+
+    @Test
+    public void testConcurrentWeightedSelectionKeepsTheWeights() throws Exception {
+        ConnectionFactory connectionFactory = new ConnectionFactory(DefaultConfigurationFactory.getInstance(),
+                DefaultUrlTemplateParser.getInstance(), new ConnectPlanCache(16));
+        ConnectPlan connectPlan = connectionFactory.getConnectPlan(
+                "weighted:template:[weight=3] jdbc:h2:mem:weighted41 jdbc:h2:mem:weighted42", new Properties());
+
+        int threadCount = 8;
+        int selectionsPerThread = 4000;
+        AtomicIntegerArray selections = new AtomicIntegerArray(2);
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < selectionsPerThread; j++) {
+                        selections.incrementAndGet(connectPlan.nextWeightedIndex());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        // every selection advanced the shared state exactly once
+        Assert.assertEquals(selections.get(0), threadCount * selectionsPerThread * 3 / 4);
+        Assert.assertEquals(selections.get(1), threadCount * selectionsPerThread / 4);
+    }
+
+    @Test
+    public void testInvalidWeightAttribute() {
+        try {
+            DriverManager.getConnection("jdbc:robin:weighted:template:"
+                    + "[weight=heavy] jdbc:h2:mem:weighted31 jdbc:h2:mem:weighted32");
+            Assert.fail("Should have thrown an exception");
+        } catch (SQLException expected) {
+            Assert.assertTrue(expected.getMessage().startsWith(
+                    "URL template error: Attribute weight must be an integer between 1 and 1000"),
+                    expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testAttributesAreStripped() throws Exception {
+        EndpointAttributes endpointAttributes = EndpointAttributes.parse(Arrays.asList(
+                "jdbc:h2:mem:a", "[weight=3, zone=b] jdbc:h2:mem:b"));
+
+        Assert.assertEquals(endpointAttributes.getUrls(), Arrays.asList("jdbc:h2:mem:a", "jdbc:h2:mem:b"));
+        Assert.assertNull(endpointAttributes.getAttribute(0, "zone"));
+        Assert.assertEquals(endpointAttributes.getAttribute(1, "zone"), "b");
+        Assert.assertEquals(endpointAttributes.getWeights(Collections.emptyList()), new int[] {1, 3});
+    }
+
+    @Test
+    public void testGeneratedUrlsAreOnlyInspectedForAttributesIfTheyMightHaveAny() throws Exception {
+        UrlTemplate plainTemplate = DefaultUrlTemplateParser.getInstance()
+                .compile("#@jdbcUrlsFrom( [1..3] ) jdbc:h2:mem:db$value #end");
+        UrlTemplate attributedTemplate = DefaultUrlTemplateParser.getInstance()
+                .compile("#@jdbcUrlsFrom( [1..3] ) [weight=$value] jdbc:h2:mem:db$value #end");
+
+        Assert.assertFalse(plainTemplate.mayYieldAttributes());
+        Assert.assertTrue(attributedTemplate.mayYieldAttributes());
+
+        EndpointAttributes endpointAttributes = EndpointAttributes.parse(
+                attributedTemplate.getUrls(new Properties()), attributedTemplate.mayYieldAttributes());
+        Assert.assertEquals(endpointAttributes.getWeights(Collections.emptyList()), new int[] {1, 2, 3});
+    }
+
+    private static List<String> connect(String url, int times) throws SQLException {
+        List<String> catalogs = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            try (Connection connection = DriverManager.getConnection(url)) {
+                catalogs.add(connection.getCatalog());
+            }
+        }
+        return catalogs;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.Configuration;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class SingleFlightTrialTest {
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testOnlyOneTrialAtATime() {
+        EndpointState endpointState = new EndpointState("jdbc:h2:mem:trial0");
+        Assert.assertFalse(endpointState.isSuspect(1));
+
+        endpointState.recordFailure(System.nanoTime());
+        Assert.assertTrue(endpointState.isSuspect(1));
+        Assert.assertFalse(endpointState.isSuspect(2));
+        Assert.assertFalse(endpointState.isSuspect(Configuration.SINGLE_FLIGHT_DISABLED));
+
+        CompletableFuture<Boolean> trial = endpointState.tryStartTrial();
+        Assert.assertNotNull(trial);
+        Assert.assertNull(endpointState.tryStartTrial());
+        Assert.assertSame(endpointState.getTrial(), trial);
+
+        endpointState.endTrial(trial, true);
+        Assert.assertTrue(trial.join());
+        Assert.assertFalse(endpointState.isTrialInFlight());
+        Assert.assertNotNull(endpointState.tryStartTrial());
+    }
+
+    @Test
+    public void testEndpointBeingTriedIsAttemptedLast() {
+        EndpointRegistry endpointRegistry = EndpointRegistry.getInstance();
+        List<String> urls = Arrays.asList("jdbc:h2:mem:trial11", "jdbc:h2:mem:trial12", "jdbc:h2:mem:trial13");
+        PropertiesKey planKey = ConnectPlanCache.keyFor("failover:template:", null);
+
+        EndpointState endpointState = endpointRegistry.get(urls.get(0));
+        endpointState.recordFailure(System.nanoTime());
+        CompletableFuture<Boolean> trial = endpointRegistry.tryStartTrial(endpointState);
+        try {
+            Assert.assertEquals(
+                    endpointRegistry.orderByAvailability(urls, planKey, new Configuration(), HealthSnapshot.EMPTY),
+                    Arrays.asList("jdbc:h2:mem:trial12", "jdbc:h2:mem:trial13", "jdbc:h2:mem:trial11"));
+        } finally {
+            endpointRegistry.endTrial(endpointState, trial, false);
+        }
+
+        Assert.assertSame(
+                endpointRegistry.orderByAvailability(urls, planKey, new Configuration(), HealthSnapshot.EMPTY), urls);
+    }
+
+    @Test
+    public void testConcurrentCallersDoNotStampedeRecoveringEndpoint() throws Exception {
+        String recoveringUrl = TestDelegateDriver.sleeping(300, TestDelegateDriver.failing("jdbc:h2:mem:trial21"));
+        String url = "jdbc:robin:failover:trialFailureThreshold=1;template:#@jdbcUrlsFrom( ['" + recoveringUrl + "', "
+                + "'jdbc:h2:mem:trial22'] ) $value #end";
+
+        EndpointRegistry.getInstance().recordFailure(recoveringUrl);
+
+        final int callerCount = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(callerCount);
+        try {
+            CountDownLatch startGate = new CountDownLatch(1);
+            List<Future<String>> catalogs = new ArrayList<>();
+            for (int i = 0; i < callerCount; i++) {
+                catalogs.add(executor.submit(() -> {
+                    startGate.await();
+                    try (Connection connection = DriverManager.getConnection(url)) {
+                        return connection.getCatalog();
+                    }
+                }));
+            }
+            startGate.countDown();
+
+            for (Future<String> catalog : catalogs) {
+                Assert.assertEquals(catalog.get(10, TimeUnit.SECONDS), "TRIAL22");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(TestDelegateDriver.getAttemptCount(recoveringUrl), 1);
+    }
+
+    @Test
+    public void testCallersDoNotWaitForTrialBeyondTheirDeadline() throws SQLException {
+        String recoveringUrl = "jdbc:h2:mem:trial31";
+        String template = "template:#@jdbcUrlsFrom( ['" + TestDelegateDriver.failing("jdbc:h2:mem:trial32")
+                + "', '" + recoveringUrl + "'] ) $value #end";
+        EndpointRegistry endpointRegistry = EndpointRegistry.getInstance();
+        EndpointState endpointState = endpointRegistry.get(recoveringUrl);
+        endpointState.recordFailure(System.nanoTime());
+
+        CompletableFuture<Boolean> trial = endpointRegistry.tryStartTrial(endpointState);
+        try {
+            long start = System.nanoTime();
+            assertConnectFails("jdbc:robin:failover:trialFailureThreshold=1;attemptTimeoutMillis=200;" + template);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assert.assertTrue(elapsedMillis < 5000, "Took " + elapsedMillis + " ms");
+
+            // without timeouts, the endpoint being tried is skipped right away
+            SQLException exception = assertConnectFails("jdbc:robin:failover:trialFailureThreshold=1;" + template);
+            Assert.assertTrue(exception.getSuppressed()[1].getMessage().endsWith("in flight: skipping it"),
+                    exception.getSuppressed()[1].getMessage());
+
+            // without the setting, the trial in flight is not waited for
+            try (Connection connection = DriverManager.getConnection("jdbc:robin:failover:" + template)) {
+                Assert.assertEquals(connection.getCatalog(), "TRIAL31");
+            }
+        } finally {
+            endpointRegistry.endTrial(endpointState, trial, false);
+        }
+    }
+
+    private static SQLException assertConnectFails(String url) {
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.fail("Connected to " + connection.getCatalog());
+            return null;
+        } catch (SQLException expected) {
+            Assert.assertTrue(expected.getMessage().startsWith("Could not connect"), expected.getMessage());
+            return expected;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.DefaultConfigurationFactory;
+import com.github.robin.jdbc.url.DefaultUrlTemplateParser;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+public class StandbyConnectionsTest {
+
+    private static final String STANDBY_URL = TestDelegateDriver.sleeping(1000, "jdbc:h2:mem:standby2");
+
+    private static final String URL = "jdbc:robin:failover:standbyConnections=2;standbyValidationIntervalMillis=50;"
+            + "template:#@jdbcUrlsFrom( ['" + TestDelegateDriver.failing("jdbc:h2:mem:standby1") + "', '"
+            + STANDBY_URL + "'] ) $value #end";
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testStandbyConnectionIsHandedOutOnFailover() throws Exception {
+        // the first connect registers the plan, and pays for the slow handshake
+        try (Connection connection = DriverManager.getConnection(URL)) {
+            Assert.assertEquals(connection.getCatalog(), "STANDBY2");
+        }
+
+        awaitStandbyCount(2);
+
+        EndpointMetrics metrics = EndpointRegistry.getInstance().get(STANDBY_URL).getMetrics();
+        long successes = metrics.getSuccesses();
+
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(URL)) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assert.assertEquals(connection.getCatalog(), "STANDBY2");
+            Assert.assertTrue(elapsedMillis < 500, "Took " + elapsedMillis + " ms");
+        }
+
+        // taking a standby connection is accounted for the endpoint like opening one
+        Assert.assertEquals(metrics.getSuccesses(), successes + 1);
+
+        // the connection handed out is replaced in the background
+        awaitStandbyCount(2);
+    }
+
+    @Test
+    public void testStandbyDisabledByDefault() throws SQLException {
+        String url = "jdbc:robin:failover:template:jdbc:h2:mem:standby11 jdbc:h2:mem:standby12";
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertEquals(connection.getCatalog(), "STANDBY11");
+        }
+
+        Assert.assertEquals(StandbyConnections.getInstance()
+                .getStandbyCount("jdbc:h2:mem:standby12", new Properties()), 0);
+    }
+
+    @Test
+    public void testStandbyOnlyKeptForFailover() throws SQLException, InterruptedException {
+        String url = "jdbc:robin:roundrobin:standbyConnections=2;standbyValidationIntervalMillis=20;"
+                + "template:#@jdbcUrlsFrom( ['jdbc:h2:mem:standby21', 'jdbc:h2:mem:standby22'] ) $value #end";
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertNotNull(connection.getCatalog());
+        }
+
+        Thread.sleep(100);
+
+        Assert.assertEquals(StandbyConnections.getInstance()
+                .getStandbyCount("jdbc:h2:mem:standby22", new Properties()), 0);
+    }
+
+    @Test
+    public void testStandbyConnectionsOfEvictedPlanAreClosed() throws Exception {
+        ConnectionFactory connectionFactory = new ConnectionFactory(DefaultConfigurationFactory.getInstance(),
+                DefaultUrlTemplateParser.getInstance(), new ConnectPlanCache(1));
+        Properties properties = new Properties();
+        String standbyUrl = "jdbc:h2:mem:standby32";
+
+        connectionFactory.getConnectPlan("failover:standbyConnections=1;standbyValidationIntervalMillis=20;"
+                + "template:#@jdbcUrlsFrom( ['jdbc:h2:mem:standby31', '" + standbyUrl + "'] ) $value #end", properties);
+        int targetCount = StandbyConnections.getInstance().getTargetCount();
+        awaitStandbyCount(standbyUrl, 1);
+
+        connectionFactory.getConnectPlan("failover:template:jdbc:h2:mem:standby33 jdbc:h2:mem:standby34", properties);
+
+        Assert.assertEquals(StandbyConnections.getInstance().getTargetCount(), targetCount - 1);
+        Assert.assertEquals(StandbyConnections.getInstance().getStandbyCount(standbyUrl, properties), 0);
+        try (Connection connection = DriverManager.getConnection(standbyUrl);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS")) {
+            resultSet.next();
+            Assert.assertEquals(resultSet.getInt(1), 1, "The standby connection is still open");
+        }
+    }
+
+    private static void awaitStandbyCount(int expectedCount) throws InterruptedException {
+        awaitStandbyCount(STANDBY_URL, expectedCount);
+    }
+
+    private static void awaitStandbyCount(String url, int expectedCount) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        int standbyCount;
+        while ((standbyCount = StandbyConnections.getInstance().getStandbyCount(url, new Properties()))
+                < expectedCount && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(standbyCount, expectedCount);
+    }
+}
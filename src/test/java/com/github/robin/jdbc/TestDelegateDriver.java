@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.robin.jdbc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Test driver simulating misbehaving endpoints: URLs like
+ * {@code jdbc:robintest:<action>:<delegate URL>} perform the action and then connect to the
+ * delegate URL. Actions: {@code sleep<milliseconds>} delays the connect, {@code fail} fails it,
+ * {@code failautocommit} returns a connection failing {@link Connection#getAutoCommit()}.
+ */
+public final class TestDelegateDriver implements java.sql.Driver {
+
+    static final String URL_PREFIX = "jdbc:robintest:";
+
+    private static final String SLEEP_ACTION = "sleep";
+    private static final String FAIL_ACTION = "fail";
+    private static final String FAIL_AUTO_COMMIT_ACTION = "failautocommit";
+
+    private static final ConcurrentMap<String, AtomicInteger> ATTEMPT_COUNTS = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new TestDelegateDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static void register() {
+        // registration happens in the static initializer
+    }
+
+    static String sleeping(long millis, String delegateUrl) {
+        return URL_PREFIX + SLEEP_ACTION + millis + ":" + delegateUrl;
+    }
+
+    static String failing(String delegateUrl) {
+        return URL_PREFIX + FAIL_ACTION + ":" + delegateUrl;
+    }
+
+    static String failingAutoCommit(String delegateUrl) {
+        return URL_PREFIX + FAIL_AUTO_COMMIT_ACTION + ":" + delegateUrl;
+    }
+
+    static int getAttemptCount(String url) {
+        AtomicInteger attemptCount = ATTEMPT_COUNTS.get(url);
+        if (attemptCount == null) {
+            return 0;
+        }
+        return attemptCount.get();
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+
+        ATTEMPT_COUNTS.computeIfAbsent(url, key -> new AtomicInteger()).incrementAndGet();
+
+        String[] actionAndDelegateUrl = url.substring(URL_PREFIX.length()).split(":", 2);
+        String action = actionAndDelegateUrl[0];
+
+        if (action.startsWith(SLEEP_ACTION)) {
+            try {
+                Thread.sleep(Long.parseLong(action.substring(SLEEP_ACTION.length())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted", "08001", e);
+            }
+        } else if (action.equals(FAIL_ACTION)) {
+            throw new SQLException("Simulated connection failure: " + url, "08001");
+        }
+
+        Connection connection = DriverManager.getConnection(actionAndDelegateUrl[1], info);
+        if (action.equals(FAIL_AUTO_COMMIT_ACTION)) {
+            return failingAutoCommit(connection);
+        }
+        return connection;
+    }
+
+    private static Connection failingAutoCommit(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(TestDelegateDriver.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getAutoCommit")) {
+                        throw new SQLException("Simulated getAutoCommit failure", "08003");
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
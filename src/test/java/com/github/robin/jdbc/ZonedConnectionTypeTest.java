@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc;
+
+import com.github.robin.jdbc.config.DefaultConfigurationFactory;
+import com.github.robin.jdbc.url.DefaultUrlTemplateParser;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+public class ZonedConnectionTypeTest {
+
+    private static final String TEMPLATE = "template:[zone=a] jdbc:h2:mem:zone1 [zone=b] jdbc:h2:mem:zone2 "
+            + "[zone=b] jdbc:h2:mem:zone3 jdbc:h2:mem:zone4";
+
+    @BeforeClass
+    public void beforeClass() {
+        TestDelegateDriver.register();
+    }
+
+    @Test
+    public void testUrlsAreBalancedWithinTiers() throws Exception {
+        ConnectPlan plan = newConnectPlan("zoned:zones=b,a;" + TEMPLATE, new Properties());
+        Assert.assertEquals(plan.getTiers(), Arrays.asList(
+                Arrays.asList("jdbc:h2:mem:zone2", "jdbc:h2:mem:zone3"),
+                Arrays.asList("jdbc:h2:mem:zone1"),
+                Arrays.asList("jdbc:h2:mem:zone4")));
+
+        Set<String> firstUrls = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            List<String> urls = plan.getConnectionType().orderUrls(plan, new Properties());
+            Assert.assertEquals(new HashSet<>(urls.subList(0, 2)),
+                    new HashSet<>(Arrays.asList("jdbc:h2:mem:zone2", "jdbc:h2:mem:zone3")));
+            Assert.assertEquals(urls.subList(2, 4), Arrays.asList("jdbc:h2:mem:zone1", "jdbc:h2:mem:zone4"));
+            firstUrls.add(urls.get(0));
+        }
+        Assert.assertEquals(firstUrls.size(), 2);
+    }
+
+    @Test
+    public void testPreferredZoneFromConnectionProperties() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("zones", "a");
+
+        ConnectPlan plan = newConnectPlan("zoned:" + TEMPLATE, properties);
+        Assert.assertEquals(plan.getConnectionType().orderUrls(plan, properties).get(0), "jdbc:h2:mem:zone1");
+        Assert.assertEquals(plan.getTiers().size(), 2);
+    }
+
+    @Test
+    public void testFailoverToNextZone() throws SQLException {
+        String url = "jdbc:robin:zoned:zones=b,a;template:[zone=a] jdbc:h2:mem:zone11 "
+                + "[zone=b] " + TestDelegateDriver.failing("jdbc:h2:mem:zone12")
+                + " [zone=b] " + TestDelegateDriver.failing("jdbc:h2:mem:zone13");
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            Assert.assertEquals(connection.getCatalog(), "ZONE11");
+        }
+    }
+
+    @Test(expectedExceptions = SQLException.class,
+            expectedExceptionsMessageRegExp = "Configuration error: Values for zones must not be blank.*")
+    public void testBlankZone() throws Exception {
+        newConnectPlan("zoned:zones=a,,b;" + TEMPLATE, new Properties());
+    }
+
+    private static ConnectPlan newConnectPlan(String factoryConfiguration, Properties properties) throws Exception {
+        ConnectionFactory connectionFactory = new ConnectionFactory(DefaultConfigurationFactory.getInstance(),
+                DefaultUrlTemplateParser.getInstance(), new ConnectPlanCache(16));
+        return connectionFactory.getConnectPlan(factoryConfiguration, properties);
+    }
+}
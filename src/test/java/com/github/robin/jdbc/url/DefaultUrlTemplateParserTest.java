@@ -16,11 +16,14 @@
 
 package com.github.robin.jdbc.url;
 
+import com.github.robin.jdbc.config.Configuration;
 import com.github.robin.jdbc.config.URLTemplateException;
 import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 
@@ -64,4 +67,125 @@ public class DefaultUrlTemplateParserTest {
 
     }
 
+    @DataProvider
+    public Object[][] generatorTemplates() {
+        return new Object[][] {
+                {"#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:foobar0$value  #end"},
+                {"#@jdbcUrlsFrom( [12..8] )  jdbc:h2:mem:foobar#formatter('%02d', $value)  #end"},
+                {"#@jdbcUrlsFrom( ['08', '09', '10'] )  jdbc:h2:mem:foobar$value  #end"},
+                {"  #@jdbcUrlsFrom( [ 1 .. 3 ] )jdbc:h2:mem:db${value}x;MODE=MySQL#end  "},
+                {"#@jdbcUrlsFrom( [1, \"b\", 'c'] ) jdbc:h2:mem:$formatter.format('db_%s', $value);X=1 #end"},
+        };
+    }
+
+    @Test(dataProvider = "generatorTemplates")
+    public void testGeneratorTemplateMatchesVelocity(String urlPattern) throws URLTemplateException {
+
+        UrlTemplate compiledTemplate = urlTemplateParser.compile(urlPattern);
+        Assert.assertTrue(compiledTemplate instanceof GeneratorUrlTemplate, compiledTemplate.toString());
+
+        List<String> expected = VelocityUrlTemplate.compile(urlPattern).getUrls(new Properties());
+
+        Assert.assertEquals(compiledTemplate.getUrls(new Properties()), expected);
+    }
+
+    @DataProvider
+    public Object[][] velocityTemplates() {
+        return new Object[][] {
+                {"#foreach( $index in [1..3] )jdbc:h2:mem:foobar0$index\n#end"},
+                {"#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:foobar0$value.x  #end"},
+                {"#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:foobar0$value-$user  #end"},
+                {"#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:foobar#formatter('%02d', $value)x #end"},
+                {"#@jdbcUrlsFrom( $list )  jdbc:h2:mem:foobar$value #end"},
+        };
+    }
+
+    @Test(dataProvider = "velocityTemplates")
+    public void testOtherTemplatesAreEvaluatedWithVelocity(String urlPattern) throws URLTemplateException {
+
+        UrlTemplate compiledTemplate = urlTemplateParser.compile(urlPattern);
+
+        Assert.assertTrue(compiledTemplate instanceof VelocityUrlTemplate, compiledTemplate.toString());
+    }
+
+    @Test
+    public void testCompiledTemplateIsReused() throws URLTemplateException {
+
+        String urlPattern = "#@jdbcUrlsFrom( [1..2] )  jdbc:h2:mem:reused0$value  #end";
+
+        Assert.assertSame(urlTemplateParser.compile(urlPattern), urlTemplateParser.compile(urlPattern));
+    }
+
+    @Test
+    public void testUrlsWithoutNewlinesAreSplitAtJdbcPrefix() throws URLTemplateException {
+
+        String urlPattern = "#foreach( $index in [1..3] ) jdbc:h2:mem:foobar0$index;MODE=MySQL#end";
+        List<String> urls = urlTemplateParser.getUrls(urlPattern, new Properties());
+
+        Assert.assertEquals(urls, Arrays.asList(
+                "jdbc:h2:mem:foobar01;MODE=MySQL", "jdbc:h2:mem:foobar02;MODE=MySQL", "jdbc:h2:mem:foobar03;MODE=MySQL"));
+    }
+
+    @Test
+    public void testBlankLinesAreIgnored() throws URLTemplateException {
+
+        String urlPattern = "#foreach( $index in [1..2] )\n  \n jdbc:h2:mem:foobar0$index \n#end\n\n";
+        List<String> urls = urlTemplateParser.getUrls(urlPattern, new Properties());
+
+        Assert.assertEquals(urls, Arrays.asList("jdbc:h2:mem:foobar01", "jdbc:h2:mem:foobar02"));
+    }
+
+    @Test
+    public void testLargeRangeIsGeneratedLazily() throws URLTemplateException {
+
+        // the output is never rendered as a whole, hence the maximum output length does not apply:
+        // the number of URLs is bounded by the maximum URL count only
+        String urlPattern = "#@jdbcUrlsFrom( [1..1000000] ) jdbc:h2:mem:shard$value #end";
+        List<String> urls = urlTemplateParser.compile(urlPattern)
+                .getUrls(new Properties(), 1000000, Configuration.DEFAULT_MAX_TEMPLATE_OUTPUT_LENGTH);
+
+        Assert.assertEquals(urls.size(), 1000000);
+        Assert.assertEquals(urls.get(0), "jdbc:h2:mem:shard1");
+        Assert.assertEquals(urls.get(999999), "jdbc:h2:mem:shard1000000");
+    }
+
+    @Test(expectedExceptions = URLTemplateException.class,
+            expectedExceptionsMessageRegExp = ".*exceeds the maximum allowed number of 4 URLs")
+    public void testMaxUrlCountOfGeneratorTemplate() throws URLTemplateException {
+
+        String urlPattern = "#@jdbcUrlsFrom( [1..5] ) jdbc:h2:mem:foobar0$value #end";
+
+        urlTemplateParser.compile(urlPattern).getUrls(new Properties(), 4, Integer.MAX_VALUE);
+    }
+
+    @Test(expectedExceptions = URLTemplateException.class,
+            expectedExceptionsMessageRegExp = ".*more than the maximum allowed number of 4 URLs")
+    public void testMaxUrlCountOfCustomTemplate() throws URLTemplateException {
+
+        String urlPattern = "#foreach( $index in [1..5] )jdbc:h2:mem:foobar0$index\n#end";
+
+        urlTemplateParser.compile(urlPattern).getUrls(new Properties(), 4, Integer.MAX_VALUE);
+    }
+
+    @Test(expectedExceptions = URLTemplateException.class,
+            expectedExceptionsMessageRegExp = ".*exceeds the maximum allowed length of 64 characters")
+    public void testMaxOutputLengthOfCustomTemplate() throws URLTemplateException {
+
+        String urlPattern = "#foreach( $index in [1..5] )jdbc:h2:mem:foobar0$index\n#end";
+
+        urlTemplateParser.compile(urlPattern).getUrls(new Properties(), Integer.MAX_VALUE, 64);
+    }
+
+    @Test(expectedExceptions = URLTemplateException.class,
+            expectedExceptionsMessageRegExp = ".*exceeds the maximum allowed length of 1024 characters")
+    public void testMaxOutputLengthAbortsEvaluation() throws URLTemplateException {
+
+        // evaluated by Velocity, as the body references a property: the output of a billion URLs
+        // must not be rendered before its length is checked
+        String urlPattern = "#@jdbcUrlsFrom( [1..1000000000] ) jdbc:h2:mem:$prefix$value #end";
+        Properties properties = new Properties();
+        properties.setProperty("prefix", "shard");
+
+        urlTemplateParser.compile(urlPattern).getUrls(properties, Integer.MAX_VALUE, 1024);
+    }
 }
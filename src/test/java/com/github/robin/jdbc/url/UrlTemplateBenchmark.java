@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022 Peter G. Horvath, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.robin.jdbc.url;
+
+import com.github.robin.jdbc.config.URLTemplateException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluating a URL template the way it used to be done (parsing the template
+ * with Velocity on every call) to evaluating compiled templates.
+ *
+ * <p>Run {@link #main(String[])} from the IDE, or {@code org.openjdk.jmh.Main} on the
+ * test classpath. Make sure logging is not configured to DEBUG (as it is for tests),
+ * otherwise logging dominates the measurement.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlTemplateBenchmark {
+
+    @Param({
+            "#@jdbcUrlsFrom( [1..5] )  jdbc:h2:mem:foobar0$value  #end",
+            "#@jdbcUrlsFrom( [8..12] )  jdbc:h2:mem:foobar#formatter('%02d', $value)  #end"
+    })
+    public String urlTemplate;
+
+    private final Properties properties = new Properties();
+
+    private UrlTemplate velocityUrlTemplate;
+    private UrlTemplate generatorUrlTemplate;
+
+    @Setup
+    public void setUp() throws URLTemplateException {
+        velocityUrlTemplate = VelocityUrlTemplate.compile(urlTemplate);
+        generatorUrlTemplate = GeneratorUrlTemplate.tryCompile(urlTemplate);
+    }
+
+    @Benchmark
+    public void parseOnEveryCall(Blackhole blackhole) throws URLTemplateException {
+        consume(VelocityUrlTemplate.compile(urlTemplate).getUrls(properties), blackhole);
+    }
+
+    @Benchmark
+    public void compiledVelocityTemplate(Blackhole blackhole) throws URLTemplateException {
+        consume(velocityUrlTemplate.getUrls(properties), blackhole);
+    }
+
+    @Benchmark
+    public void compiledGeneratorTemplate(Blackhole blackhole) throws URLTemplateException {
+        consume(generatorUrlTemplate.getUrls(properties), blackhole);
+    }
+
+    private static void consume(List<String> urls, Blackhole blackhole) {
+        // URL lists might be lazy: access each URL, just like a connect attempt to all URLs would do
+        for (String url : urls) {
+            blackhole.consume(url);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UrlTemplateBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}